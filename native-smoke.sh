@@ -0,0 +1,79 @@
+#!/bin/bash
+# Smoke test + startup comparison for the JVM jar vs. the GraalVM native executable.
+#
+# Prerequisites:
+#   - PostgreSQL reachable with the usual DB_USERNAME / DB_PASSWORD (.env or exported)
+#   - ./mvnw clean package            -> target/authservice-1.0.0.jar
+#   - ./mvnw -Pnative native:compile  -> target/authservice   (GraalVM JDK)
+#
+# Usage: ./native-smoke.sh [profile]   (default profile: local)
+
+set -euo pipefail
+
+PROFILE="${1:-local}"
+PORT="${PORT:-8080}"
+BASE_URL="http://localhost:${PORT}"
+JAR="target/authservice-1.0.0.jar"
+NATIVE="target/authservice"
+
+if [ -f .env ]; then
+  set -a; source .env; set +a
+fi
+
+now_ms() { date +%s%3N; }
+
+wait_for_health() {
+  local pid=$1
+  for _ in $(seq 1 600); do
+    if curl -sf "${BASE_URL}/actuator/health" > /dev/null; then
+      return 0
+    fi
+    if ! kill -0 "$pid" 2> /dev/null; then
+      echo "Process exited before becoming healthy" >&2
+      return 1
+    fi
+    sleep 0.05
+  done
+  echo "Timed out waiting for ${BASE_URL}/actuator/health" >&2
+  return 1
+}
+
+rss_mb() {
+  awk '/VmRSS/ { printf "%.1f", $2 / 1024 }' "/proc/$1/status"
+}
+
+signup_and_login() {
+  local email="smoke-$1-$(date +%s%N)@example.com"
+  local body="{\"email\":\"${email}\",\"password\":\"password\"}"
+  curl -sf -X POST "${BASE_URL}/auth/signup" -H "Content-Type: application/json" -d "$body" > /dev/null
+  curl -sf -X POST "${BASE_URL}/auth/login" -H "Content-Type: application/json" -d "$body" \
+    | grep -q '"accessToken"'
+}
+
+# run <label> <command...>
+run() {
+  local label=$1; shift
+  local start; start=$(now_ms)
+  "$@" --spring.profiles.active="$PROFILE" --server.port="$PORT" > "target/smoke-${label}.log" 2>&1 &
+  local pid=$!
+  trap 'kill $pid 2> /dev/null || true' EXIT
+
+  wait_for_health "$pid"
+  local startup=$(( $(now_ms) - start ))
+  local rss_idle; rss_idle=$(rss_mb "$pid")
+
+  signup_and_login "$label"
+  local rss_after; rss_after=$(rss_mb "$pid")
+
+  kill "$pid"; wait "$pid" 2> /dev/null || true
+  trap - EXIT
+  printf "%-8s %10s ms %12s MB %14s MB\n" "$label" "$startup" "$rss_idle" "$rss_after"
+}
+
+[ -f "$JAR" ] || { echo "Missing $JAR (run ./mvnw clean package)" >&2; exit 1; }
+[ -x "$NATIVE" ] || { echo "Missing $NATIVE (run ./mvnw -Pnative native:compile)" >&2; exit 1; }
+
+printf "%-8s %13s %15s %17s\n" "build" "startup" "RSS (idle)" "RSS (after login)"
+run jvm java -jar "$JAR"
+run native "./$NATIVE"
+echo "Signup/login smoke test passed for both builds"
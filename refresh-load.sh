@@ -0,0 +1,66 @@
+#!/bin/bash
+# Refresh QPS before/after expires_in + refresh_after, against the JVM jar.
+#
+# Scenarios (each on a fresh instance, all clients logging in at once):
+#   expiry   60s tokens, clients refresh when the token expires (how clients worked before the hint)
+#   hint     60s tokens, clients refresh after refresh_after (shipped refresh-ahead / refresh-jitter)
+#   hint-5m  5m tokens for role USER, clients follow refresh_after (a longer lifetime is what lowers the average)
+#
+# Prerequisites:
+#   - PostgreSQL reachable with the usual DB_USERNAME / DB_PASSWORD (.env or exported)
+#   - ./mvnw clean package            -> target/authservice-1.0.0.jar
+#
+# Usage: ./refresh-load.sh [clients] [duration-seconds] [profile]   (defaults: 500 300 local)
+
+set -euo pipefail
+
+CLIENTS="${1:-500}"
+DURATION="${2:-300}"
+PROFILE="${3:-local}"
+PORT="${PORT:-8080}"
+BASE_URL="http://localhost:${PORT}"
+JAR="target/authservice-1.0.0.jar"
+CLASSPATH_FILE="target/refresh-load.classpath"
+
+if [ -f .env ]; then
+  set -a; source .env; set +a
+fi
+
+wait_for_health() {
+  local pid=$1
+  for _ in $(seq 1 600); do
+    if curl -sf "${BASE_URL}/actuator/health" > /dev/null; then
+      return 0
+    fi
+    if ! kill -0 "$pid" 2> /dev/null; then
+      echo "Process exited before becoming healthy" >&2
+      return 1
+    fi
+    sleep 0.1
+  done
+  echo "Timed out waiting for ${BASE_URL}/actuator/health" >&2
+  return 1
+}
+
+# run <label> <client mode> <extra service args...>
+run() {
+  local label=$1 mode=$2; shift 2
+  java -jar "$JAR" --spring.profiles.active="$PROFILE" --server.port="$PORT" "$@" > "target/refresh-load-${label}.log" 2>&1 &
+  local pid=$!
+  trap 'kill $pid 2> /dev/null || true' EXIT
+
+  wait_for_health "$pid"
+  printf "%-8s " "$label"
+  java -cp "target/test-classes:target/classes:$(cat "$CLASSPATH_FILE")" \
+    com.gab.authservice.load.RefreshLoadGenerator "$BASE_URL" "$mode" "$CLIENTS" "$DURATION"
+
+  kill "$pid"; wait "$pid" 2> /dev/null || true
+  trap - EXIT
+}
+
+[ -f "$JAR" ] || { echo "Missing $JAR (run ./mvnw clean package)" >&2; exit 1; }
+./mvnw -q test-compile dependency:build-classpath -Dmdep.outputFile="$CLASSPATH_FILE" -Dmdep.includeScope=test
+
+run expiry expiry --auth.token.lifetime.default-ttl=60s
+run hint hint --auth.token.lifetime.default-ttl=60s
+run hint-5m hint --auth.token.lifetime.default-ttl=60s --auth.token.lifetime.roles.USER=5m
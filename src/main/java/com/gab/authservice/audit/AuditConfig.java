@@ -0,0 +1,47 @@
+package com.gab.authservice.audit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Configuration
+public class AuditConfig {
+
+    // Sinks are closed by the pipeline after its final flush, not by the container
+    @Bean(destroyMethod = "")
+    @ConditionalOnProperty(name = "auth.audit.sink", havingValue = "file")
+    public AuditSink fileAuditSink(@Value("${auth.audit.file.path:logs/audit.ndjson}") Path path,
+                                   @Value("${auth.audit.file.max-size:100MB}") DataSize maxSize,
+                                   ObjectMapper objectMapper) throws IOException {
+        return new FileAuditSink(path, maxSize.toBytes(), objectMapper);
+    }
+
+    @Bean(destroyMethod = "")
+    @ConditionalOnProperty(name = "auth.audit.sink", havingValue = "jdbc", matchIfMissing = true)
+    public AuditSink jdbcAuditSink(JdbcTemplate jdbcTemplate) {
+        JdbcAuditSink sink = new JdbcAuditSink(jdbcTemplate);
+        sink.createTableIfMissing();
+        return sink;
+    }
+
+    @Bean(destroyMethod = "close")
+    public AuditEventPipeline auditEventPipeline(
+            AuditSink auditSink,
+            MeterRegistry meterRegistry,
+            @Value("${auth.audit.capacity:8192}") int capacity,
+            @Value("${auth.audit.batch-size:256}") int batchSize,
+            @Value("${auth.audit.flush-interval:200ms}") Duration flushInterval,
+            @Value("${auth.audit.overflow-policy:DROP}") AuditEventPipeline.OverflowPolicy overflowPolicy,
+            @Value("${auth.audit.block-timeout:50ms}") Duration blockTimeout) {
+        return new AuditEventPipeline(auditSink, capacity, batchSize, flushInterval, overflowPolicy, blockTimeout, meterRegistry);
+    }
+}
@@ -0,0 +1,27 @@
+package com.gab.authservice.audit;
+
+import lombok.Value;
+
+import java.time.Instant;
+
+@Value
+public class AuditEvent {
+
+    // widths of the audit_events columns; longer values are cut before queuing
+    public static final int MAX_PRINCIPAL_LENGTH = 255;
+    public static final int MAX_REMOTE_ADDRESS_LENGTH = 64;
+
+    public enum Type {
+        LOGIN_SUCCESS,
+        LOGIN_FAILURE,
+        REFRESH,
+        REFRESH_FAILURE,
+        LOGOUT
+    }
+
+    Instant occurredAt;
+    Type type;
+    // email as given (unvalidated on login failures), or null when unknown (e.g. an invalid refresh token)
+    String principal;
+    String remoteAddress;
+}
@@ -0,0 +1,182 @@
+package com.gab.authservice.audit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Takes audit events off the request thread and writes them to an {@link AuditSink} in batches.
+ * <p>
+ * Events go into a bounded queue; a single flusher thread drains up to {@code batchSize} events
+ * at a time, or whatever has arrived after {@code flushInterval}. When the queue is full the
+ * {@link OverflowPolicy} decides whether the caller drops the event or waits (up to
+ * {@code blockTimeout}, then drops). Remaining events are flushed on shutdown.
+ * </p>
+ * <p>
+ * Principals and addresses come from requests, so they are cut to the column widths of {@code audit_events}
+ * before queuing. If the sink still rejects a batch, it is split in halves and retried, so one bad event costs
+ * only itself.
+ * </p>
+ * Metrics: {@code auth.audit.queue.size}, {@code auth.audit.lag} (age of the oldest queued event, ms),
+ * {@code auth.audit.events.written}, {@code auth.audit.events.dropped} and {@code auth.audit.events.failed}.
+ */
+@Slf4j
+public class AuditEventPipeline implements AutoCloseable {
+
+    public enum OverflowPolicy {
+        DROP,
+        BLOCK
+    }
+
+    private final AuditSink sink;
+    private final BlockingQueue<AuditEvent> queue;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final OverflowPolicy overflowPolicy;
+    private final long blockTimeoutNanos;
+
+    private final Counter written;
+    private final Counter dropped;
+    private final Counter failed;
+
+    private final Thread flusher;
+    private volatile boolean running = true;
+
+    public AuditEventPipeline(AuditSink sink, int capacity, int batchSize, Duration flushInterval,
+                              OverflowPolicy overflowPolicy, Duration blockTimeout, MeterRegistry meterRegistry) {
+        this.sink = sink;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.overflowPolicy = overflowPolicy;
+        this.blockTimeoutNanos = blockTimeout.toNanos();
+
+        this.written = meterRegistry.counter("auth.audit.events.written");
+        this.dropped = meterRegistry.counter("auth.audit.events.dropped");
+        this.failed = meterRegistry.counter("auth.audit.events.failed");
+        Gauge.builder("auth.audit.queue.size", queue, BlockingQueue::size).register(meterRegistry);
+        Gauge.builder("auth.audit.lag", this, AuditEventPipeline::lagMillis).baseUnit("milliseconds").register(meterRegistry);
+
+        this.flusher = new Thread(this::run, "audit-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Queues an event. After {@link #close()} nothing drains the queue any more, so events are dropped.
+     */
+    public void record(AuditEvent.Type type, String principal, String remoteAddress) {
+        if (!running) {
+            dropped.increment();
+            return;
+        }
+        AuditEvent event = new AuditEvent(Instant.now(), type, truncate(principal, AuditEvent.MAX_PRINCIPAL_LENGTH),
+                truncate(remoteAddress, AuditEvent.MAX_REMOTE_ADDRESS_LENGTH));
+        if (queue.offer(event)) {
+            dropIfClosed(event);
+            return;
+        }
+        if (overflowPolicy == OverflowPolicy.BLOCK && running) {
+            try {
+                if (queue.offer(event, blockTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                    dropIfClosed(event);
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        dropped.increment();
+    }
+
+    private static String truncate(String value, int maxLength) {
+        return value == null || value.length() <= maxLength ? value : value.substring(0, maxLength);
+    }
+
+    /**
+     * close() may have done its final drain between the running check and the offer; if the event is
+     * still queued then, nobody will write it.
+     */
+    private void dropIfClosed(AuditEvent event) {
+        if (!running && queue.remove(event)) {
+            dropped.increment();
+        }
+    }
+
+    private void run() {
+        List<AuditEvent> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                AuditEvent first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+
+    private void flush(List<AuditEvent> batch) {
+        try {
+            write(batch);
+        } finally {
+            batch.clear();
+        }
+    }
+
+    private void write(List<AuditEvent> batch) {
+        try {
+            sink.write(batch);
+            written.increment(batch.size());
+        } catch (Exception e) {
+            if (batch.size() > 1 && !(e instanceof InterruptedException)) {
+                log.warn("Failed to write {} audit event(s), retrying in halves: {}", batch.size(), e.toString());
+                int half = batch.size() / 2;
+                write(new ArrayList<>(batch.subList(0, half)));
+                write(new ArrayList<>(batch.subList(half, batch.size())));
+                return;
+            }
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            failed.increment(batch.size());
+            log.error("Failed to write {} audit event(s)", batch.size(), e);
+        }
+    }
+
+    double lagMillis() {
+        AuditEvent oldest = queue.peek();
+        return oldest == null ? 0 : Duration.between(oldest.getOccurredAt(), Instant.now()).toMillis();
+    }
+
+    /**
+     * Stops the flusher and writes out everything still queued.
+     */
+    @Override
+    public void close() throws Exception {
+        // no interrupt: FileChannel closes itself when its writer is interrupted.
+        // The flusher notices within one flushInterval.
+        running = false;
+        flusher.join(TimeUnit.NANOSECONDS.toMillis(flushIntervalNanos) + 5_000);
+
+        List<AuditEvent> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            flush(batch);
+        }
+        sink.close();
+    }
+}
@@ -0,0 +1,15 @@
+package com.gab.authservice.audit;
+
+import java.util.List;
+
+/**
+ * Destination for audit event batches. Called from the pipeline's single flusher thread only.
+ */
+public interface AuditSink extends AutoCloseable {
+
+    void write(List<AuditEvent> batch) throws Exception;
+
+    @Override
+    default void close() throws Exception {
+    }
+}
@@ -0,0 +1,80 @@
+package com.gab.authservice.audit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Appends batches as NDJSON to a file through a {@link FileChannel}, rolling it over to
+ * {@code <name>.<epoch-millis>} once it grows past {@code maxBytes}.
+ */
+public class FileAuditSink implements AuditSink {
+
+    private final Path path;
+    private final long maxBytes;
+    private final ObjectMapper objectMapper;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(8192);
+
+    private FileChannel channel;
+
+    public FileAuditSink(Path path, long maxBytes, ObjectMapper objectMapper) throws IOException {
+        this.path = path;
+        this.maxBytes = maxBytes;
+        this.objectMapper = objectMapper;
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.channel = open();
+    }
+
+    private FileChannel open() throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    @Override
+    public void write(List<AuditEvent> batch) throws IOException {
+        buffer.reset();
+        for (AuditEvent event : batch) {
+            Map<String, Object> line = new LinkedHashMap<>();
+            line.put("occurredAt", event.getOccurredAt().toString());
+            line.put("type", event.getType().name());
+            line.put("principal", event.getPrincipal());
+            line.put("remoteAddress", event.getRemoteAddress());
+            objectMapper.writeValue(buffer, line);
+            buffer.write('\n');
+        }
+
+        if (channel.size() > 0 && channel.size() + buffer.size() > maxBytes) {
+            roll();
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(buffer.toByteArray());
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+
+    private void roll() throws IOException {
+        channel.close();
+        Path rolled = path.resolveSibling(path.getFileName() + "." + Instant.now().toEpochMilli());
+        Files.move(path, rolled, StandardCopyOption.ATOMIC_MOVE);
+        channel = open();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.force(false);
+        channel.close();
+    }
+}
@@ -0,0 +1,54 @@
+package com.gab.authservice.audit;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes each batch as one multi-row {@code INSERT} into {@code audit_events}.
+ */
+public class JdbcAuditSink implements AuditSink {
+
+    private static final String INSERT = "insert into audit_events (occurred_at, event_type, principal, remote_address) values ";
+    private static final String ROW = "(?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public JdbcAuditSink(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * The table isn't a JPA entity (nothing reads it through Hibernate), so create it here.
+     */
+    public void createTableIfMissing() {
+        jdbcTemplate.execute("""
+                create table if not exists audit_events (
+                    id bigserial primary key,
+                    occurred_at timestamp with time zone not null,
+                    event_type varchar(32) not null,
+                    principal varchar(255),
+                    remote_address varchar(64)
+                )""");
+    }
+
+    @Override
+    public void write(List<AuditEvent> batch) {
+        StringBuilder sql = new StringBuilder(INSERT.length() + batch.size() * (ROW.length() + 2)).append(INSERT);
+        List<Object> args = new ArrayList<>(batch.size() * 4);
+        for (int i = 0; i < batch.size(); i++) {
+            AuditEvent event = batch.get(i);
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(ROW);
+            args.add(Timestamp.from(event.getOccurredAt()));
+            args.add(event.getType().name());
+            args.add(event.getPrincipal());
+            args.add(event.getRemoteAddress());
+        }
+        jdbcTemplate.update(sql.toString(), args.toArray());
+    }
+}
@@ -0,0 +1,74 @@
+package com.gab.authservice.authz;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.io.Serial;
+import java.util.List;
+
+/**
+ * The authenticated caller of a verified access token. Immutable, so one instance is built per token and shared
+ * by all requests carrying it; authorities and role mask come from {@link RoleAuthorities}.
+ */
+public final class JwtAuthentication implements Authentication {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final String email;
+    private final List<GrantedAuthority> authorities;
+    private final long roleMask;
+
+    public JwtAuthentication(String email, String role) {
+        this.email = email;
+        this.authorities = RoleAuthorities.authorities(role);
+        this.roleMask = RoleAuthorities.mask(role);
+    }
+
+    /**
+     * The roles of the caller (with implied ones) as {@link RoleAuthorities} bits.
+     */
+    public long roleMask() {
+        return roleMask;
+    }
+
+    @Override
+    public String getName() {
+        return email;
+    }
+
+    @Override
+    public List<GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    @Override
+    public Object getCredentials() {
+        return null;
+    }
+
+    @Override
+    public Object getDetails() {
+        return null;
+    }
+
+    @Override
+    public Object getPrincipal() {
+        return email;
+    }
+
+    @Override
+    public boolean isAuthenticated() {
+        return true;
+    }
+
+    @Override
+    public void setAuthenticated(boolean authenticated) {
+        throw new IllegalArgumentException("JwtAuthentication is shared between requests and can't be changed");
+    }
+
+    @Override
+    public String toString() {
+        return "JwtAuthentication[" + email + ", " + authorities + "]";
+    }
+}
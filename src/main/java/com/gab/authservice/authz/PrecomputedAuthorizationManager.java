@@ -0,0 +1,145 @@
+package com.gab.authservice.authz;
+
+import com.gab.authservice.entity.Role;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.authorization.AuthorizationResult;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * {@link PreAuthorize} without SpEL for the plain role checks this service uses.
+ * <p>
+ * {@code hasRole}, {@code hasAnyRole}, {@code hasAuthority} and {@code hasAnyAuthority} on known roles are compiled
+ * into a role mask the first time a method is called, and from then on a call is a map lookup and
+ * {@code (roleMask & required) != 0} answered with a shared decision. The role hierarchy is already part of the
+ * masks (see {@link RoleAuthorities}). Any other expression goes to {@code fallback}, Spring's SpEL-based manager.
+ * </p>
+ */
+public class PrecomputedAuthorizationManager implements AuthorizationManager<MethodInvocation> {
+
+    private static final AuthorizationDecision GRANTED = new AuthorizationDecision(true);
+    private static final AuthorizationDecision DENIED = new AuthorizationDecision(false);
+
+    private static final Pattern CHECK = Pattern.compile("\\s*has(Any)?(Role|Authority)\\s*\\((.*)\\)\\s*");
+    private static final Pattern ARGUMENT = Pattern.compile("\\s*'([^']*)'\\s*");
+
+    /** Method has no {@code @PreAuthorize}. */
+    private static final long NOT_ANNOTATED = -1;
+    /** Expression is left to the fallback manager. */
+    private static final long NOT_COMPILED = 0;
+
+    private record Rule(Class<?> targetClass, long requiredMask) {
+    }
+
+    private final AuthorizationManager<MethodInvocation> fallback;
+    private final Map<Method, Rule> rules = new ConcurrentHashMap<>();
+
+    public PrecomputedAuthorizationManager(AuthorizationManager<MethodInvocation> fallback) {
+        this.fallback = fallback;
+    }
+
+    @Override
+    public AuthorizationResult authorize(Supplier<Authentication> authentication, MethodInvocation invocation) {
+        long required = requiredMask(invocation);
+        if (required == NOT_ANNOTATED) {
+            return null;
+        }
+        if (required == NOT_COMPILED) {
+            return fallback.authorize(authentication, invocation);
+        }
+        return (roleMask(authentication.get()) & required) != 0 ? GRANTED : DENIED;
+    }
+
+    @SuppressWarnings("deprecation")
+    @Override
+    public AuthorizationDecision check(Supplier<Authentication> authentication, MethodInvocation invocation) {
+        AuthorizationResult result = authorize(authentication, invocation);
+        return result == null || result instanceof AuthorizationDecision
+                ? (AuthorizationDecision) result
+                : new AuthorizationDecision(result.isGranted());
+    }
+
+    private long requiredMask(MethodInvocation invocation) {
+        Method method = invocation.getMethod();
+        Object target = invocation.getThis();
+        Class<?> targetClass = target == null ? method.getDeclaringClass() : AopUtils.getTargetClass(target);
+        Rule rule = rules.get(method);
+        if (rule == null) {
+            rule = new Rule(targetClass, compile(method, targetClass));
+            rules.putIfAbsent(method, rule);
+        } else if (rule.targetClass() != targetClass) {
+            // inherited method on a second class, whose class-level annotation may differ; rare, so not cached
+            return compile(method, targetClass);
+        }
+        return rule.requiredMask();
+    }
+
+    static long compile(Method method, Class<?> targetClass) {
+        Method specific = AopUtils.getMostSpecificMethod(method, targetClass);
+        PreAuthorize annotation = AnnotatedElementUtils.findMergedAnnotation(specific, PreAuthorize.class);
+        if (annotation == null) {
+            annotation = AnnotatedElementUtils.findMergedAnnotation(targetClass, PreAuthorize.class);
+        }
+        return annotation == null ? NOT_ANNOTATED : compile(annotation.value());
+    }
+
+    /**
+     * @return the roles, any of which grants access, or {@link #NOT_COMPILED}
+     */
+    static long compile(String expression) {
+        Matcher check = CHECK.matcher(expression);
+        if (!check.matches()) {
+            return NOT_COMPILED;
+        }
+        boolean any = check.group(1) != null;
+        boolean role = "Role".equals(check.group(2));
+        String[] arguments = check.group(3).split(",", -1);
+        if (!any && arguments.length != 1) {
+            return NOT_COMPILED;
+        }
+        long required = 0;
+        for (String argument : arguments) {
+            Matcher literal = ARGUMENT.matcher(argument);
+            if (!literal.matches()) {
+                return NOT_COMPILED;
+            }
+            // hasRole('USER') and hasRole('ROLE_USER') are the same check
+            String name = literal.group(1);
+            String authority = role && !name.startsWith(RoleAuthorities.ROLE_PREFIX)
+                    ? RoleAuthorities.ROLE_PREFIX + name : name;
+            Role known = RoleAuthorities.role(authority);
+            if (known == null) {
+                // authorities outside the Role enum can't be expressed as a mask
+                return NOT_COMPILED;
+            }
+            required |= RoleAuthorities.bit(known);
+        }
+        return required;
+    }
+
+    private static long roleMask(Authentication authentication) {
+        if (authentication instanceof JwtAuthentication jwt) {
+            return jwt.roleMask();
+        }
+        if (authentication == null || !authentication.isAuthenticated()) {
+            return 0;
+        }
+        long mask = 0;
+        for (GrantedAuthority authority : authentication.getAuthorities()) {
+            mask |= RoleAuthorities.authorityMask(authority.getAuthority());
+        }
+        return mask;
+    }
+}
@@ -0,0 +1,97 @@
+package com.gab.authservice.authz;
+
+import com.gab.authservice.entity.Role;
+import org.springframework.security.access.hierarchicalroles.RoleHierarchy;
+import org.springframework.security.access.hierarchicalroles.RoleHierarchyImpl;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Authorities of each {@link Role}, with the role hierarchy applied, computed once.
+ * <p>
+ * Every role also gets a bit in a {@code long} mask; a role's mask has the bits of all roles it implies,
+ * so "may a USER-or-ADMIN route be called?" is {@code (roleMask & requiredMask) != 0}.
+ * </p>
+ */
+public final class RoleAuthorities {
+
+    public static final String ROLE_PREFIX = "ROLE_";
+
+    /** ADMIN can do everything USER can. */
+    public static final RoleHierarchy HIERARCHY = RoleHierarchyImpl.fromHierarchy("ROLE_ADMIN > ROLE_USER");
+
+    private static final Map<Role, List<GrantedAuthority>> AUTHORITIES = new EnumMap<>(Role.class);
+    private static final Map<Role, Long> MASKS = new EnumMap<>(Role.class);
+
+    static {
+        for (Role role : Role.values()) {
+            Collection<? extends GrantedAuthority> reachable = HIERARCHY.getReachableGrantedAuthorities(
+                    List.of(new SimpleGrantedAuthority(ROLE_PREFIX + role.name())));
+            long mask = 0;
+            for (GrantedAuthority authority : reachable) {
+                Role implied = role(authority.getAuthority());
+                if (implied != null) {
+                    mask |= bit(implied);
+                }
+            }
+            AUTHORITIES.put(role, List.copyOf(reachable));
+            MASKS.put(role, mask);
+        }
+    }
+
+    private RoleAuthorities() {
+    }
+
+    /**
+     * Shared, immutable authorities for a role claim. Roles this service doesn't know get just {@code ROLE_<role>}.
+     */
+    public static List<GrantedAuthority> authorities(String roleClaim) {
+        Role role = roleClaim == null ? null : lookup(roleClaim);
+        if (role == null) {
+            return roleClaim == null ? List.of() : List.of(new SimpleGrantedAuthority(ROLE_PREFIX + roleClaim));
+        }
+        return AUTHORITIES.get(role);
+    }
+
+    /**
+     * Mask of the role claim including implied roles; 0 for unknown roles.
+     */
+    public static long mask(String roleClaim) {
+        Role role = roleClaim == null ? null : lookup(roleClaim);
+        return role == null ? 0 : MASKS.get(role);
+    }
+
+    /**
+     * Mask of a granted authority such as {@code ROLE_ADMIN}, including implied roles; 0 for anything else.
+     */
+    public static long authorityMask(String authority) {
+        Role role = role(authority);
+        return role == null ? 0 : MASKS.get(role);
+    }
+
+    /**
+     * Bit of exactly this role, without the roles it implies.
+     */
+    public static long bit(Role role) {
+        return 1L << role.ordinal();
+    }
+
+    static Role role(String authority) {
+        return authority != null && authority.startsWith(ROLE_PREFIX) ? lookup(authority.substring(ROLE_PREFIX.length())) : null;
+    }
+
+    private static Role lookup(String name) {
+        // Role.valueOf throws and fills a stack trace for unknown names
+        for (Role role : Role.values()) {
+            if (role.name().equals(name)) {
+                return role;
+            }
+        }
+        return null;
+    }
+}
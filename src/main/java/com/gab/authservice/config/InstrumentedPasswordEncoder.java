@@ -0,0 +1,64 @@
+package com.gab.authservice.config;
+
+import com.gab.authservice.jfr.PasswordHashEvent;
+import com.gab.authservice.timing.ServerTiming;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * Wraps the real encoder and records every hash/compare as a {@link PasswordHashEvent},
+ * since bcrypt is by design the slowest step of signup and login. Compares are also timed as the
+ * {@code password} Server-Timing phase (hashes already are, as {@code hash}, by the signup code).
+ */
+public class InstrumentedPasswordEncoder implements PasswordEncoder {
+
+    private final PasswordEncoder delegate;
+    private final String algorithm;
+
+    public InstrumentedPasswordEncoder(PasswordEncoder delegate, String algorithm) {
+        this.delegate = delegate;
+        this.algorithm = algorithm;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        PasswordHashEvent event = new PasswordHashEvent();
+        event.begin();
+        String outcome = "failed";
+        try {
+            String encoded = delegate.encode(rawPassword);
+            outcome = "encoded";
+            return encoded;
+        } finally {
+            commit(event, "encode", outcome);
+        }
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        PasswordHashEvent event = new PasswordHashEvent();
+        event.begin();
+        String outcome = "failed";
+        try (ServerTiming.Phase ignored = ServerTiming.phase("password")) {
+            boolean matches = delegate.matches(rawPassword, encodedPassword);
+            outcome = matches ? "matched" : "mismatched";
+            return matches;
+        } finally {
+            commit(event, "matches", outcome);
+        }
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    private void commit(PasswordHashEvent event, String operation, String outcome) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.algorithm = algorithm;
+            event.outcome = outcome;
+            event.commit();
+        }
+    }
+}
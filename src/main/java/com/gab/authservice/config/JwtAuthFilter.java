@@ -1,6 +1,9 @@
 package com.gab.authservice.config;
 
 import com.gab.authservice.service.JwtService;
+import com.gab.authservice.service.VerifiedTokenCache;
+import com.gab.authservice.timing.ServerTiming;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -8,21 +11,19 @@ import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 
 import org.springframework.lang.NonNull;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.List;
+import java.util.function.Function;
 
 @Component
 @RequiredArgsConstructor
 public class JwtAuthFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
+    private final VerifiedTokenCache verifiedTokenCache;
 
     /**
      * Filters incoming HTTP requests to handle JWT-based authentication.
@@ -53,7 +54,6 @@ public class JwtAuthFilter extends OncePerRequestFilter {
 
         final String authHeader = request.getHeader("Authorization");
         final String token;
-        final String email;
 
         // if no token, or something wrong with it, continue to next filter
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
@@ -62,7 +62,22 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         }
 
         token = authHeader.substring(7); // strip "Bearer "
-        email = jwtService.extractUsername(token);
+        try (ServerTiming.Phase ignored = ServerTiming.phase("jwt-filter")) {
+            authenticate(token);
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    private void authenticate(String token) {
+        VerifiedTokenCache.Entry verified = verifiedTokenCache.get(token);
+        if (verified == null) {
+            // throws for invalid or expired tokens
+            Claims claims = jwtService.extractClaim(token, Function.identity());
+            verified = verifiedTokenCache.put(token, claims.getSubject(), claims.get("role", String.class),
+                    claims.get(JwtService.TENANT_CLAIM, String.class), claims.getExpiration());
+        }
+        final String email = verified.email();
 
         /**
          * SecurityContextHolder.getContext().getAuthentication() is used by @PreAuthorize annotation internally, hence we need to set that.
@@ -77,22 +92,8 @@ public class JwtAuthFilter extends OncePerRequestFilter {
          * allow access;
          */
         if (email != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            if (jwtService.validateToken(token)) {
-                String role = jwtService.extractRole(token);
-
-                // Convert role string to SimpleGrantedAuthority (expected by UsernamePasswordAuthenticationToken's superclass)
-                List<SimpleGrantedAuthority> authorities =
-                        List.of(new SimpleGrantedAuthority("ROLE_" + role)); // Spring requires "ROLE_" prefix
-
-                UsernamePasswordAuthenticationToken authToken =
-                        new UsernamePasswordAuthenticationToken(email, null, authorities); // roles can go here
-                authToken.setDetails(
-                        new WebAuthenticationDetailsSource().buildDetails(request)
-                );
-                SecurityContextHolder.getContext().setAuthentication(authToken);
-            }
+            // shared per token: role authorities (ADMIN implies USER) were resolved when the token was first seen
+            SecurityContextHolder.getContext().setAuthentication(verified.authentication());
         }
-
-        filterChain.doFilter(request, response);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,82 @@
+package com.gab.authservice.config;
+
+import com.gab.authservice.dto.AuthenticationResponse;
+import com.gab.authservice.dto.LoginRequest;
+import com.gab.authservice.dto.SignupRequest;
+import com.gab.authservice.entity.RefreshToken;
+import com.gab.authservice.entity.Role;
+import com.gab.authservice.entity.User;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+
+/**
+ * Reflection and resource hints for the GraalVM native image (built with {@code ./mvnw -Pnative native:compile}).
+ * <p>
+ * Spring AOT already covers beans, JPA entity scanning and request bodies, but a few things are
+ * looked up by name at runtime and would otherwise be missing from the native executable:
+ * jjwt instantiates its implementation classes reflectively and discovers Jackson through
+ * {@code ServiceLoader}, the RSA keys are read from the classpath in the local profile, and
+ * the AWS SDK loads its interceptors and endpoint rules as resources.
+ * </p>
+ */
+public class NativeRuntimeHints implements RuntimeHintsRegistrar {
+
+    // Classes jjwt 0.11.x creates through io.jsonwebtoken.lang.Classes.newInstance(...)
+    private static final List<String> JJWT_REFLECTIVE_TYPES = List.of(
+            "io.jsonwebtoken.impl.DefaultJwtBuilder",
+            "io.jsonwebtoken.impl.DefaultJwtParserBuilder",
+            "io.jsonwebtoken.impl.DefaultJwtParser",
+            "io.jsonwebtoken.impl.DefaultClaims",
+            "io.jsonwebtoken.impl.DefaultHeader",
+            "io.jsonwebtoken.impl.DefaultJwsHeader",
+            "io.jsonwebtoken.impl.compression.DeflateCompressionCodec",
+            "io.jsonwebtoken.impl.compression.GzipCompressionCodec",
+            "io.jsonwebtoken.jackson.io.JacksonSerializer",
+            "io.jsonwebtoken.jackson.io.JacksonDeserializer"
+    );
+
+    @Override
+    public void registerHints(RuntimeHints hints, @Nullable ClassLoader classLoader) {
+        JJWT_REFLECTIVE_TYPES.forEach(type -> hints.reflection().registerType(
+                TypeReference.of(type),
+                MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                MemberCategory.INVOKE_PUBLIC_METHODS));
+
+        hints.resources()
+                .registerPattern("META-INF/services/io.jsonwebtoken.*")
+                // local profile keys (jwt.private-key-path / jwt.public-key-path)
+                .registerPattern("keys/*.pem");
+
+        // Lombok-generated accessors and builders on entities/DTOs, used by Hibernate and Jackson
+        for (Class<?> type : List.of(User.class, RefreshToken.class, Role.class,
+                LoginRequest.class, SignupRequest.class, AuthenticationResponse.class)) {
+            hints.reflection().registerType(type,
+                    MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                    MemberCategory.INVOKE_DECLARED_METHODS,
+                    MemberCategory.DECLARED_FIELDS);
+        }
+
+        // PostgreSQL driver is resolved from spring.datasource.driver-class-name
+        hints.reflection().registerType(TypeReference.of("org.postgresql.Driver"),
+                MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+        hints.resources().registerPattern("META-INF/services/java.sql.Driver");
+
+        // AWS SDK (Secrets Manager client used in the prod profile)
+        hints.resources()
+                .registerPattern("software/amazon/awssdk/global/handlers/execution.interceptors")
+                .registerPattern("software/amazon/awssdk/services/secretsmanager/execution.interceptors")
+                .registerPattern("software/amazon/awssdk/services/secretsmanager/endpoints/internal/*")
+                .registerPattern("software/amazon/awssdk/services/secretsmanager/*.json");
+        hints.reflection().registerType(
+                TypeReference.of("software.amazon.awssdk.http.urlconnection.UrlConnectionSdkHttpService"),
+                MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+        hints.reflection().registerType(
+                TypeReference.of("software.amazon.awssdk.http.apache.ApacheSdkHttpService"),
+                MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+    }
+}
@@ -0,0 +1,72 @@
+package com.gab.authservice.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sends read-only transactions to read replicas and everything else to the primary.
+ * <p>
+ * Only active when {@code auth.datasource.replicas.urls} is set (comma-separated JDBC urls, same
+ * credentials as {@code spring.datasource.*}). The repositories are {@code @Transactional(readOnly = true)}
+ * by default, so lookups such as {@code findByEmail}, {@code existsByEmail} and {@code findByTokenWithUser}
+ * are routed to a replica while saves and deletes stay on the primary.
+ * The {@link LazyConnectionDataSourceProxy} defers fetching a physical connection until the first
+ * statement, by which point the transaction's read-only flag is known.
+ * </p>
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "auth.datasource.replicas", name = "urls")
+public class ReadReplicaConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(
+            DataSourceProperties properties,
+            HikariDataSource primaryDataSource,
+            @Value("${auth.datasource.replicas.urls}") List<String> replicaUrls,
+            @Value("${auth.datasource.replicas.maximum-pool-size:10}") int maximumPoolSize,
+            @Value("${auth.datasource.replicas.failure-cooldown:30s}") Duration failureCooldown) {
+
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < replicaUrls.size(); i++) {
+            HikariDataSource replica = properties.initializeDataSourceBuilder()
+                    .type(HikariDataSource.class)
+                    .url(replicaUrls.get(i).trim())
+                    .build();
+            replica.setPoolName("replica-" + i);
+            replica.setMaximumPoolSize(maximumPoolSize);
+            replica.setReadOnly(true);
+            // don't fail startup if a replica is down, it is skipped until it comes back
+            replica.setInitializationFailTimeout(-1);
+            replicas.add(replica);
+        }
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas, failureCooldown);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaRoutingDataSource replicaRoutingDataSource) {
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(primaryDataSource);
+        proxy.setReadOnlyDataSource(replicaRoutingDataSource);
+        return proxy;
+    }
+}
@@ -0,0 +1,35 @@
+package com.gab.authservice.config;
+
+import java.util.function.Supplier;
+
+/**
+ * Per-thread override for read-only routing.
+ * <p>
+ * Read-only transactions normally go to a replica (see {@link ReadReplicaConfig}). Code that must
+ * see its own recent writes, e.g. a login right after signup while the replica may still lag,
+ * wraps the lookup in {@link #onPrimary(Supplier)}. Without replicas configured this is a no-op.
+ * </p>
+ */
+public final class ReadRouting {
+
+    private static final ThreadLocal<Boolean> PRIMARY_FORCED = new ThreadLocal<>();
+
+    private ReadRouting() {
+    }
+
+    public static <T> T onPrimary(Supplier<T> action) {
+        if (isPrimaryForced()) {
+            return action.get();
+        }
+        PRIMARY_FORCED.set(Boolean.TRUE);
+        try {
+            return action.get();
+        } finally {
+            PRIMARY_FORCED.remove();
+        }
+    }
+
+    public static boolean isPrimaryForced() {
+        return PRIMARY_FORCED.get() != null;
+    }
+}
@@ -0,0 +1,109 @@
+package com.gab.authservice.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Read-only side of the datasource, used as {@code LazyConnectionDataSourceProxy#setReadOnlyDataSource}.
+ * <p>
+ * Hands out connections from the replica pools in round-robin order. A replica that fails to
+ * hand out a connection is skipped for {@code failureCooldown} and the next one is tried; if no
+ * replica is available (or the current thread asked for read-your-writes via {@link ReadRouting})
+ * the connection comes from the primary instead.
+ * </p>
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+
+    private final DataSource primary;
+    private final List<DataSource> replicas;
+    private final long failureCooldownNanos;
+
+    private final AtomicInteger next = new AtomicInteger();
+    // System.nanoTime() until which replica i is considered down (0 = healthy)
+    private final AtomicLongArray downUntil;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<? extends DataSource> replicas, Duration failureCooldown) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.failureCooldownNanos = failureCooldown.toNanos();
+        this.downUntil = new AtomicLongArray(this.replicas.size());
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return route(DataSource::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return route(dataSource -> dataSource.getConnection(username, password));
+    }
+
+    private Connection route(ConnectionSource source) throws SQLException {
+        if (ReadRouting.isPrimaryForced()) {
+            return source.open(primary);
+        }
+
+        int size = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), size);
+        long now = System.nanoTime();
+        for (int i = 0; i < size; i++) {
+            int index = (start + i) % size;
+            long until = downUntil.get(index);
+            if (until != 0 && now - until < 0) {
+                continue;
+            }
+            try {
+                Connection connection = source.open(replicas.get(index));
+                downUntil.set(index, 0);
+                return connection;
+            } catch (SQLFeatureNotSupportedException e) {
+                // e.g. Hikari pools don't take per-call credentials; that's not the replica being down
+                throw e;
+            } catch (SQLException e) {
+                downUntil.set(index, now + failureCooldownNanos);
+                log.warn("Read replica #{} unavailable, skipping it for {} ms: {}",
+                        index, Duration.ofNanos(failureCooldownNanos).toMillis(), e.getMessage());
+            }
+        }
+
+        log.debug("No healthy read replica, routing read to primary");
+        return source.open(primary);
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (DataSource replica : replicas) {
+            if (replica instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    /**
+     * The replica pools, e.g. to pre-fill them at startup.
+     */
+    public List<DataSource> replicas() {
+        return replicas;
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSource {
+        Connection open(DataSource dataSource) throws SQLException;
+    }
+
+    boolean isHealthy(int replicaIndex) {
+        long until = downUntil.get(replicaIndex);
+        return until == 0 || System.nanoTime() - until >= 0;
+    }
+}
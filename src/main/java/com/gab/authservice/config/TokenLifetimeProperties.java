@@ -0,0 +1,54 @@
+package com.gab.authservice.config;
+
+import com.gab.authservice.entity.Role;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Access token lifetimes, {@code auth.token.lifetime.*}:
+ * <pre>
+ * auth.token.lifetime.default-ttl=60s
+ * auth.token.lifetime.roles.ADMIN=60s
+ * auth.token.lifetime.clients.kiosk=30s   # matched against the X-Client-Id header; can only shorten
+ * auth.token.lifetime.refresh-ahead=0.05
+ * auth.token.lifetime.refresh-jitter=0.05
+ * </pre>
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties("auth.token.lifetime")
+public class TokenLifetimeProperties {
+
+    /**
+     * Lifetime when neither the role nor the client has its own.
+     */
+    private Duration defaultTtl = Duration.ofSeconds(60);
+
+    private Map<Role, Duration> roles = new EnumMap<>(Role.class);
+
+    /**
+     * Caps on the role/default lifetime by {@code X-Client-Id}. The header is not authenticated, so these
+     * can only shorten a lifetime.
+     */
+    private Map<String, Duration> clients = new HashMap<>();
+
+    /**
+     * Fraction of the lifetime left when clients are told to refresh. Every bit of it is extra refreshes compared
+     * to refreshing at expiry, so it only covers network latency and clock skew.
+     */
+    private double refreshAhead = 0.05;
+
+    /**
+     * Up to this fraction of the lifetime is randomly taken off the refresh hint,
+     * so clients that logged in together don't refresh together.
+     */
+    private double refreshJitter = 0.05;
+}
@@ -0,0 +1,74 @@
+package com.gab.authservice.controller;
+
+import com.gab.authservice.dto.UserPage;
+import com.gab.authservice.invalidation.InvalidationBus;
+import com.gab.authservice.invalidation.InvalidationEvent;
+import com.gab.authservice.service.UserExportService;
+import com.gab.authservice.service.UserService;
+import com.gab.authservice.shard.ReshardingService;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/admin")
+@RequiredArgsConstructor
+@PreAuthorize("hasRole('ADMIN')")
+public class AdminController {
+
+    private final InvalidationBus invalidationBus;
+    private final UserService userService;
+    private final UserExportService userExportService;
+    // present with auth.datasource.shards.urls set
+    private final Optional<ReshardingService> reshardingService;
+
+    /**
+     * Makes every node drop its cached signing keys and read them again (after rotating the keys in
+     * AWS Secrets Manager or on the classpath). With {@code tenant}, only that tenant's keys are reloaded.
+     */
+    @PostMapping("/keys/reload")
+    public ResponseEntity<String> reloadKeys(@RequestParam(required = false) String tenant) {
+        invalidationBus.publish(InvalidationEvent.Type.KEYS_ROTATED, tenant);
+        return ResponseEntity.ok("Key reload broadcast");
+    }
+
+    /**
+     * One page of users in email order. Follow {@code next} (as {@code after}) until it is null.
+     */
+    @GetMapping("/users")
+    public UserPage listUsers(@RequestParam(required = false) String after,
+                              @RequestParam(defaultValue = "50") int limit) {
+        return userService.listUsers(after, limit);
+    }
+
+    /**
+     * All users as NDJSON, streamed from a database cursor.
+     */
+    @GetMapping("/users/export")
+    public void exportUsers(HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"users.ndjson\"");
+        userExportService.exportUsers(response.getOutputStream());
+    }
+
+    /**
+     * Moves users that aren't on the shard owning them (after adding shards) to it. Repeat until {@code moved}
+     * is 0. 404 without sharding.
+     */
+    @PostMapping("/shards/rebalance")
+    public ResponseEntity<ReshardingService.Result> rebalanceShards() {
+        return reshardingService.map(service -> ResponseEntity.ok(service.rebalance()))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+}
@@ -1,22 +1,34 @@
 package com.gab.authservice.controller;
 
+import com.gab.authservice.audit.AuditEvent;
+import com.gab.authservice.audit.AuditEventPipeline;
+import com.gab.authservice.cwt.TokenFormat;
 import com.gab.authservice.dto.AuthenticationResponse;
 import com.gab.authservice.dto.LoginRequest;
 import com.gab.authservice.dto.SignupRequest;
 import com.gab.authservice.entity.RefreshToken;
 import com.gab.authservice.entity.User;
+import com.gab.authservice.invalidation.InvalidationBus;
+import com.gab.authservice.invalidation.InvalidationEvent;
 import com.gab.authservice.service.AuthService;
 import com.gab.authservice.service.JwtService;
+import com.gab.authservice.service.RefreshCoalescer;
 import com.gab.authservice.service.RefreshTokenService;
+import com.gab.authservice.service.TokenLifetimePolicy;
 import com.gab.authservice.service.UserService;
+import com.gab.authservice.timing.ServerTiming;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Map;
 
 @RestController
@@ -24,11 +36,18 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class AuthController {
 
+    // optional, selects a per-client token lifetime (auth.token.lifetime.clients.*)
+    static final String CLIENT_ID_HEADER = "X-Client-Id";
+
     private final AuthService authService;
     private final JwtService jwtService;
     private final RefreshTokenService refreshTokenService;
     private final AuthenticationManager authenticationManager;
     private final UserService userService;
+    private final InvalidationBus invalidationBus;
+    private final AuditEventPipeline auditEventPipeline;
+    private final RefreshCoalescer refreshCoalescer;
+    private final TokenLifetimePolicy tokenLifetimePolicy;
 
     @PostMapping("/signup")
     public ResponseEntity<String> signup(@RequestBody @Valid SignupRequest request) {
@@ -47,39 +66,78 @@ public class AuthController {
         return ResponseEntity.ok(jwtService.getPublicKeyPEM());
     }
 
-    @PostMapping("/login")
-    public AuthenticationResponse login(@RequestBody LoginRequest request) {
+    @GetMapping("/jwks")
+    public Map<String, Object> getJwks() {
+        return jwtService.getJwks();
+    }
 
-        Authentication auth = authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(request.getEmail(), request.getPassword()));
+    @PostMapping("/login")
+    public AuthenticationResponse login(@RequestBody LoginRequest request,
+                                        @RequestHeader(value = CLIENT_ID_HEADER, required = false) String clientId,
+                                        @RequestHeader(value = TokenFormat.HEADER, required = false) String tokenFormat,
+                                        HttpServletRequest httpRequest) {
+
+        Authentication auth;
+        try (ServerTiming.Phase ignored = ServerTiming.phase("authenticate")) {
+            auth = authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(request.getEmail(), request.getPassword()));
+        } catch (AuthenticationException e) {
+            auditEventPipeline.record(AuditEvent.Type.LOGIN_FAILURE, request.getEmail(), httpRequest.getRemoteAddr());
+            throw e;
+        }
         String userName = auth.getName();
-        User user = userService.getUserByUserName(userName);
-        String accessToken = jwtService.generateToken(user);
-        RefreshToken refreshToken = refreshTokenService.createRefreshToken(user);
-        return new AuthenticationResponse(accessToken, refreshToken.getToken());
+        User user;
+        try (ServerTiming.Phase ignored = ServerTiming.phase("user")) {
+            user = userService.getUserByUserName(userName);
+        }
+        Duration ttl = tokenLifetimePolicy.accessTokenTtl(user, clientId);
+        TokenFormat format = jwtService.tokenFormat(tokenFormat);
+        String accessToken = format == TokenFormat.CWT
+                ? jwtService.generateCompactToken(user, ttl)
+                : jwtService.generateToken(user, ttl);
+        String compactAccessToken = format == TokenFormat.BOTH ? jwtService.generateCompactToken(user, ttl) : null;
+        RefreshToken refreshToken;
+        try (ServerTiming.Phase ignored = ServerTiming.phase("refresh-token")) {
+            refreshToken = refreshTokenService.createRefreshToken(user);
+        }
+        auditEventPipeline.record(AuditEvent.Type.LOGIN_SUCCESS, userName, httpRequest.getRemoteAddr());
+        return new AuthenticationResponse(accessToken, refreshToken.getToken(),
+                ttl.toSeconds(), tokenLifetimePolicy.refreshAfterSeconds(ttl.toSeconds()), compactAccessToken);
     }
 
     @PostMapping("/refresh")
-    public AuthenticationResponse refreshToken(@RequestBody Map<String, String> request) {
+    public AuthenticationResponse refreshToken(@RequestBody Map<String, String> request,
+                                               @RequestHeader(value = CLIENT_ID_HEADER, required = false) String clientId,
+                                               @RequestHeader(value = TokenFormat.HEADER, required = false) String tokenFormat,
+                                               HttpServletRequest httpRequest) {
 
         String refreshToken = request.get("refreshToken");
 
-        RefreshToken token = refreshTokenService
-                .verifyExpiration(refreshToken);
-
-        User user = token.getUser();
-        String newAccessToken = jwtService.generateToken(user);
-
+        RefreshCoalescer.Result refreshed;
+        try {
+            refreshed = refreshCoalescer.refresh(refreshToken, clientId, jwtService.tokenFormat(tokenFormat));
+        } catch (RuntimeException e) {
+            auditEventPipeline.record(AuditEvent.Type.REFRESH_FAILURE, null, httpRequest.getRemoteAddr());
+            throw e;
+        }
+        auditEventPipeline.record(AuditEvent.Type.REFRESH, refreshed.getEmail(), httpRequest.getRemoteAddr());
+
+        // a replayed result has less time left than a fresh one
+        long expiresIn = Math.max(0, Duration.between(Instant.now(), refreshed.getExpiresAt()).toSeconds());
         return new AuthenticationResponse(
-                newAccessToken,
-                refreshToken
+                refreshed.getAccessToken(),
+                refreshToken,
+                expiresIn,
+                tokenLifetimePolicy.refreshAfterSeconds(expiresIn),
+                refreshed.getCompactAccessToken()
         );
     }
 
     @PostMapping("/logout")
-    public void logout(Authentication authentication) {
+    public void logout(Authentication authentication, HttpServletRequest httpRequest) {
         String email = authentication.getName(); //
-        User user = userService.getUserByUserName(email);
-        refreshTokenService.deleteByUser(user);
+        refreshTokenService.deleteByUserEmail(email);
+        invalidationBus.publish(InvalidationEvent.Type.USER_LOGGED_OUT, email);
+        auditEventPipeline.record(AuditEvent.Type.LOGOUT, email, httpRequest.getRemoteAddr());
     }
 
 
@@ -0,0 +1,278 @@
+package com.gab.authservice.cwt;
+
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORGenerator;
+import com.fasterxml.jackson.dataformat.cbor.CBORParser;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.UnsupportedJwtException;
+import io.jsonwebtoken.security.SignatureException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.util.Base64;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Compact access tokens: CBOR Web Tokens (RFC 8392) in a COSE_Sign1 envelope (RFC 9052), signed with RS256
+ * (RSASSA-PKCS1-v1_5 with SHA-256, COSE algorithm -257).
+ * <p>
+ * The claims and key are the ones of the JWT; what goes away is the JSON header and payload and two of the
+ * three Base64 passes. On the wire the token is {@code base64url(COSE_Sign1)}, which contains no {@code '.'}
+ * and so can't be mistaken for a JWT ({@link #isCwt(String)}).
+ * </p>
+ * Registered claims use their integer labels (iss 1, sub 2, aud 3, exp 4, nbf 5, iat 6, jti 7), private ones
+ * ({@code role}, {@code tid}) their name. Claim values are text or integers.
+ */
+public final class CwtCodec {
+
+    static final int COSE_SIGN1_TAG = 18;
+    static final int ALG_RS256 = -257;
+
+    private static final int HEADER_ALG = 1;
+    private static final int HEADER_KID = 4;
+    private static final String[] LABELS = {null, "iss", "sub", "aud", "exp", "nbf", "iat", "jti"};
+    private static final String SIGNATURE_CONTEXT = "Signature1";
+    private static final String JCA_ALGORITHM = "SHA256withRSA";
+    private static final byte[] NO_EXTERNAL_AAD = new byte[0];
+
+    // thread-safe, creates one generator/parser per call
+    private static final CBORFactory CBOR = new CBORFactory();
+
+    private CwtCodec() {
+    }
+
+    public static boolean isCwt(String token) {
+        return token.indexOf('.') < 0;
+    }
+
+    /**
+     * @param claims claim name to {@code String} or integer value; {@code null} values are left out
+     */
+    public static String sign(Map<String, Object> claims, String keyId, PrivateKey key) {
+        byte[] protectedHeader = encode(g -> {
+            g.writeStartObject(null, 2);
+            g.writeFieldId(HEADER_ALG);
+            g.writeNumber(ALG_RS256);
+            g.writeFieldId(HEADER_KID);
+            g.writeBinary(keyId.getBytes(StandardCharsets.UTF_8));
+            g.writeEndObject();
+        });
+        byte[] payload = encode(g -> writeClaims(g, claims));
+        byte[] signature;
+        try {
+            Signature signer = Signature.getInstance(JCA_ALGORITHM);
+            signer.initSign(key);
+            signer.update(sigStructure(protectedHeader, payload));
+            signature = signer.sign();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to sign CWT", e);
+        }
+        byte[] cose = encode(g -> {
+            g.writeTag(COSE_SIGN1_TAG);
+            g.writeStartArray(null, 4);
+            g.writeBinary(protectedHeader);
+            g.writeStartObject(null, 0);
+            g.writeEndObject();
+            g.writeBinary(payload);
+            g.writeBinary(signature);
+            g.writeEndArray();
+        });
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cose);
+    }
+
+    /**
+     * Decodes the token, asks {@code keyResolver} for the key matching its (not yet verified) claims, and checks
+     * the signature and expiry.
+     *
+     * @throws MalformedJwtException if the token is not a COSE_Sign1 CWT
+     * @throws UnsupportedJwtException if it isn't signed with RS256
+     * @throws SignatureException if the signature doesn't match
+     * @throws ExpiredJwtException if {@code exp} has passed
+     */
+    public static Claims verify(String token, Function<Claims, Key> keyResolver) {
+        byte[] cose;
+        try {
+            cose = Base64.getUrlDecoder().decode(token);
+        } catch (IllegalArgumentException e) {
+            throw new MalformedJwtException("CWT is not base64url", e);
+        }
+
+        byte[] protectedHeader;
+        byte[] payload;
+        byte[] signature;
+        try (CBORParser parser = CBOR.createParser(cose)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY || parser.getCurrentTag() != COSE_SIGN1_TAG) {
+                throw new MalformedJwtException("Not a COSE_Sign1 structure");
+            }
+            protectedHeader = nextBinary(parser);
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new MalformedJwtException("Missing COSE unprotected header");
+            }
+            parser.skipChildren();
+            payload = nextBinary(parser);
+            signature = nextBinary(parser);
+            if (parser.nextToken() != JsonToken.END_ARRAY) {
+                throw new MalformedJwtException("Trailing data in COSE_Sign1");
+            }
+        } catch (IOException e) {
+            throw new MalformedJwtException("Malformed CWT", e);
+        }
+
+        checkAlgorithm(protectedHeader);
+        Claims claims = readClaims(payload);
+        Key key = keyResolver.apply(claims);
+        boolean valid;
+        try {
+            Signature verifier = Signature.getInstance(JCA_ALGORITHM);
+            verifier.initVerify((PublicKey) key);
+            verifier.update(sigStructure(protectedHeader, payload));
+            valid = verifier.verify(signature);
+        } catch (GeneralSecurityException | ClassCastException e) {
+            throw new SignatureException("CWT signature could not be verified", e);
+        }
+        if (!valid) {
+            throw new SignatureException("CWT signature does not match");
+        }
+        Object exp = claims.get(Claims.EXPIRATION);
+        if (exp instanceof Long seconds && System.currentTimeMillis() > seconds * 1000) {
+            throw new ExpiredJwtException(null, claims, "CWT expired");
+        }
+        return claims;
+    }
+
+    // Sig_structure = ["Signature1", body_protected, external_aad, payload]
+    private static byte[] sigStructure(byte[] protectedHeader, byte[] payload) {
+        return encode(g -> {
+            g.writeStartArray(null, 4);
+            g.writeString(SIGNATURE_CONTEXT);
+            g.writeBinary(protectedHeader);
+            g.writeBinary(NO_EXTERNAL_AAD);
+            g.writeBinary(payload);
+            g.writeEndArray();
+        });
+    }
+
+    private static void writeClaims(CBORGenerator g, Map<String, Object> claims) throws IOException {
+        int size = 0;
+        for (Object value : claims.values()) {
+            if (value != null) {
+                size++;
+            }
+        }
+        g.writeStartObject(null, size);
+        for (Map.Entry<String, Object> claim : claims.entrySet()) {
+            Object value = claim.getValue();
+            if (value == null) {
+                continue;
+            }
+            int label = label(claim.getKey());
+            if (label > 0) {
+                g.writeFieldId(label);
+            } else {
+                g.writeFieldName(claim.getKey());
+            }
+            if (value instanceof String text) {
+                g.writeString(text);
+            } else if (value instanceof Long || value instanceof Integer) {
+                g.writeNumber(((Number) value).longValue());
+            } else {
+                throw new IllegalArgumentException("Unsupported claim value for " + claim.getKey());
+            }
+        }
+        g.writeEndObject();
+    }
+
+    private static Claims readClaims(byte[] payload) {
+        Claims claims = Jwts.claims();
+        try (CBORParser parser = CBOR.createParser(payload)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new MalformedJwtException("CWT claims are not a map");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = name(parser.currentName());
+                JsonToken value = parser.nextToken();
+                if (value == JsonToken.VALUE_STRING) {
+                    claims.put(name, parser.getText());
+                } else if (value == JsonToken.VALUE_NUMBER_INT) {
+                    claims.put(name, parser.getLongValue());
+                } else {
+                    throw new MalformedJwtException("Unsupported value for CWT claim " + name);
+                }
+            }
+        } catch (IOException e) {
+            throw new MalformedJwtException("Malformed CWT claims", e);
+        }
+        return claims;
+    }
+
+    private static void checkAlgorithm(byte[] protectedHeader) {
+        try (CBORParser parser = CBOR.createParser(protectedHeader)) {
+            if (parser.nextToken() == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    boolean alg = String.valueOf(HEADER_ALG).equals(parser.currentName());
+                    parser.nextToken();
+                    if (alg) {
+                        if (parser.currentToken() == JsonToken.VALUE_NUMBER_INT && parser.getIntValue() == ALG_RS256) {
+                            return;
+                        }
+                        break;
+                    }
+                    parser.skipChildren();
+                }
+            }
+        } catch (IOException e) {
+            throw new MalformedJwtException("Malformed COSE protected header", e);
+        }
+        throw new UnsupportedJwtException("CWT is not signed with RS256");
+    }
+
+    private static byte[] nextBinary(CBORParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.VALUE_EMBEDDED_OBJECT) {
+            throw new MalformedJwtException("Expected a byte string in COSE_Sign1");
+        }
+        return parser.getBinaryValue();
+    }
+
+    private static int label(String name) {
+        for (int i = 1; i < LABELS.length; i++) {
+            if (LABELS[i].equals(name)) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    // integer keys come back from the parser as their decimal text
+    private static String name(String key) {
+        if (key.length() == 1 && key.charAt(0) >= '1' && key.charAt(0) < '1' + LABELS.length - 1) {
+            return LABELS[key.charAt(0) - '0'];
+        }
+        return key;
+    }
+
+    private static byte[] encode(CborWriter writer) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(128);
+        try (CBORGenerator generator = CBOR.createGenerator(out)) {
+            writer.write(generator);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to encode CBOR", e);
+        }
+        return out.toByteArray();
+    }
+
+    @FunctionalInterface
+    private interface CborWriter {
+        void write(CBORGenerator generator) throws IOException;
+    }
+}
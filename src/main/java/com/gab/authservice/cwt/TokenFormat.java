@@ -0,0 +1,29 @@
+package com.gab.authservice.cwt;
+
+/**
+ * Access token format a client asks for with the {@code X-Token-Format} header on login and refresh.
+ */
+public enum TokenFormat {
+    /** {@code jwt} or no header: a JWT in {@code accessToken}. */
+    JWT,
+    /** {@code cwt}: a CWT in {@code accessToken} instead. */
+    CWT,
+    /** {@code jwt+cwt}: a JWT in {@code accessToken} and a CWT in {@code compact_access_token}. */
+    BOTH;
+
+    public static final String HEADER = "X-Token-Format";
+
+    /**
+     * Unknown values fall back to {@link #JWT}, so old clients never get a token they can't read.
+     */
+    public static TokenFormat fromHeader(String value) {
+        if (value == null) {
+            return JWT;
+        }
+        return switch (value.trim().toLowerCase()) {
+            case "cwt" -> CWT;
+            case "jwt+cwt", "cwt+jwt" -> BOTH;
+            default -> JWT;
+        };
+    }
+}
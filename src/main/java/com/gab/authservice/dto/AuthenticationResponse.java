@@ -1,5 +1,7 @@
 package com.gab.authservice.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 
@@ -8,4 +10,21 @@ import lombok.Data;
 public class AuthenticationResponse {
     private String accessToken;
     private String refreshToken;
+
+    // seconds until the access token expires
+    @JsonProperty("expires_in")
+    private long expiresIn;
+
+    // seconds after which the client should call /auth/refresh (before expires_in, randomized per response)
+    @JsonProperty("refresh_after")
+    private long refreshAfter;
+
+    // CWT with the same claims as accessToken, only with X-Token-Format: jwt+cwt
+    @JsonProperty("compact_access_token")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String compactAccessToken;
+
+    public AuthenticationResponse(String accessToken, String refreshToken, long expiresIn, long refreshAfter) {
+        this(accessToken, refreshToken, expiresIn, refreshAfter, null);
+    }
 }
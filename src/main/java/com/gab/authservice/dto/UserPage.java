@@ -0,0 +1,15 @@
+package com.gab.authservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class UserPage {
+    private List<UserSummary> users;
+
+    // pass as ?after= to get the next page; null on the last page
+    private String next;
+}
@@ -0,0 +1,16 @@
+package com.gab.authservice.dto;
+
+import com.gab.authservice.entity.Role;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.UUID;
+
+// What admin endpoints expose about a user (never the password hash)
+@Data
+@AllArgsConstructor
+public class UserSummary {
+    private UUID id;
+    private String email;
+    private Role role;
+}
@@ -6,6 +6,7 @@ import jakarta.persistence.Table;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Column;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.ManyToOne;
 import lombok.*;
 
@@ -28,7 +29,8 @@ public class RefreshToken {
     @Column(nullable = false, unique = true)
     private String token;
 
-    @ManyToOne
+    // Lazy so plain token lookups don't drag the user along; use findByTokenWithUser when it's needed
+    @ManyToOne(fetch = FetchType.LAZY)
     private User user;
 
     private Instant expiryDate;
@@ -0,0 +1,116 @@
+package com.gab.authservice.invalidation;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Broadcasts {@link InvalidationEvent}s to every node and applies them to the local
+ * {@link InvalidationListener}s.
+ * <p>
+ * Events are applied locally right away and then handed to the {@link InvalidationTransport}.
+ * Remote events are de-duplicated by origin and sequence number. A jump in a node's sequence, or a
+ * transport reconnect, means notifications were missed, so all listeners are asked to resync.
+ * </p>
+ */
+@Slf4j
+@Component
+public class InvalidationBus implements InvalidationTransport.Receiver, DisposableBean {
+
+    private final InvalidationTransport transport;
+    private final ObjectProvider<InvalidationListener> listeners;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<String, Long> lastSequenceByOrigin = new ConcurrentHashMap<>();
+
+    public InvalidationBus(InvalidationTransport transport, ObjectProvider<InvalidationListener> listeners) {
+        this.transport = transport;
+        this.listeners = listeners;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        transport.start(this);
+    }
+
+    public void publish(InvalidationEvent.Type type, String key) {
+        InvalidationEvent event = new InvalidationEvent(type, key, nodeId, sequence.incrementAndGet());
+        dispatch(event);
+        try {
+            transport.publish(event.encode());
+        } catch (RuntimeException e) {
+            // Local state is already consistent; other nodes will pick this up as a sequence gap
+            log.warn("Failed to broadcast {} event: {}", type, e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(String payload) {
+        InvalidationEvent event;
+        try {
+            event = InvalidationEvent.decode(payload);
+        } catch (IllegalArgumentException e) {
+            log.warn("Ignoring invalidation message: {}", e.getMessage());
+            return;
+        }
+        if (nodeId.equals(event.getOrigin())) {
+            return;
+        }
+
+        // only the transport's listener thread calls this, so get-then-put is fine
+        long seq = event.getSequence();
+        Long previous = lastSequenceByOrigin.get(event.getOrigin());
+        if (previous != null && seq <= previous) {
+            return;
+        }
+        lastSequenceByOrigin.put(event.getOrigin(), seq);
+        if (previous != null && seq > previous + 1) {
+            log.info("Missed {} invalidation event(s) from node {}, resyncing", seq - previous - 1, event.getOrigin());
+            resyncAll();
+        }
+        dispatch(event);
+    }
+
+    @Override
+    public void onPossibleGap() {
+        resyncAll();
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    private void dispatch(InvalidationEvent event) {
+        listeners.orderedStream().forEach(listener -> {
+            try {
+                listener.onInvalidation(event);
+            } catch (RuntimeException e) {
+                log.error("Invalidation listener {} failed for {}", listener.getClass().getSimpleName(), event, e);
+            }
+        });
+    }
+
+    private void resyncAll() {
+        listeners.orderedStream().forEach(listener -> {
+            try {
+                listener.resync();
+            } catch (RuntimeException e) {
+                log.error("Invalidation listener {} failed to resync", listener.getClass().getSimpleName(), e);
+            }
+        });
+    }
+
+    @Override
+    public void destroy() {
+        transport.close();
+    }
+}
@@ -0,0 +1,42 @@
+package com.gab.authservice.invalidation;
+
+import lombok.Value;
+
+/**
+ * A cluster-wide "drop what you cached about X" message.
+ * <p>
+ * Encoded as {@code TYPE|origin|sequence|key} so it fits comfortably into a Postgres NOTIFY payload.
+ * {@code origin} is the publishing node, {@code sequence} increases by one per event on that node,
+ * which lets receivers notice missed events.
+ * </p>
+ */
+@Value
+public class InvalidationEvent {
+
+    public enum Type {
+        /** All refresh tokens of the user (key = email) were revoked. */
+        USER_LOGGED_OUT,
+        /** The user (key = email) was created or changed. */
+        USER_CHANGED,
+        /** The signing keys of a tenant (key = tenant id) or, without key, of all tenants were rotated. */
+        KEYS_ROTATED
+    }
+
+    Type type;
+    String key;
+    String origin;
+    long sequence;
+
+    public String encode() {
+        return type.name() + '|' + origin + '|' + sequence + '|' + (key == null ? "" : key);
+    }
+
+    public static InvalidationEvent decode(String payload) {
+        String[] parts = payload.split("\\|", 4);
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("Malformed invalidation event: " + payload);
+        }
+        String key = parts[3].isEmpty() ? null : parts[3];
+        return new InvalidationEvent(Type.valueOf(parts[0]), key, parts[1], Long.parseLong(parts[2]));
+    }
+}
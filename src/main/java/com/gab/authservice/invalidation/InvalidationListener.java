@@ -0,0 +1,18 @@
+package com.gab.authservice.invalidation;
+
+/**
+ * Implemented by beans holding node-local state that other nodes can make stale.
+ */
+public interface InvalidationListener {
+
+    /**
+     * Called for every event, local and remote. Must be cheap; it runs on the publishing thread
+     * for local events and on the transport's listener thread for remote ones.
+     */
+    void onInvalidation(InvalidationEvent event);
+
+    /**
+     * Events may have been missed (listener reconnected, sequence gap). Drop everything cached.
+     */
+    void resync();
+}
@@ -0,0 +1,26 @@
+package com.gab.authservice.invalidation;
+
+/**
+ * Moves encoded {@link InvalidationEvent}s between nodes. Delivery is best effort; transports
+ * report possible loss through {@link Receiver#onPossibleGap()}.
+ */
+public interface InvalidationTransport extends AutoCloseable {
+
+    void publish(String payload);
+
+    /**
+     * Starts delivering messages from all nodes (including this one) to the receiver.
+     */
+    void start(Receiver receiver);
+
+    @Override
+    void close();
+
+    interface Receiver {
+
+        void onMessage(String payload);
+
+        /** Called after the transport lost its subscription and reconnected. */
+        void onPossibleGap();
+    }
+}
@@ -0,0 +1,36 @@
+package com.gab.authservice.invalidation;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+
+/**
+ * Picks the invalidation transport: {@code auth.invalidation.transport=postgres} for multi-node
+ * deployments sharing one database, otherwise a local (single node) transport.
+ */
+@Configuration
+public class InvalidationTransportConfig {
+
+    @Bean(destroyMethod = "")
+    @ConditionalOnProperty(name = "auth.invalidation.transport", havingValue = "postgres")
+    public InvalidationTransport postgresInvalidationTransport(
+            JdbcTemplate jdbcTemplate,
+            @Value("${spring.datasource.url}") String url,
+            @Value("${spring.datasource.username}") String username,
+            @Value("${spring.datasource.password}") String password,
+            @Value("${auth.invalidation.channel:auth_invalidation}") String channel,
+            @Value("${auth.invalidation.poll-timeout:500ms}") Duration pollTimeout) {
+        return new PostgresInvalidationTransport(jdbcTemplate, url, username, password, channel, pollTimeout);
+    }
+
+    @Bean(destroyMethod = "")
+    @ConditionalOnMissingBean(InvalidationTransport.class)
+    public InvalidationTransport localInvalidationTransport() {
+        return new LocalInvalidationTransport();
+    }
+}
@@ -0,0 +1,20 @@
+package com.gab.authservice.invalidation;
+
+/**
+ * Single-node transport: nothing leaves the process. The bus already applies events locally,
+ * so this only exists to keep {@link InvalidationBus} transport-agnostic.
+ */
+public class LocalInvalidationTransport implements InvalidationTransport {
+
+    @Override
+    public void publish(String payload) {
+    }
+
+    @Override
+    public void start(Receiver receiver) {
+    }
+
+    @Override
+    public void close() {
+    }
+}
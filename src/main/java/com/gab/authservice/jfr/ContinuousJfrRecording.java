@@ -0,0 +1,70 @@
+package com.gab.authservice.jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Continuous flight recording ({@code auth.jfr.enabled=true}) with the JDK "default" settings plus
+ * {@code jfr/auth-events.jfc} from the jar.
+ * <p>
+ * Data is kept in a ring of {@code auth.jfr.max-age}/{@code auth.jfr.max-size} on disk and can be
+ * dumped at any time with {@code jcmd <pid> JFR.dump name=auth-continuous filename=auth.jfr};
+ * it is also dumped to {@code auth.jfr.dump-path} on exit.
+ * </p>
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "auth.jfr.enabled", havingValue = "true")
+public class ContinuousJfrRecording implements DisposableBean {
+
+    static final String RECORDING_NAME = "auth-continuous";
+    static final String SETTINGS = "jfr/auth-events.jfc";
+
+    private final Recording recording;
+
+    public ContinuousJfrRecording(@Value("${auth.jfr.max-age:6h}") Duration maxAge,
+                                  @Value("${auth.jfr.max-size:250MB}") DataSize maxSize,
+                                  @Value("${auth.jfr.dump-path:}") String dumpPath) throws IOException, ParseException {
+        recording = new Recording(settings());
+        recording.setName(RECORDING_NAME);
+        recording.setToDisk(true);
+        recording.setMaxAge(maxAge);
+        recording.setMaxSize(maxSize.toBytes());
+        if (!dumpPath.isBlank()) {
+            recording.setDumpOnExit(true);
+            recording.setDestination(Path.of(dumpPath));
+        }
+        recording.start();
+        log.info("Started continuous JFR recording '{}' (max age {}, max size {})", RECORDING_NAME, maxAge, maxSize);
+    }
+
+    static Map<String, String> settings() throws IOException, ParseException {
+        Map<String, String> settings = new HashMap<>(Configuration.getConfiguration("default").getSettings());
+        try (Reader reader = new InputStreamReader(new ClassPathResource(SETTINGS).getInputStream(), StandardCharsets.UTF_8)) {
+            settings.putAll(Configuration.create(reader).getSettings());
+        }
+        return settings;
+    }
+
+    @Override
+    public void destroy() {
+        recording.close();
+    }
+}
@@ -0,0 +1,25 @@
+package com.gab.authservice.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.gab.authservice.KeyLoad")
+@Label("Key Load")
+@Description("Loading of an RSA key from the classpath or AWS Secrets Manager")
+@Category({"Auth Service", "Keys"})
+public class KeyLoadEvent extends Event {
+
+    @Label("Key")
+    @Description("key-pair")
+    public String key;
+
+    @Label("Source")
+    @Description("local or aws")
+    public String source;
+
+    @Label("Outcome")
+    public String outcome;
+}
@@ -0,0 +1,27 @@
+package com.gab.authservice.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.gab.authservice.PasswordHash")
+@Label("Password Hash")
+@Description("Password hashing (signup) or hash comparison (login)")
+@Category({"Auth Service", "Passwords"})
+@StackTrace(false)
+public class PasswordHashEvent extends Event {
+
+    @Label("Operation")
+    @Description("encode or matches")
+    public String operation;
+
+    @Label("Algorithm")
+    public String algorithm;
+
+    @Label("Outcome")
+    @Description("encoded, matched or mismatched")
+    public String outcome;
+}
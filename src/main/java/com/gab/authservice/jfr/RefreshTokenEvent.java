@@ -0,0 +1,22 @@
+package com.gab.authservice.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.gab.authservice.RefreshToken")
+@Label("Refresh Token Operation")
+@Description("Create, verify or delete of refresh tokens in RefreshTokenService")
+@Category({"Auth Service", "Tokens"})
+@StackTrace(false)
+public class RefreshTokenEvent extends Event {
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Outcome")
+    public String outcome;
+}
@@ -0,0 +1,29 @@
+package com.gab.authservice.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.gab.authservice.TokenSign")
+@Label("Token Sign")
+@Description("Signing of an access token in JwtService")
+@Category({"Auth Service", "Tokens"})
+@StackTrace(false)
+public class TokenSignEvent extends Event {
+
+    @Label("Algorithm")
+    public String algorithm;
+
+    @Label("Format")
+    @Description("jwt or cwt")
+    public String format;
+
+    @Label("Role")
+    public String role;
+
+    @Label("Outcome")
+    public String outcome;
+}
@@ -0,0 +1,27 @@
+package com.gab.authservice.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.gab.authservice.TokenVerify")
+@Label("Token Verify")
+@Description("Signature check and claims parsing of an access token in JwtService")
+@Category({"Auth Service", "Tokens"})
+@StackTrace(false)
+public class TokenVerifyEvent extends Event {
+
+    @Label("Algorithm")
+    public String algorithm;
+
+    @Label("Format")
+    @Description("jwt or cwt")
+    public String format;
+
+    @Label("Outcome")
+    @Description("valid, expired or invalid")
+    public String outcome;
+}
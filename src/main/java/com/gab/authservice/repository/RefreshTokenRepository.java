@@ -2,12 +2,28 @@ package com.gab.authservice.repository;
 
 import com.gab.authservice.entity.RefreshToken;
 import org.springframework.data.jpa.repository.JpaRepository;
-import com.gab.authservice.entity.User;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import java.util.Optional;
 
+// read-only by default so lookups can be served by a read replica (see ReadReplicaConfig)
+@Transactional(readOnly = true)
 public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
 
-    Optional<RefreshToken> findByToken(String token);
+    // Single select joining the owner, for /auth/refresh which needs the user to mint the access token
+    @Query("select r from RefreshToken r join fetch r.user where r.token = :token")
+    Optional<RefreshToken> findByTokenWithUser(@Param("token") String token);
 
-    void deleteByUser(User user);
+    // Bulk deletes: one DELETE statement instead of loading and removing every token row
+    @Transactional
+    @Modifying
+    @Query("delete from RefreshToken r where r.token = :token")
+    int deleteByToken(@Param("token") String token);
+
+    @Transactional
+    @Modifying
+    @Query("delete from RefreshToken r where r.user.id in (select u.id from User u where u.email = :email)")
+    int deleteByUserEmail(@Param("email") String email);
 }
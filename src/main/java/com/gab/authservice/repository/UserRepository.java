@@ -1,14 +1,30 @@
 package com.gab.authservice.repository;
 
+import com.gab.authservice.dto.UserSummary;
 import com.gab.authservice.entity.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
+// read-only by default so lookups can be served by a read replica (see ReadReplicaConfig)
+@Transactional(readOnly = true)
 public interface UserRepository extends JpaRepository<User, UUID> {
 
     Optional<User> findByEmail(String email);
 
     boolean existsByEmail(String email);
+
+    /**
+     * Keyset page: the next {@code limit} users after {@code after} in email order. Seeks on the unique index
+     * on email instead of skipping rows like an OFFSET, so every page costs the same.
+     */
+    @Query("select new com.gab.authservice.dto.UserSummary(u.id, u.email, u.role) from User u "
+            + "where u.email > :after order by u.email")
+    List<UserSummary> findPageAfter(@Param("after") String after, Limit limit);
 }
\ No newline at end of file
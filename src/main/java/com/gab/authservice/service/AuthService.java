@@ -4,7 +4,10 @@ import com.gab.authservice.dto.LoginRequest;
 import com.gab.authservice.dto.SignupRequest;
 import com.gab.authservice.entity.Role;
 import com.gab.authservice.entity.User;
+import com.gab.authservice.invalidation.InvalidationBus;
+import com.gab.authservice.invalidation.InvalidationEvent;
 import com.gab.authservice.repository.UserRepository;
+import com.gab.authservice.timing.ServerTiming;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -18,24 +21,38 @@ public class AuthService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final JwtService jwtService;
+    private final ReadYourWritesTracker readYourWritesTracker;
+    private final InvalidationBus invalidationBus;
 
     public void signup(SignupRequest request) {
-        if (userRepository.existsByEmail(request.getEmail())) {
+        boolean exists;
+        try (ServerTiming.Phase ignored = ServerTiming.phase("exists")) {
+            exists = userRepository.existsByEmail(request.getEmail());
+        }
+        if (exists) {
             throw new RuntimeException("Email already exists");
         }
 
+        String passwordHash;
+        try (ServerTiming.Phase ignored = ServerTiming.phase("hash")) {
+            passwordHash = passwordEncoder.encode(request.getPassword());
+        }
         User user = User.builder()
                 .id(UUID.randomUUID())
                 .email(request.getEmail())
-                .password(passwordEncoder.encode(request.getPassword()))
+                .password(passwordHash)
                 .role(Role.USER)
                 .build();
 
-        userRepository.save(user);
+        try (ServerTiming.Phase ignored = ServerTiming.phase("save")) {
+            userRepository.save(user);
+        }
+        readYourWritesTracker.recordWrite(user.getEmail());
+        invalidationBus.publish(InvalidationEvent.Type.USER_CHANGED, user.getEmail());
     }
 
     public String login(LoginRequest request) {
-        User user = userRepository.findByEmail(request.getEmail())
+        User user = readYourWritesTracker.read(request.getEmail(), () -> userRepository.findByEmail(request.getEmail()))
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
         if (!passwordEncoder.matches(request.getPassword(), user.getPassword())) {
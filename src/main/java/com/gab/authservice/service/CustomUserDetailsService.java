@@ -3,6 +3,7 @@ package com.gab.authservice.service;
 import com.gab.authservice.entity.Role;
 import com.gab.authservice.entity.User;
 import com.gab.authservice.repository.UserRepository;
+import com.gab.authservice.timing.ServerTiming;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.userdetails.*;
 import org.springframework.stereotype.Service;
@@ -12,11 +13,15 @@ import org.springframework.stereotype.Service;
 public class CustomUserDetailsService implements UserDetailsService {
 
     private final UserRepository userRepository;
+    private final ReadYourWritesTracker readYourWritesTracker;
 
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
-        User user = userRepository.findByEmail(email)
-            .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + email));
+        User user;
+        try (ServerTiming.Phase ignored = ServerTiming.phase("user-lookup")) {
+            user = readYourWritesTracker.read(email, () -> userRepository.findByEmail(email))
+                .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + email));
+        }
 
         return org.springframework.security.core.userdetails.User.builder()
             .username(user.getEmail())
@@ -0,0 +1,75 @@
+package com.gab.authservice.service;
+
+import com.gab.authservice.config.ReadRouting;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Remembers rows that were just written (a user's email after signup, a refresh token after login) so that
+ * lookups by the same key within {@code auth.datasource.read-your-writes-window} go to the primary instead
+ * of a possibly lagging replica.
+ * <p>
+ * Expired keys are dropped by a sweep that runs at most once per window, piggybacking on writes, so the map holds
+ * roughly two windows' worth of writes and a write never scans it more often than that.
+ * </p>
+ */
+@Component
+public class ReadYourWritesTracker {
+
+    private final long windowNanos;
+    private final LongSupplier nanoClock;
+    private final Map<String, Long> recentWrites = new ConcurrentHashMap<>();
+    private final AtomicLong nextSweep;
+
+    @Autowired
+    public ReadYourWritesTracker(@Value("${auth.datasource.read-your-writes-window:2s}") Duration window) {
+        this(window, System::nanoTime);
+    }
+
+    ReadYourWritesTracker(Duration window, LongSupplier nanoClock) {
+        this.windowNanos = window.toNanos();
+        this.nanoClock = nanoClock;
+        this.nextSweep = new AtomicLong(nanoClock.getAsLong() + windowNanos);
+    }
+
+    public void recordWrite(String key) {
+        if (windowNanos <= 0) {
+            return;
+        }
+        long now = nanoClock.getAsLong();
+        sweepIfDue(now);
+        recentWrites.put(key, now + windowNanos);
+    }
+
+    private void sweepIfDue(long now) {
+        long due = nextSweep.get();
+        if (now - due < 0 || !nextSweep.compareAndSet(due, now + windowNanos)) {
+            return;
+        }
+        recentWrites.values().removeIf(until -> now - until >= 0);
+    }
+
+    public <T> T read(String key, Supplier<T> lookup) {
+        Long until = recentWrites.get(key);
+        if (until == null) {
+            return lookup.get();
+        }
+        if (nanoClock.getAsLong() - until >= 0) {
+            recentWrites.remove(key, until);
+            return lookup.get();
+        }
+        return ReadRouting.onPrimary(lookup);
+    }
+
+    int size() {
+        return recentWrites.size();
+    }
+}
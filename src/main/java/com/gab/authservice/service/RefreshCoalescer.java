@@ -0,0 +1,255 @@
+package com.gab.authservice.service;
+
+import com.gab.authservice.cwt.TokenFormat;
+import com.gab.authservice.entity.RefreshToken;
+import com.gab.authservice.entity.User;
+import com.gab.authservice.invalidation.InvalidationEvent;
+import com.gab.authservice.invalidation.InvalidationListener;
+import com.gab.authservice.tenant.TenantContext;
+import com.gab.authservice.timing.ServerTiming;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Single-flight {@code /auth/refresh}: concurrent calls with the same refresh token share one lookup
+ * and one signed access token.
+ * <p>
+ * The first caller for a token runs the refresh, callers arriving while it is in flight wait for its
+ * result. A successful result is replayed for {@code auth.refresh.coalescing.grace} afterwards (for
+ * the multi-tab/retry burst that lands just after), from a cache capped at
+ * {@code auth.refresh.coalescing.max-entries}. Failures are never replayed. The in-flight map holds at
+ * most one entry per request thread. Tokens are keyed by their SHA-256 digest, so neither map keeps
+ * refresh tokens in memory, and a user's replayable results are dropped on logout, including results of
+ * refreshes that were still running when the logout arrived.
+ * </p>
+ * Metrics: {@code auth.refresh.executed}, {@code auth.refresh.coalesced} (tagged {@code via=in-flight|grace})
+ * and {@code auth.refresh.grace.size}.
+ */
+@Component
+public class RefreshCoalescer implements InvalidationListener {
+
+    private final RefreshTokenService refreshTokenService;
+    private final JwtService jwtService;
+    private final TokenLifetimePolicy tokenLifetimePolicy;
+    private final long graceNanos;
+    private final int maxEntries;
+
+    private final Map<String, CompletableFuture<Result>> inFlight = new ConcurrentHashMap<>();
+    // insertion order is expiry order (same grace for all), so the eldest entry is the first to go
+    private final LinkedHashMap<String, Replay> grace;
+
+    // Invalidation generations, guarded by grace: bumped by every logout/user change, with the generation of each
+    // email's last one. A refresh that started before its user was invalidated must not be replayed afterwards.
+    private volatile long generation;
+    private final Map<String, Long> invalidatedAt = new HashMap<>();
+    // every email counts as invalidated up to here (after a resync, or once invalidatedAt was trimmed)
+    private long allInvalidatedAt;
+
+    private final Counter executed;
+    private final Counter coalescedInFlight;
+    private final Counter coalescedGrace;
+
+    public RefreshCoalescer(RefreshTokenService refreshTokenService,
+                            JwtService jwtService,
+                            TokenLifetimePolicy tokenLifetimePolicy,
+                            MeterRegistry meterRegistry,
+                            @Value("${auth.refresh.coalescing.grace:2s}") Duration grace,
+                            @Value("${auth.refresh.coalescing.max-entries:10000}") int maxEntries) {
+        this.refreshTokenService = refreshTokenService;
+        this.jwtService = jwtService;
+        this.tokenLifetimePolicy = tokenLifetimePolicy;
+        this.graceNanos = grace.toNanos();
+        this.maxEntries = maxEntries;
+        this.grace = new LinkedHashMap<>(64, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Replay> eldest) {
+                return size() > RefreshCoalescer.this.maxEntries;
+            }
+        };
+
+        this.executed = meterRegistry.counter("auth.refresh.executed");
+        this.coalescedInFlight = meterRegistry.counter("auth.refresh.coalesced", "via", "in-flight");
+        this.coalescedGrace = meterRegistry.counter("auth.refresh.coalesced", "via", "grace");
+        Gauge.builder("auth.refresh.grace.size", this, RefreshCoalescer::graceSize).register(meterRegistry);
+    }
+
+    /**
+     * Verifies the refresh token and mints an access token, or joins/replays an identical refresh.
+     *
+     * @param clientId value of the {@code X-Client-Id} header, may be {@code null}
+     * @param format   which access token(s) to issue; part of what is shared, like the client id
+     * @throws RuntimeException as thrown by {@link RefreshTokenService#verifyExpiration(String)}
+     */
+    public Result refresh(String refreshToken, String clientId, TokenFormat format) {
+        if (refreshToken == null) {
+            throw new RuntimeException("Invalid refresh token");
+        }
+        // client id, tenant and format pick the token lifetime, signing key and encoding, so they are part of what is shared
+        String tenant = TenantContext.current();
+        String key = digest(refreshToken + '\n' + (clientId == null ? "" : clientId)
+                + '\n' + (tenant == null ? "" : tenant) + '\n' + format);
+
+        Result replayed = replay(key);
+        if (replayed != null) {
+            coalescedGrace.increment();
+            return replayed;
+        }
+
+        CompletableFuture<Result> mine = new CompletableFuture<>();
+        CompletableFuture<Result> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            coalescedInFlight.increment();
+            return await(running);
+        }
+
+        executed.increment();
+        long startGeneration = generation;
+        try {
+            Result result = execute(refreshToken, clientId, format);
+            remember(key, result, startGeneration);
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private Result execute(String refreshToken, String clientId, TokenFormat format) {
+        RefreshToken token;
+        try (ServerTiming.Phase ignored = ServerTiming.phase("refresh-lookup")) {
+            token = refreshTokenService.verifyExpiration(refreshToken);
+        }
+        User user = token.getUser();
+        Duration ttl = tokenLifetimePolicy.accessTokenTtl(user, clientId);
+        // taken before signing, so it is never later than the token's exp
+        Instant expiresAt = Instant.now().plus(ttl);
+        String accessToken = format == TokenFormat.CWT
+                ? jwtService.generateCompactToken(user, ttl)
+                : jwtService.generateToken(user, ttl);
+        String compactAccessToken = format == TokenFormat.BOTH ? jwtService.generateCompactToken(user, ttl) : null;
+        return new Result(user.getEmail(), accessToken, compactAccessToken, expiresAt);
+    }
+
+    private static Result await(CompletableFuture<Result> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private Result replay(String key) {
+        if (graceNanos <= 0) {
+            return null;
+        }
+        synchronized (grace) {
+            Replay replay = grace.get(key);
+            if (replay == null) {
+                return null;
+            }
+            if (System.nanoTime() - replay.storedAt >= graceNanos) {
+                grace.remove(key);
+                return null;
+            }
+            return replay.result;
+        }
+    }
+
+    private void remember(String key, Result result, long startGeneration) {
+        if (graceNanos <= 0) {
+            return;
+        }
+        synchronized (grace) {
+            long invalidated = Math.max(allInvalidatedAt, invalidatedAt.getOrDefault(result.getEmail(), 0L));
+            if (invalidated > startGeneration) {
+                // logged out while this refresh was running; the caller still gets its result, nobody else
+                return;
+            }
+            grace.put(key, new Replay(result, System.nanoTime()));
+        }
+    }
+
+    @Override
+    public void onInvalidation(InvalidationEvent event) {
+        if (event.getType() == InvalidationEvent.Type.USER_LOGGED_OUT || event.getType() == InvalidationEvent.Type.USER_CHANGED) {
+            synchronized (grace) {
+                long next = generation + 1;
+                if (invalidatedAt.size() >= maxEntries) {
+                    invalidatedAt.clear();
+                    allInvalidatedAt = next;
+                } else {
+                    invalidatedAt.put(event.getKey(), next);
+                }
+                generation = next;
+                grace.values().removeIf(replay -> replay.result.getEmail().equals(event.getKey()));
+            }
+        }
+    }
+
+    @Override
+    public void resync() {
+        synchronized (grace) {
+            long next = generation + 1;
+            invalidatedAt.clear();
+            allInvalidatedAt = next;
+            generation = next;
+            grace.clear();
+        }
+    }
+
+    int graceSize() {
+        synchronized (grace) {
+            return grace.size();
+        }
+    }
+
+    private static String digest(String refreshToken) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(refreshToken.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    @lombok.Value
+    public static class Result {
+        String email;
+        String accessToken;
+        // null unless a CWT was asked for alongside the JWT
+        String compactAccessToken;
+        Instant expiresAt;
+    }
+
+    private static final class Replay {
+        final Result result;
+        final long storedAt;
+
+        Replay(Result result, long storedAt) {
+            this.result = result;
+            this.storedAt = storedAt;
+        }
+    }
+}
@@ -2,13 +2,16 @@ package com.gab.authservice.service;
 
 import com.gab.authservice.entity.RefreshToken;
 import com.gab.authservice.entity.User;
+import com.gab.authservice.jfr.RefreshTokenEvent;
 import com.gab.authservice.repository.RefreshTokenRepository;
+import com.gab.authservice.shard.ShardRouter;
+import com.gab.authservice.writebehind.WriteBehindRefreshTokenStore;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
+import java.util.Optional;
 import java.util.UUID;
 
 @Service
@@ -16,32 +19,93 @@ import java.util.UUID;
 public class RefreshTokenService {
 
     private final RefreshTokenRepository refreshTokenRepository;
+    private final ReadYourWritesTracker readYourWritesTracker;
+    // present with auth.refresh.write-behind.enabled=true
+    private final Optional<WriteBehindRefreshTokenStore> writeBehind;
+    // present with auth.datasource.shards.urls set; tokens then carry their shard's routing key
+    private final Optional<ShardRouter> shardRouter;
 
     @Value("${jwt.refresh.expiration}")
     private long refreshExpirationMs;
 
     public RefreshToken createRefreshToken(User user) {
-        RefreshToken refreshToken = new RefreshToken();
-        refreshToken.setUser(user);
-        refreshToken.setToken(UUID.randomUUID().toString());
-        refreshToken.setExpiryDate(Instant.now().plusMillis(refreshExpirationMs));
-        return refreshTokenRepository.save(refreshToken);
+        RefreshTokenEvent event = begin();
+        String outcome = "failed";
+        try {
+            RefreshToken refreshToken = new RefreshToken();
+            refreshToken.setUser(user);
+            refreshToken.setToken(shardRouter.map(router -> router.newRefreshToken(user.getEmail()))
+                    .orElseGet(() -> UUID.randomUUID().toString()));
+            refreshToken.setExpiryDate(Instant.now().plusMillis(refreshExpirationMs));
+            if (writeBehind.isPresent() && writeBehind.get().add(refreshToken.getToken(), user, refreshToken.getExpiryDate())) {
+                outcome = "journaled";
+                return refreshToken;
+            }
+            RefreshToken saved = refreshTokenRepository.save(refreshToken);
+            readYourWritesTracker.recordWrite(saved.getToken());
+            outcome = "created";
+            return saved;
+        } finally {
+            commit(event, "create", outcome);
+        }
     }
 
+    /**
+     * Looks up a refresh token together with its user (one select) and checks it hasn't expired.
+     * Tokens still waiting for the write-behind flush are found without touching the database.
+     */
     public RefreshToken verifyExpiration(String tokenValue) {
-        RefreshToken token = refreshTokenRepository
-                .findByToken(tokenValue)
-                .orElseThrow(() -> new RuntimeException("Invalid refresh token"));
-        if (token.getExpiryDate().isBefore(Instant.now())) {
-            refreshTokenRepository.delete(token);
-            throw new RuntimeException("Refresh token expired");
+        RefreshTokenEvent event = begin();
+        String outcome = "invalid";
+        try {
+            Optional<RefreshToken> pending = writeBehind.flatMap(store -> store.find(tokenValue));
+            RefreshToken token = pending
+                    .or(() -> readYourWritesTracker.read(tokenValue, () -> refreshTokenRepository.findByTokenWithUser(tokenValue)))
+                    .orElseThrow(() -> new RuntimeException("Invalid refresh token"));
+            if (token.getExpiryDate().isBefore(Instant.now())) {
+                outcome = "expired";
+                if (pending.isPresent()) {
+                    writeBehind.get().remove(tokenValue);
+                } else {
+                    refreshTokenRepository.deleteByToken(tokenValue);
+                }
+                throw new RuntimeException("Refresh token expired");
+            }
+            outcome = "valid";
+            return token;
+        } finally {
+            commit(event, "verify", outcome);
+        }
+    }
+
+    /**
+     * Deletes all refresh tokens of the user with this email in a single statement, without loading the user.
+     */
+    public void deleteByUserEmail(String email) {
+        RefreshTokenEvent event = begin();
+        String outcome = "failed";
+        try {
+            writeBehind.ifPresent(store -> store.purge(email));
+            int deleted = refreshTokenRepository.deleteByUserEmail(email);
+            outcome = deleted > 0 ? "deleted" : "none";
+        } finally {
+            commit(event, "delete", outcome);
         }
-        return token;
     }
 
-    @Transactional
-    public void deleteByUser(User user) {
-        refreshTokenRepository.deleteByUser(user);
+    private static RefreshTokenEvent begin() {
+        RefreshTokenEvent event = new RefreshTokenEvent();
+        event.begin();
+        return event;
+    }
+
+    private static void commit(RefreshTokenEvent event, String operation, String outcome) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.outcome = outcome;
+            event.commit();
+        }
     }
 
 }
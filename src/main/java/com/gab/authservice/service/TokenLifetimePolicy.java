@@ -0,0 +1,68 @@
+package com.gab.authservice.service;
+
+import com.gab.authservice.config.TokenLifetimeProperties;
+import com.gab.authservice.entity.User;
+import com.gab.authservice.tenant.TenantContext;
+import com.gab.authservice.tenant.TenantKeys;
+import com.gab.authservice.tenant.TenantRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides how long an access token lives and when the client should refresh it.
+ */
+@Component
+@RequiredArgsConstructor
+public class TokenLifetimePolicy {
+
+    private final TokenLifetimeProperties properties;
+    // present with auth.tenants.enabled=true
+    private final Optional<TenantRegistry> tenantRegistry;
+
+    /**
+     * The configured lifetime for the user's role (or the default), shortened by the calling client's setting.
+     * Any caller can send {@code X-Client-Id}, so a client setting can only make tokens shorter, never longer.
+     * The {@code access-token-ttl} of the request's tenant caps the result the same way.
+     *
+     * @param clientId value of the {@code X-Client-Id} header, may be {@code null}
+     */
+    public Duration accessTokenTtl(User user, String clientId) {
+        Duration configured = configuredTtl(user, clientId);
+        Duration byTenant = tenantTtl();
+        return byTenant == null || configured.compareTo(byTenant) <= 0 ? configured : byTenant;
+    }
+
+    private Duration configuredTtl(User user, String clientId) {
+        Duration byRole = user.getRole() == null ? null : properties.getRoles().get(user.getRole());
+        Duration allowed = byRole == null ? properties.getDefaultTtl() : byRole;
+        Duration byClient = clientId == null ? null : properties.getClients().get(clientId);
+        return byClient == null || allowed.compareTo(byClient) <= 0 ? allowed : byClient;
+    }
+
+    private Duration tenantTtl() {
+        if (tenantRegistry.isEmpty()) {
+            return null;
+        }
+        String tenant = TenantContext.current();
+        TenantRegistry registry = tenantRegistry.get();
+        if (registry.isDefault(tenant)) {
+            return null;
+        }
+        TenantKeys keys = registry.keys(tenant);
+        return keys.getAccessTokenTtl();
+    }
+
+    /**
+     * Seconds after which the client should refresh a token that expires in {@code expiresInSeconds}:
+     * {@code refresh-ahead} before expiry, minus a random share of up to {@code refresh-jitter}.
+     */
+    public long refreshAfterSeconds(long expiresInSeconds) {
+        double refreshAt = expiresInSeconds * (1 - properties.getRefreshAhead());
+        double jitter = expiresInSeconds * properties.getRefreshJitter() * ThreadLocalRandom.current().nextDouble();
+        return Math.max(0, Math.min(expiresInSeconds, (long) (refreshAt - jitter)));
+    }
+}
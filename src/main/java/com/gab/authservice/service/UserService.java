@@ -1,19 +1,37 @@
 package com.gab.authservice.service;
 
 import com.gab.authservice.dto.LoginRequest;
+import com.gab.authservice.dto.UserPage;
+import com.gab.authservice.dto.UserSummary;
 import com.gab.authservice.entity.User;
 import com.gab.authservice.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+
 @Service
 @RequiredArgsConstructor
 public class UserService {
 
+    static final int MAX_PAGE_SIZE = 500;
+
     private final UserRepository userRepository;
+    private final ReadYourWritesTracker readYourWritesTracker;
 
     public User getUserByUserName(String userName) {
-        return userRepository.findByEmail(userName)
+        return readYourWritesTracker.read(userName, () -> userRepository.findByEmail(userName))
                 .orElseThrow(() -> new RuntimeException("User not found"));
     }
+
+    /**
+     * Users ordered by email, starting after {@code after} (exclusive, {@code null} for the first page).
+     */
+    public UserPage listUsers(String after, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<UserSummary> users = userRepository.findPageAfter(after == null ? "" : after, Limit.of(pageSize));
+        String next = users.size() < pageSize ? null : users.get(users.size() - 1).getEmail();
+        return new UserPage(users, next);
+    }
 }
@@ -0,0 +1,193 @@
+package com.gab.authservice.service;
+
+import com.gab.authservice.authz.JwtAuthentication;
+import com.gab.authservice.invalidation.InvalidationEvent;
+import com.gab.authservice.invalidation.InvalidationListener;
+import com.gab.authservice.snapshot.SnapshotSection;
+import com.gab.authservice.tenant.TenantContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Access tokens that already passed verification, so further requests with the same token skip the RSA check.
+ * <p>
+ * Entries are keyed by the SHA-256 of the requested tenant and the token (tokens themselves are never kept) and
+ * live until the token's {@code exp}. At {@code auth.token.cache.max-entries} expired entries are dropped; if that
+ * doesn't make room, new tokens are verified every time until it does. {@code 0} disables the cache. A key reload
+ * ({@code KEYS_ROTATED}) clears it.
+ * </p>
+ * With {@code auth.snapshot.enabled=true} the entries survive restarts; the snapshot records the signing key id,
+ * and is ignored when the key has changed in between. Entries for tenant tokens are left out of it, since their
+ * keys may change independently while the service is down.
+ * Metrics: {@code auth.token.cache.hits}, {@code auth.token.cache.misses} and {@code auth.token.cache.size}.
+ */
+@Component
+public class VerifiedTokenCache implements InvalidationListener, SnapshotSection {
+
+    /**
+     * @param tenant {@code tid} of the token, {@code null} if signed with the service's own key
+     * @param authentication built once per token, so requests with a cached token allocate no authentication
+     */
+    public record Entry(String email, String role, String tenant, long expiresAtMillis,
+                        JwtAuthentication authentication) {
+
+        public Entry(String email, String role, String tenant, long expiresAtMillis) {
+            this(email, role, tenant, expiresAtMillis, new JwtAuthentication(email, role));
+        }
+    }
+
+    private final JwtService jwtService;
+    private final int maxEntries;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Counter hits;
+    private final Counter misses;
+
+    public VerifiedTokenCache(JwtService jwtService, MeterRegistry meterRegistry,
+                              @Value("${auth.token.cache.max-entries:10000}") int maxEntries) {
+        this.jwtService = jwtService;
+        this.maxEntries = maxEntries;
+        this.hits = meterRegistry.counter("auth.token.cache.hits");
+        this.misses = meterRegistry.counter("auth.token.cache.misses");
+        Gauge.builder("auth.token.cache.size", entries, Map::size).register(meterRegistry);
+    }
+
+    /**
+     * @return the verified claims of the token, or {@code null} if it has to be verified
+     */
+    public Entry get(String token) {
+        if (maxEntries <= 0) {
+            return null;
+        }
+        String key = key(token);
+        Entry entry = entries.get(key);
+        if (entry != null && System.currentTimeMillis() >= entry.expiresAtMillis()) {
+            entries.remove(key, entry);
+            entry = null;
+        }
+        if (entry == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return entry;
+    }
+
+    /**
+     * Remembers a token of the default tenant that was just verified.
+     */
+    public Entry put(String token, String email, String role, Date expiration) {
+        return put(token, email, role, null, expiration);
+    }
+
+    /**
+     * Remembers a token that was just verified.
+     */
+    public Entry put(String token, String email, String role, String tenant, Date expiration) {
+        Entry entry = new Entry(email, role, tenant, expiration == null ? 0 : expiration.getTime());
+        if (maxEntries <= 0 || expiration == null) {
+            return entry;
+        }
+        if (entries.size() >= maxEntries) {
+            removeExpired(System.currentTimeMillis());
+            if (entries.size() >= maxEntries) {
+                return entry;
+            }
+        }
+        entries.put(key(token), entry);
+        return entry;
+    }
+
+    private void removeExpired(long nowMillis) {
+        entries.values().removeIf(entry -> nowMillis >= entry.expiresAtMillis());
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    @Override
+    public void onInvalidation(InvalidationEvent event) {
+        if (event.getType() == InvalidationEvent.Type.KEYS_ROTATED) {
+            entries.clear();
+        }
+    }
+
+    @Override
+    public void resync() {
+        entries.clear();
+    }
+
+    @Override
+    public String snapshotName() {
+        return "verified-tokens";
+    }
+
+    @Override
+    public void writeSnapshot(DataOutputStream out) throws IOException {
+        long now = System.currentTimeMillis();
+        List<Map.Entry<String, Entry>> live = new ArrayList<>(entries.size());
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            // only the default tenant's key id is recorded
+            if (entry.getValue().expiresAtMillis() > now && entry.getValue().tenant() == null) {
+                live.add(entry);
+            }
+        }
+        out.writeUTF(jwtService.signingKeyId());
+        out.writeInt(live.size());
+        for (Map.Entry<String, Entry> entry : live) {
+            out.writeUTF(entry.getKey());
+            out.writeUTF(entry.getValue().email());
+            out.writeUTF(entry.getValue().role());
+            out.writeLong(entry.getValue().expiresAtMillis());
+        }
+    }
+
+    @Override
+    public int readSnapshot(DataInputStream in, long nowMillis) throws IOException {
+        if (maxEntries <= 0 || !jwtService.signingKeyId().equals(in.readUTF())) {
+            // verified with keys that are gone
+            return 0;
+        }
+        int count = in.readInt();
+        int restored = 0;
+        for (int i = 0; i < count; i++) {
+            String key = in.readUTF();
+            Entry entry = new Entry(in.readUTF(), in.readUTF(), null, in.readLong());
+            if (entry.expiresAtMillis() > nowMillis && entries.size() < maxEntries) {
+                entries.putIfAbsent(key, entry);
+                restored++;
+            }
+        }
+        return restored;
+    }
+
+    private static String key(String token) {
+        String tenant = TenantContext.current();
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            if (tenant != null) {
+                digest.update(tenant.getBytes(StandardCharsets.UTF_8));
+            }
+            digest.update((byte) '\n');
+            return Base64.getEncoder().encodeToString(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
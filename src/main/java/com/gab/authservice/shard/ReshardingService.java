@@ -0,0 +1,197 @@
+package com.gab.authservice.shard;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Moves users (with their refresh tokens) to the shard that owns them in the current ring, while the service
+ * keeps serving them.
+ * <p>
+ * To add shards: append their urls to {@code auth.datasource.shards.urls}, set
+ * {@code auth.datasource.shards.previous-count} to the old number of shards and roll the change out. Lookups then
+ * try the new owner first and the old one second, so nobody is lost mid-move. Call {@link #rebalance()} (or
+ * {@code POST /admin/shards/rebalance}) until it reports nothing moved, then drop {@code previous-count}.
+ * </p>
+ * <p>
+ * Each user is copied first (user row, then its tokens, {@code ON CONFLICT DO NOTHING}) and deleted from the old
+ * shard afterwards, so a crash or a concurrent rebalance leaves at worst a duplicate that the next run removes.
+ * The delete runs in one transaction on the old shard that first locks the user row and its tokens
+ * ({@code FOR UPDATE}): refresh tokens issued there meanwhile are copied too, tokens revoked meanwhile (a logout
+ * since the first copy) are deleted from the new shard again, and new ones wait for the lock (their foreign key
+ * needs the user row) and then fail instead of being deleted silently. By then lookups find the user on the new
+ * shard, so a retried login succeeds. A logout that comes later waits for the lock on the old shard; deletes go to
+ * the old shard first (see {@link ShardedRepositoryInterceptor}), so it then finds the tokens on the new one.
+ * </p>
+ */
+@Slf4j
+public class ReshardingService {
+
+    private static final int PAGE_SIZE = 500;
+
+    private static final String PAGE_SQL =
+            "select id, email, password, role from users where email > ? order by email limit ?";
+    private static final String COPY_USER_SQL =
+            "insert into users (id, email, password, role) values (?, ?, ?, ?) on conflict do nothing";
+    private static final String USER_PRESENT_SQL = "select exists(select 1 from users where id = ?)";
+    private static final String TOKENS_SQL = "select token, expiry_date from refresh_tokens where user_id = ?";
+    private static final String COPY_TOKEN_SQL =
+            "insert into refresh_tokens (token, user_id, expiry_date) values (?, ?, ?) on conflict (token) do nothing";
+    private static final String LOCK_USER_SQL = "select id from users where id = ? for update";
+    private static final String LOCK_TOKENS_SQL = TOKENS_SQL + " for update";
+    private static final String DELETE_TOKEN_SQL = "delete from refresh_tokens where token = ?";
+    private static final String DELETE_TOKENS_SQL = "delete from refresh_tokens where user_id = ?";
+    private static final String DELETE_USER_SQL = "delete from users where id = ?";
+
+    private final ShardRouter router;
+    private final JdbcTemplate jdbcTemplate;
+
+    public ReshardingService(ShardRouter router, JdbcTemplate jdbcTemplate) {
+        this.router = router;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public record Result(long scanned, long moved, long conflicts) {
+    }
+
+    /**
+     * One pass over every shard, moving each user that isn't on its owner.
+     */
+    public Result rebalance() {
+        long scanned = 0;
+        long moved = 0;
+        long conflicts = 0;
+        for (int shard = 0; shard < router.shardCount(); shard++) {
+            int source = shard;
+            String after = "";
+            List<UserRow> page;
+            do {
+                String cursor = after;
+                page = ShardContext.on(source, () -> jdbcTemplate.query(PAGE_SQL, (rs, i) -> new UserRow(
+                        rs.getObject("id", UUID.class), rs.getString("email"), rs.getString("password"),
+                        rs.getString("role")), cursor, PAGE_SIZE));
+                for (UserRow user : page) {
+                    scanned++;
+                    int owner = router.shardFor(user.email());
+                    if (owner == source) {
+                        continue;
+                    }
+                    if (move(user, source, owner)) {
+                        moved++;
+                    } else {
+                        conflicts++;
+                    }
+                }
+                if (!page.isEmpty()) {
+                    after = page.get(page.size() - 1).email();
+                }
+            } while (page.size() == PAGE_SIZE);
+            log.info("Rebalanced shard {}: {} users scanned, {} moved so far", source, scanned, moved);
+        }
+        return new Result(scanned, moved, conflicts);
+    }
+
+    private boolean move(UserRow user, int source, int target) {
+        boolean copied = ShardContext.on(target, () -> {
+            jdbcTemplate.update(COPY_USER_SQL, user.id(), user.email(), user.password(), user.role());
+            return Boolean.TRUE.equals(jdbcTemplate.queryForObject(USER_PRESENT_SQL, Boolean.class, user.id()));
+        });
+        if (!copied) {
+            // another user with this email exists on the target: needs a human, leave both alone
+            log.warn("Not moving user {} from shard {} to {}: email already taken there", user.id(), source, target);
+            return false;
+        }
+        // bulk of the tokens without holding any lock
+        List<Object[]> tokens = ShardContext.on(source, () -> jdbcTemplate.query(TOKENS_SQL, tokenRow(user), user.id()));
+        copyTokens(tokens, target);
+        Set<String> copiedTokens = new HashSet<>();
+        for (Object[] token : tokens) {
+            copiedTokens.add((String) token[0]);
+        }
+        ShardContext.on(source, () -> jdbcTemplate.execute((ConnectionCallback<Void>) connection ->
+                deleteFromSource(connection, user, target, copiedTokens)));
+        return true;
+    }
+
+    /**
+     * Locks the user row and its tokens, brings the target's tokens in line with them (copies tokens added since
+     * the first copy, deletes copied ones that are gone), then deletes tokens and user, all in one transaction on
+     * the source shard's connection.
+     */
+    private Void deleteFromSource(Connection connection, UserRow user, int target, Set<String> copied)
+            throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            boolean present;
+            try (PreparedStatement lock = connection.prepareStatement(LOCK_USER_SQL)) {
+                lock.setObject(1, user.id());
+                try (ResultSet rs = lock.executeQuery()) {
+                    present = rs.next();
+                }
+            }
+            if (present) {
+                List<Object[]> late = new ArrayList<>();
+                Set<String> revoked = new HashSet<>(copied);
+                try (PreparedStatement select = connection.prepareStatement(LOCK_TOKENS_SQL)) {
+                    select.setObject(1, user.id());
+                    try (ResultSet rs = select.executeQuery()) {
+                        RowMapper<Object[]> mapper = tokenRow(user);
+                        while (rs.next()) {
+                            Object[] token = mapper.mapRow(rs, rs.getRow());
+                            if (!revoked.remove((String) token[0])) {
+                                late.add(token);
+                            }
+                        }
+                    }
+                }
+                copyTokens(late, target);
+                if (!revoked.isEmpty()) {
+                    // deleted on the source after the first copy, e.g. by a logout: don't bring them back
+                    List<Object[]> rows = revoked.stream().map(token -> new Object[] {token}).toList();
+                    ShardContext.on(target, () -> jdbcTemplate.batchUpdate(DELETE_TOKEN_SQL, rows));
+                }
+                try (PreparedStatement deleteTokens = connection.prepareStatement(DELETE_TOKENS_SQL);
+                     PreparedStatement deleteUser = connection.prepareStatement(DELETE_USER_SQL)) {
+                    deleteTokens.setObject(1, user.id());
+                    deleteTokens.executeUpdate();
+                    deleteUser.setObject(1, user.id());
+                    deleteUser.executeUpdate();
+                }
+            }
+            // not present: a concurrent rebalance already moved it
+            connection.commit();
+            return null;
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private void copyTokens(List<Object[]> tokens, int target) {
+        if (!tokens.isEmpty()) {
+            // its own connection on the target; the caller's source transaction stays open meanwhile
+            ShardContext.on(target, () -> jdbcTemplate.batchUpdate(COPY_TOKEN_SQL, tokens));
+        }
+    }
+
+    private static RowMapper<Object[]> tokenRow(UserRow user) {
+        return (rs, i) -> new Object[] {rs.getString("token"), user.id(), rs.getTimestamp("expiry_date")};
+    }
+
+    private record UserRow(UUID id, String email, String password, String role) {
+    }
+}
@@ -0,0 +1,50 @@
+package com.gab.authservice.shard;
+
+import java.util.function.Supplier;
+
+/**
+ * The shard the current thread's statements go to, read by {@link ShardRoutingDataSource}.
+ * <p>
+ * Repository calls are routed automatically (see {@link ShardedRepositoryInterceptor}); code using JDBC directly
+ * wraps it in {@link #on(int, Supplier)}. Without a shard set, connections come from shard 0, which also holds
+ * the tables that aren't sharded ({@code audit_events}).
+ * </p>
+ * <p>
+ * A connection is bound to a transaction once its first statement has run, so a shard switch inside an
+ * already running transaction has no effect.
+ * </p>
+ */
+public final class ShardContext {
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    public static <T> T on(int shard, Supplier<T> action) {
+        Integer previous = enter(shard);
+        try {
+            return action.get();
+        } finally {
+            exit(previous);
+        }
+    }
+
+    public static Integer current() {
+        return CURRENT.get();
+    }
+
+    static Integer enter(int shard) {
+        Integer previous = CURRENT.get();
+        CURRENT.set(shard);
+        return previous;
+    }
+
+    static void exit(Integer previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.gab.authservice.shard;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Consistent hash ring over shards {@code 0..shardCount-1}.
+ * <p>
+ * Every shard is placed on the ring {@code virtualNodes} times; a key belongs to the first point at or after
+ * its hash. Points only depend on the shard number, so growing from N to N+1 shards keeps every existing
+ * point and only moves the roughly 1/(N+1) of keys that land on the new shard's points.
+ * </p>
+ */
+public final class ShardRing {
+
+    private final int shardCount;
+    private final long[] points;
+    private final int[] owners;
+
+    public ShardRing(int shardCount, int virtualNodes) {
+        if (shardCount < 1 || virtualNodes < 1) {
+            throw new IllegalArgumentException("Need at least one shard and one virtual node per shard");
+        }
+        this.shardCount = shardCount;
+
+        List<long[]> ring = new ArrayList<>(shardCount * virtualNodes);
+        for (int shard = 0; shard < shardCount; shard++) {
+            for (int node = 0; node < virtualNodes; node++) {
+                ring.add(new long[] {hash("shard-" + shard + "#" + node), shard});
+            }
+        }
+        // stable sort: on the (practically impossible) tie the lower shard wins, on every node alike
+        ring.sort(Comparator.comparingLong(point -> point[0]));
+        this.points = new long[ring.size()];
+        this.owners = new int[ring.size()];
+        for (int i = 0; i < ring.size(); i++) {
+            points[i] = ring.get(i)[0];
+            owners[i] = (int) ring.get(i)[1];
+        }
+    }
+
+    public int shardFor(long key) {
+        int low = 0;
+        int high = points.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (points[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return owners[low == points.length ? 0 : low];
+    }
+
+    public int shardCount() {
+        return shardCount;
+    }
+
+    /**
+     * First 8 bytes of the SHA-256 of the value, so keys spread evenly whatever the email domain distribution.
+     */
+    public static long hash(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest, 0, Long.BYTES).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
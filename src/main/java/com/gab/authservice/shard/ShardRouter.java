@@ -0,0 +1,149 @@
+package com.gab.authservice.shard;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+/**
+ * Decides which shard(s) hold a user and its refresh tokens.
+ * <p>
+ * The routing key is the {@link ShardRing#hash hash} of the normalized (trimmed, lower-case) email. Refresh tokens
+ * start with that key ({@code <16 hex digits>.<uuid>}), so {@code /auth/refresh} finds the shard without knowing
+ * the user, and still does after a reshard since the key, not a shard number, is encoded.
+ * </p>
+ * <p>
+ * While resharding ({@code auth.datasource.shards.previous-count} set), a user may still be on its owner in the
+ * previous ring until {@link ReshardingService} has moved it, so lookups try the new owner first and the old one
+ * second. Tokens without a routing key (issued before sharding was enabled) are looked up on every shard.
+ * </p>
+ * Metrics: {@code auth.shard.fanout} (calls that went to more than one shard) and {@code auth.shard.fallback}
+ * (lookups answered by a shard other than the key's owner).
+ */
+public class ShardRouter {
+
+    private static final HexFormat HEX = HexFormat.of();
+    private static final int KEY_LENGTH = 16;
+    private static final String USER_EXISTS_SQL = "select exists(select 1 from users where email = ?)";
+
+    private final ShardRing ring;
+    // null unless resharding
+    private final ShardRing previousRing;
+    private final JdbcTemplate jdbcTemplate;
+    private final int[][] single;
+    private final int[] all;
+
+    private final Counter fanout;
+    private final Counter fallback;
+
+    public ShardRouter(ShardRing ring, ShardRing previousRing, JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry) {
+        this.ring = ring;
+        this.previousRing = previousRing;
+        this.jdbcTemplate = jdbcTemplate;
+        this.all = IntStream.range(0, ring.shardCount()).toArray();
+        this.single = new int[ring.shardCount()][];
+        for (int shard = 0; shard < single.length; shard++) {
+            single[shard] = new int[] {shard};
+        }
+        this.fanout = meterRegistry.counter("auth.shard.fanout");
+        this.fallback = meterRegistry.counter("auth.shard.fallback");
+    }
+
+    public static long routingKey(String email) {
+        return ShardRing.hash(email.trim().toLowerCase(Locale.ROOT));
+    }
+
+    public int shardCount() {
+        return ring.shardCount();
+    }
+
+    public boolean isResharding() {
+        return previousRing != null;
+    }
+
+    public int shardFor(String email) {
+        return ring.shardFor(routingKey(email));
+    }
+
+    /**
+     * Shards that may hold rows for this key, the current owner first.
+     */
+    public int[] candidates(long key) {
+        int owner = ring.shardFor(key);
+        if (previousRing != null) {
+            int previousOwner = previousRing.shardFor(key);
+            if (previousOwner != owner) {
+                return new int[] {owner, previousOwner};
+            }
+        }
+        return single[owner];
+    }
+
+    public int[] candidatesForEmail(String email) {
+        return candidates(routingKey(email));
+    }
+
+    public int[] candidatesForToken(String token) {
+        if (!hasRoutingKey(token)) {
+            return all;
+        }
+        return candidates(HexFormat.fromHexDigitsToLong(token, 0, KEY_LENGTH));
+    }
+
+    public int[] all() {
+        return all;
+    }
+
+    /**
+     * A new refresh token value carrying the owner's routing key.
+     */
+    public String newRefreshToken(String email) {
+        return HEX.toHexDigits(routingKey(email)) + '.' + UUID.randomUUID();
+    }
+
+    static boolean hasRoutingKey(String token) {
+        if (token == null || token.length() <= KEY_LENGTH || token.charAt(KEY_LENGTH) != '.') {
+            return false;
+        }
+        for (int i = 0; i < KEY_LENGTH; i++) {
+            if (!HexFormat.isHexDigit(token.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The shard holding the user's row; its owner if it isn't stored anywhere yet. Rows that reference the user
+     * (refresh tokens) must go to the same shard. Costs an existence check per candidate while resharding only.
+     */
+    public int locateUser(String email) {
+        int[] candidates = candidatesForEmail(email);
+        if (candidates.length == 1) {
+            return candidates[0];
+        }
+        for (int i = 0; i < candidates.length; i++) {
+            int shard = candidates[i];
+            if (Boolean.TRUE.equals(ShardContext.on(shard,
+                    () -> jdbcTemplate.queryForObject(USER_EXISTS_SQL, Boolean.class, email)))) {
+                if (i > 0) {
+                    fallback.increment();
+                }
+                return shard;
+            }
+        }
+        return candidates[0];
+    }
+
+    void recordFanout() {
+        fanout.increment();
+    }
+
+    void recordFallback() {
+        fallback.increment();
+    }
+}
@@ -0,0 +1,186 @@
+package com.gab.authservice.shard;
+
+import com.gab.authservice.dto.UserSummary;
+import com.gab.authservice.entity.RefreshToken;
+import com.gab.authservice.entity.User;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.ProxyMethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Wraps {@code UserRepository} and {@code RefreshTokenRepository} so every call runs against the right shard.
+ * <ul>
+ *   <li>Lookups by email or refresh token go to the key's owner, then (while resharding) its previous owner,
+ *   and stop at the first hit.</li>
+ *   <li>Saves go to the shard the user lives on; refresh tokens follow their user.</li>
+ *   <li>Deletes by user or token run on every candidate shard.</li>
+ *   <li>{@code findPageAfter} asks every shard for a page and merges them in email order.</li>
+ *   <li>Other reads ({@code findById}, {@code count}, ...) run on every shard and the results are combined.
+ *   Other writes are rejected, since there is no key to route them by.</li>
+ * </ul>
+ * Each shard gets its own repository call and therefore its own transaction. Spreading a call over several
+ * shards inside a caller's transaction fails, because that transaction is bound to one connection.
+ */
+class ShardedRepositoryInterceptor implements MethodInterceptor {
+
+    // resolved on first use: the post-processor creating this interceptor exists before the router does
+    private final ObjectProvider<ShardRouter> router;
+
+    ShardedRepositoryInterceptor(ObjectProvider<ShardRouter> router) {
+        this.router = router;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        if (invocation.getMethod().getDeclaringClass() == Object.class) {
+            return invocation.proceed();
+        }
+        ShardRouter shards = router.getObject();
+        Object[] args = invocation.getArguments();
+        String method = invocation.getMethod().getName();
+        return switch (method) {
+            case "findByEmail", "existsByEmail" -> firstMatch(invocation, shards, shards.candidatesForEmail((String) args[0]));
+            case "findByTokenWithUser" -> firstMatch(invocation, shards, shards.candidatesForToken((String) args[0]));
+            // previous owner first, so a concurrent ReshardingService move can't copy back what was just deleted
+            case "deleteByToken" -> onEach(invocation, shards, reversed(shards.candidatesForToken((String) args[0])));
+            case "deleteByUserEmail" -> onEach(invocation, shards, reversed(shards.candidatesForEmail((String) args[0])));
+            case "save" -> on(invocation, shards.locateUser(ownerEmail(args[0])));
+            case "findPageAfter" -> mergePages(invocation, shards, (Limit) args[1]);
+            default -> {
+                if (!method.startsWith("find") && !method.startsWith("exists") && !method.startsWith("count")) {
+                    throw new UnsupportedOperationException(method + " has no shard key and can't be routed");
+                }
+                yield onEach(invocation, shards, shards.all());
+            }
+        };
+    }
+
+    private static int[] reversed(int[] candidates) {
+        int[] reversed = new int[candidates.length];
+        for (int i = 0; i < candidates.length; i++) {
+            reversed[i] = candidates[candidates.length - 1 - i];
+        }
+        return reversed;
+    }
+
+    private static String ownerEmail(Object entity) {
+        if (entity instanceof User user) {
+            return user.getEmail();
+        }
+        if (entity instanceof RefreshToken token) {
+            return token.getUser().getEmail();
+        }
+        throw new UnsupportedOperationException("Can't route a save of " + entity);
+    }
+
+    /**
+     * Tries the shards in order and returns the first non-empty result (or the last, empty, one).
+     */
+    private static Object firstMatch(MethodInvocation invocation, ShardRouter shards, int[] candidates) throws Throwable {
+        checkSpansShards(invocation, shards, candidates);
+        Object result = null;
+        for (int i = 0; i < candidates.length; i++) {
+            result = on(invocation, candidates[i]);
+            if (isMatch(result)) {
+                if (i > 0) {
+                    shards.recordFallback();
+                }
+                return result;
+            }
+        }
+        return result;
+    }
+
+    private static boolean isMatch(Object result) {
+        if (result instanceof Optional<?> optional) {
+            return optional.isPresent();
+        }
+        if (result instanceof Boolean found) {
+            return found;
+        }
+        return result != null;
+    }
+
+    /**
+     * Runs on every given shard and combines the results: counts are summed, collections concatenated, the first
+     * present {@link Optional} wins.
+     */
+    private static Object onEach(MethodInvocation invocation, ShardRouter shards, int[] candidates) throws Throwable {
+        if (candidates.length == 1) {
+            return on(invocation, candidates[0]);
+        }
+        checkSpansShards(invocation, shards, candidates);
+        Object combined = null;
+        for (int shard : candidates) {
+            combined = combine(combined, on(invocation, shard));
+        }
+        return combined;
+    }
+
+    private static Object combine(Object combined, Object result) {
+        if (combined == null) {
+            return result instanceof Collection<?> collection ? new ArrayList<>(collection) : result;
+        }
+        if (combined instanceof Optional<?> optional) {
+            return optional.isPresent() ? optional : result;
+        }
+        if (combined instanceof Boolean found) {
+            return found || (Boolean) result;
+        }
+        if (combined instanceof Integer count) {
+            return count + (Integer) result;
+        }
+        if (combined instanceof Long count) {
+            return count + (Long) result;
+        }
+        if (combined instanceof Collection<?>) {
+            @SuppressWarnings("unchecked")
+            Collection<Object> all = (Collection<Object>) combined;
+            all.addAll((Collection<?>) result);
+            return all;
+        }
+        return combined;
+    }
+
+    /**
+     * Keyset paging across shards: each shard returns its next {@code limit} users after the cursor, and the
+     * first {@code limit} of their union in email order is the global page.
+     */
+    private static Object mergePages(MethodInvocation invocation, ShardRouter shards, Limit limit) throws Throwable {
+        @SuppressWarnings("unchecked")
+        List<UserSummary> users = (List<UserSummary>) onEach(invocation, shards, shards.all());
+        users.sort(Comparator.comparing(UserSummary::getEmail));
+        return limit.isLimited() && users.size() > limit.max() ? new ArrayList<>(users.subList(0, limit.max())) : users;
+    }
+
+    private static void checkSpansShards(MethodInvocation invocation, ShardRouter shards, int[] candidates) {
+        if (candidates.length < 2) {
+            return;
+        }
+        shards.recordFanout();
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException(invocation.getMethod().getName() + " needs shards "
+                    + Arrays.toString(candidates) + " but runs inside a transaction bound to one of them");
+        }
+    }
+
+    private static Object on(MethodInvocation invocation, int shard) throws Throwable {
+        Integer previous = ShardContext.enter(shard);
+        try {
+            // a clone can be proceeded once more, for the next shard
+            return ((ProxyMethodInvocation) invocation).invocableClone().proceed();
+        } finally {
+            ShardContext.exit(previous);
+        }
+    }
+}
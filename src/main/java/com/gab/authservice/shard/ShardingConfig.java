@@ -0,0 +1,144 @@
+package com.gab.authservice.shard;
+
+import com.gab.authservice.repository.RefreshTokenRepository;
+import com.gab.authservice.repository.UserRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Spreads {@code users} and {@code refresh_tokens} over several databases.
+ * <p>
+ * Only active when {@code auth.datasource.shards.urls} is set (comma-separated JDBC urls of shards 1..n, same
+ * credentials as {@code spring.datasource.*}, which is shard 0). Users are assigned to shards by a
+ * {@link ShardRing consistent hash} of their email, see {@link ShardRouter}. The
+ * {@link LazyConnectionDataSourceProxy} defers fetching a physical connection until the first statement, by
+ * which point {@link ShardedRepositoryInterceptor} has picked the shard.
+ * </p>
+ * Not combinable with read replicas ({@code auth.datasource.replicas.urls}).
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "auth.datasource.shards", name = "urls")
+public class ShardingConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties,
+                                              @Value("${auth.datasource.replicas.urls:}") String replicaUrls) {
+        if (!replicaUrls.isBlank()) {
+            throw new IllegalStateException("auth.datasource.shards.urls and auth.datasource.replicas.urls can't be combined");
+        }
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("shard-0");
+        return dataSource;
+    }
+
+    @Bean
+    public ShardRoutingDataSource shardRoutingDataSource(
+            DataSourceProperties properties,
+            HikariDataSource primaryDataSource,
+            @Value("${auth.datasource.shards.urls}") List<String> shardUrls,
+            @Value("${auth.datasource.shards.maximum-pool-size:10}") int maximumPoolSize) {
+
+        List<DataSource> shards = new ArrayList<>();
+        shards.add(primaryDataSource);
+        for (String url : shardUrls) {
+            HikariDataSource shard = properties.initializeDataSourceBuilder()
+                    .type(HikariDataSource.class)
+                    .url(url.trim())
+                    .build();
+            shard.setPoolName("shard-" + shards.size());
+            shard.setMaximumPoolSize(maximumPoolSize);
+            shards.add(shard);
+        }
+        return new ShardRoutingDataSource(shards);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardRoutingDataSource shardRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(shardRoutingDataSource);
+    }
+
+    @Bean
+    public ShardRouter shardRouter(
+            ShardRoutingDataSource shardRoutingDataSource,
+            JdbcTemplate jdbcTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${auth.datasource.shards.virtual-nodes:128}") int virtualNodes,
+            @Value("${auth.datasource.shards.previous-count:0}") int previousCount) {
+
+        int shardCount = shardRoutingDataSource.shardCount();
+        if (previousCount < 0 || previousCount > shardCount) {
+            throw new IllegalStateException("auth.datasource.shards.previous-count must be between 0 and " + shardCount);
+        }
+        ShardRing previous = previousCount == 0 || previousCount == shardCount ? null : new ShardRing(previousCount, virtualNodes);
+        createTables(jdbcTemplate, shardCount);
+        return new ShardRouter(new ShardRing(shardCount, virtualNodes), previous, jdbcTemplate, meterRegistry);
+    }
+
+    @Bean
+    public ReshardingService reshardingService(ShardRouter shardRouter, JdbcTemplate jdbcTemplate) {
+        return new ReshardingService(shardRouter, jdbcTemplate);
+    }
+
+    /**
+     * Routes every call on the user and refresh token repositories through {@link ShardedRepositoryInterceptor}.
+     */
+    @Bean
+    public static BeanPostProcessor shardedRepositoryPostProcessor(ObjectProvider<ShardRouter> shardRouter) {
+        ShardedRepositoryInterceptor interceptor = new ShardedRepositoryInterceptor(shardRouter);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof UserRepository) && !(bean instanceof RefreshTokenRepository)) {
+                    return bean;
+                }
+                ProxyFactory factory = new ProxyFactory(bean);
+                factory.addAdvice(interceptor);
+                return factory.getProxy();
+            }
+        };
+    }
+
+    /**
+     * Hibernate ({@code spring.jpa.hibernate.ddl-auto}) only manages the schema on shard 0; shards 1..n get the
+     * same two tables here. Keep in sync with the {@code User} and {@code RefreshToken} entities.
+     */
+    private static void createTables(JdbcTemplate jdbcTemplate, int shardCount) {
+        for (int shard = 1; shard < shardCount; shard++) {
+            ShardContext.on(shard, () -> {
+                jdbcTemplate.execute("""
+                        create table if not exists users (
+                            id uuid not null primary key,
+                            email varchar(255) not null unique,
+                            password varchar(255) not null,
+                            role varchar(255) not null check (role in ('USER', 'ADMIN'))
+                        )""");
+                jdbcTemplate.execute("""
+                        create table if not exists refresh_tokens (
+                            id bigint generated by default as identity primary key,
+                            token varchar(255) not null unique,
+                            user_id uuid references users,
+                            expiry_date timestamp(6) with time zone
+                        )""");
+                return null;
+            });
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.gab.authservice.snapshot;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Snapshot of the {@link SnapshotSection}s in one memory-mapped file.
+ * <p>
+ * Layout: {@code [long magic][int format version][long written at][int payload length][int crc32][payload]},
+ * the payload being {@code [int count]} sections of {@code [utf name][int length][bytes][32 bytes HMAC-SHA256]}.
+ * A new snapshot is written to a temporary file, forced to disk and renamed over the old one, so readers see either
+ * snapshot completely. A missing file, a different format version, a wrong length or checksum all mean
+ * "start empty".
+ * </p>
+ * <p>
+ * Sections restore authenticated state (verified tokens with their roles), so the checksum alone isn't enough:
+ * each section carries an HMAC over its name and bytes, keyed with {@code macKey}. If any of them doesn't match
+ * (file edited, or written with other keys), none of the sections is restored.
+ * </p>
+ */
+@Slf4j
+public class SnapshotFile {
+
+    static final long MAGIC = 0x415554485f534e50L; // "AUTH_SNP"
+    public static final int FORMAT_VERSION = 2;
+    static final String MAC_ALGORITHM = "HmacSHA256";
+    static final int MAC_BYTES = 32;
+    static final int HEADER_BYTES = 8 + 4 + 8 + 4 + 4;
+
+    public enum Outcome {
+        LOADED,
+        MISSING,
+        CORRUPT,
+        VERSION_MISMATCH,
+        UNTRUSTED
+    }
+
+    /**
+     * @param restored entries restored per section
+     */
+    public record LoadResult(Outcome outcome, long writtenAtMillis, Map<String, Integer> restored) {
+    }
+
+    private final Path path;
+    private final SecretKeySpec macKey;
+
+    public SnapshotFile(Path path, byte[] macKey) {
+        this.path = path;
+        this.macKey = new SecretKeySpec(macKey, MAC_ALGORITHM);
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    /**
+     * @return the size of the file in bytes
+     */
+    public long write(List<? extends SnapshotSection> sections, long nowMillis) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(4096);
+        DataOutputStream out = new DataOutputStream(payload);
+        out.writeInt(sections.size());
+        for (SnapshotSection section : sections) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+            section.writeSnapshot(new DataOutputStream(bytes));
+            out.writeUTF(section.snapshotName());
+            out.writeInt(bytes.size());
+            bytes.writeTo(out);
+            out.write(mac(section.snapshotName(), bytes.toByteArray()));
+        }
+        out.flush();
+        byte[] body = payload.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(body);
+
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        long size = HEADER_BYTES + (long) body.length;
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            map.putLong(MAGIC)
+                    .putInt(FORMAT_VERSION)
+                    .putLong(nowMillis)
+                    .putInt(body.length)
+                    .putInt((int) crc.getValue())
+                    .put(body);
+            map.force();
+        }
+        Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return size;
+    }
+
+    /**
+     * Feeds each section of the file to the section of the same name. Never throws for a bad file; a section
+     * that fails to read is logged and skipped.
+     */
+    public LoadResult read(Map<String, ? extends SnapshotSection> sections, long nowMillis) {
+        if (!Files.isRegularFile(path)) {
+            return new LoadResult(Outcome.MISSING, 0, Map.of());
+        }
+        ByteBuffer map;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+                log.warn("Ignoring cache snapshot {}: unexpected size {}", path, size);
+                return new LoadResult(Outcome.CORRUPT, 0, Map.of());
+            }
+            // the mapping stays valid after the channel is closed
+            map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        } catch (IOException e) {
+            log.warn("Ignoring cache snapshot {}: {}", path, e.toString());
+            return new LoadResult(Outcome.CORRUPT, 0, Map.of());
+        }
+
+        if (map.getLong() != MAGIC) {
+            log.warn("Ignoring cache snapshot {}: not a snapshot file", path);
+            return new LoadResult(Outcome.CORRUPT, 0, Map.of());
+        }
+        int version = map.getInt();
+        if (version != FORMAT_VERSION) {
+            log.info("Ignoring cache snapshot {}: format version {} (expected {})", path, version, FORMAT_VERSION);
+            return new LoadResult(Outcome.VERSION_MISMATCH, 0, Map.of());
+        }
+        long writtenAt = map.getLong();
+        int length = map.getInt();
+        int expectedCrc = map.getInt();
+        if (length != map.remaining()) {
+            log.warn("Ignoring cache snapshot {}: truncated ({} of {} bytes)", path, map.remaining(), length);
+            return new LoadResult(Outcome.CORRUPT, writtenAt, Map.of());
+        }
+        CRC32 crc = new CRC32();
+        crc.update(map.duplicate());
+        if ((int) crc.getValue() != expectedCrc) {
+            log.warn("Ignoring cache snapshot {}: checksum mismatch", path);
+            return new LoadResult(Outcome.CORRUPT, writtenAt, Map.of());
+        }
+
+        // every section is authenticated before any of them is restored
+        Map<String, byte[]> verified = new LinkedHashMap<>();
+        try {
+            DataInputStream in = new DataInputStream(new BufferInputStream(map));
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String name = in.readUTF();
+                int sectionLength = in.readInt();
+                byte[] bytes = new byte[sectionLength];
+                in.readFully(bytes);
+                byte[] mac = new byte[MAC_BYTES];
+                in.readFully(mac);
+                if (!MessageDigest.isEqual(mac, mac(name, bytes))) {
+                    log.warn("Ignoring cache snapshot {}: section {} fails authentication", path, name);
+                    return new LoadResult(Outcome.UNTRUSTED, writtenAt, Map.of());
+                }
+                verified.put(name, bytes);
+            }
+        } catch (IOException | RuntimeException e) {
+            // only reachable for a file written by a broken writer, the checksum matched
+            log.warn("Ignoring cache snapshot {}: {}", path, e.toString());
+            return new LoadResult(Outcome.CORRUPT, writtenAt, Map.of());
+        }
+
+        Map<String, Integer> restored = new LinkedHashMap<>();
+        verified.forEach((name, bytes) -> {
+            SnapshotSection section = sections.get(name);
+            if (section == null) {
+                return;
+            }
+            try {
+                restored.put(name, section.readSnapshot(
+                        new DataInputStream(new ByteArrayInputStream(bytes)), nowMillis));
+            } catch (IOException | RuntimeException e) {
+                log.warn("Skipping section {} of cache snapshot {}: {}", name, path, e.toString());
+            }
+        });
+        return new LoadResult(Outcome.LOADED, writtenAt, restored);
+    }
+
+    private byte[] mac(String name, byte[] bytes) {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(macKey);
+            mac.update(name.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            return mac.doFinal(bytes);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(MAC_ALGORITHM + " not available", e);
+        }
+    }
+
+    private static final class BufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        BufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, n);
+            return n;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.gab.authservice.snapshot;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * An in-memory cache that survives restarts through the {@link SnapshotFile}.
+ * <p>
+ * Implementations write their own entry format; the file takes care of versioning and checksums. On restore,
+ * entries that expired while the service was down must be left out.
+ * </p>
+ */
+public interface SnapshotSection {
+
+    /**
+     * Identifies the section in the file; sections without a matching bean are skipped on restore.
+     */
+    String snapshotName();
+
+    void writeSnapshot(DataOutputStream out) throws IOException;
+
+    /**
+     * @return the number of entries restored
+     */
+    int readSnapshot(DataInputStream in, long nowMillis) throws IOException;
+}
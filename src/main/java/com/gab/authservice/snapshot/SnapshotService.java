@@ -0,0 +1,139 @@
+package com.gab.authservice.snapshot;
+
+import com.gab.authservice.service.JwtService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.actuate.info.Info;
+import org.springframework.boot.actuate.info.InfoContributor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Opt-in ({@code auth.snapshot.enabled=true}) warm restarts: every {@link SnapshotSection} is written to
+ * {@code auth.snapshot.path} every {@code auth.snapshot.interval} and on shutdown, and restored at startup.
+ * <p>
+ * The file is authenticated with a key derived from the service's signing key ({@link JwtService#deriveKey}), so
+ * it can't be edited by hand and a snapshot written before a key change is ignored.
+ * </p>
+ * <p>
+ * Restoring runs as an {@link ApplicationRunner}, so it is done before the readiness probe reports {@code UP}.
+ * The outcome (restored entries per section, snapshot age) is logged and shown under {@code snapshot} in
+ * {@code /actuator/info}.
+ * </p>
+ * Metrics: {@code auth.snapshot.writes} (tag {@code outcome=written|failed}), {@code auth.snapshot.write.duration}
+ * and {@code auth.snapshot.restored} (tag {@code section}).
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(name = "auth.snapshot.enabled", havingValue = "true")
+public class SnapshotService implements ApplicationRunner, InfoContributor, AutoCloseable {
+
+    static final String MAC_PURPOSE = "auth-cache-snapshot";
+
+    private final List<SnapshotSection> sections;
+    private final SnapshotFile file;
+    private final Duration interval;
+    private final MeterRegistry meterRegistry;
+    private final Counter written;
+    private final Counter failed;
+    private final Timer writeDuration;
+
+    private ScheduledExecutorService scheduler;
+    private volatile Map<String, Object> report = Map.of("status", "pending");
+
+    public SnapshotService(List<SnapshotSection> sections, JwtService jwtService,
+                           @Value("${auth.snapshot.path:data/cache-snapshot.bin}") Path path,
+                           @Value("${auth.snapshot.interval:1m}") Duration interval,
+                           MeterRegistry meterRegistry) {
+        this.sections = sections;
+        this.file = new SnapshotFile(path, jwtService.deriveKey(MAC_PURPOSE));
+        this.interval = interval;
+        this.meterRegistry = meterRegistry;
+        this.written = meterRegistry.counter("auth.snapshot.writes", "outcome", "written");
+        this.failed = meterRegistry.counter("auth.snapshot.writes", "outcome", "failed");
+        this.writeDuration = meterRegistry.timer("auth.snapshot.write.duration");
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        restore();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cache-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::snapshot, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    void restore() {
+        long start = System.nanoTime();
+        long now = System.currentTimeMillis();
+        SnapshotFile.LoadResult result = file.read(
+                sections.stream().collect(Collectors.toMap(SnapshotSection::snapshotName, Function.identity())), now);
+        result.restored().forEach((section, count) ->
+                meterRegistry.counter("auth.snapshot.restored", "section", section).increment(count));
+
+        Map<String, Object> restored = new LinkedHashMap<>();
+        restored.put("status", result.outcome().name().toLowerCase());
+        restored.put("durationMs", Duration.ofNanos(System.nanoTime() - start).toMillis());
+        if (result.outcome() == SnapshotFile.Outcome.LOADED) {
+            restored.put("ageSeconds", Math.max(0, (now - result.writtenAtMillis()) / 1000));
+            restored.put("entries", result.restored());
+        }
+        report = restored;
+        log.info("Cache snapshot {}: {}", file.path(), restored);
+    }
+
+    /**
+     * Writes all sections now. Failures are logged and counted; the previous snapshot stays in place.
+     */
+    public void snapshot() {
+        long start = System.nanoTime();
+        try {
+            file.write(sections, System.currentTimeMillis());
+            written.increment();
+        } catch (Exception e) {
+            failed.increment();
+            log.warn("Failed to write cache snapshot {}", file.path(), e);
+        } finally {
+            writeDuration.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public void contribute(Info.Builder builder) {
+        builder.withDetail("snapshot", report);
+    }
+
+    /**
+     * Stops the periodic writes and takes a last snapshot, so a clean restart loses nothing.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdown();
+        scheduler.awaitTermination(10, TimeUnit.SECONDS);
+        snapshot();
+    }
+}
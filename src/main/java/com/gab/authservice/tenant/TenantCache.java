@@ -0,0 +1,235 @@
+package com.gab.authservice.tenant;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded per-tenant cache that loads on first use and forgets tenants nobody has used for a while.
+ * <p>
+ * Hits are a map read and a timestamp write, no lock. A miss loads the value on the calling thread; concurrent
+ * misses for the same tenant wait for that one load instead of starting their own. Failed loads are remembered
+ * for {@code failureTtl}, so a missing tenant costs one load per interval, not one per request. They are kept
+ * apart from the loaded values, at most {@code maxSize} of them (oldest dropped first), so a stream of made-up
+ * tenant ids never pushes out a real tenant.
+ * </p>
+ * <p>
+ * At most {@code maxLoadsPerSecond} loads start per second (0 = no limit); misses beyond that fail right away
+ * without calling the loader and without being remembered.
+ * </p>
+ * <p>
+ * Entries idle for longer than {@code idleTimeout} are dropped by a sweep that runs at most every
+ * {@code idleTimeout / 4}, piggybacking on cache calls. Beyond {@code maxSize} entries, the least recently used
+ * one is dropped right away.
+ * </p>
+ * Metrics (tag {@code cache}): {@code auth.tenant.cache.size}, {@code auth.tenant.cache.loads} (tag
+ * {@code outcome=loaded|failed|throttled}) and {@code auth.tenant.cache.evictions} (tag {@code reason=idle|size}).
+ */
+public class TenantCache<V> {
+
+    private final Function<String, V> loader;
+    private final int maxSize;
+    private final long idleNanos;
+    private final long failureNanos;
+    private final int maxLoadsPerSecond;
+    private final LongSupplier nanoClock;
+
+    private final Map<String, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final Map<String, Entry<V>> failures = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Entry<V>>> loading = new ConcurrentHashMap<>();
+    private final AtomicLong nextSweep;
+    private final AtomicLong loadWindow;
+    private final AtomicInteger loadsInWindow = new AtomicInteger();
+
+    private final Counter loaded;
+    private final Counter failed;
+    private final Counter throttled;
+    private final Counter evictedIdle;
+    private final Counter evictedSize;
+
+    public TenantCache(String name, Function<String, V> loader, int maxSize, Duration idleTimeout, Duration failureTtl,
+                       int maxLoadsPerSecond, LongSupplier nanoClock, MeterRegistry meterRegistry) {
+        this.loader = loader;
+        this.maxSize = maxSize;
+        this.idleNanos = idleTimeout.toNanos();
+        this.failureNanos = failureTtl.toNanos();
+        this.maxLoadsPerSecond = maxLoadsPerSecond;
+        this.nanoClock = nanoClock;
+        this.nextSweep = new AtomicLong(nanoClock.getAsLong() + idleNanos / 4);
+        this.loadWindow = new AtomicLong(nanoClock.getAsLong());
+
+        this.loaded = meterRegistry.counter("auth.tenant.cache.loads", "cache", name, "outcome", "loaded");
+        this.failed = meterRegistry.counter("auth.tenant.cache.loads", "cache", name, "outcome", "failed");
+        this.throttled = meterRegistry.counter("auth.tenant.cache.loads", "cache", name, "outcome", "throttled");
+        this.evictedIdle = meterRegistry.counter("auth.tenant.cache.evictions", "cache", name, "reason", "idle");
+        this.evictedSize = meterRegistry.counter("auth.tenant.cache.evictions", "cache", name, "reason", "size");
+        Gauge.builder("auth.tenant.cache.size", entries, Map::size).tag("cache", name).register(meterRegistry);
+    }
+
+    public V get(String tenant) {
+        long now = nanoClock.getAsLong();
+        sweepIfDue(now);
+        Entry<V> entry = entries.get(tenant);
+        if (entry != null) {
+            entry.lastAccess = now;
+            return entry.value;
+        }
+        Entry<V> failure = failures.get(tenant);
+        if (failure != null && now - failure.loadedAt < failureNanos) {
+            throw failure.failure;
+        }
+        return load(tenant).value();
+    }
+
+    private boolean tryAcquireLoad() {
+        if (maxLoadsPerSecond <= 0) {
+            return true;
+        }
+        long now = nanoClock.getAsLong();
+        long window = loadWindow.get();
+        if (now - window >= TimeUnit.SECONDS.toNanos(1) && loadWindow.compareAndSet(window, now)) {
+            loadsInWindow.set(0);
+        }
+        return loadsInWindow.incrementAndGet() <= maxLoadsPerSecond;
+    }
+
+    private Entry<V> load(String tenant) {
+        CompletableFuture<Entry<V>> mine = new CompletableFuture<>();
+        CompletableFuture<Entry<V>> running = loading.putIfAbsent(tenant, mine);
+        if (running != null) {
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                throw (RuntimeException) e.getCause();
+            }
+        }
+        try {
+            if (!tryAcquireLoad()) {
+                throttled.increment();
+                throw new IllegalStateException("Too many tenant loads, try again later");
+            }
+            Entry<V> entry;
+            try {
+                entry = new Entry<>(loader.apply(tenant), null, nanoClock.getAsLong());
+                loaded.increment();
+            } catch (RuntimeException e) {
+                entry = new Entry<>(null, e, nanoClock.getAsLong());
+                failed.increment();
+            }
+            if (entry.failure == null) {
+                failures.remove(tenant);
+                entries.put(tenant, entry);
+                if (entries.size() > maxSize) {
+                    evictLeastRecentlyUsed();
+                }
+            } else {
+                failures.put(tenant, entry);
+                if (failures.size() > maxSize) {
+                    dropOldestFailures();
+                }
+            }
+            mine.complete(entry);
+            return entry;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(tenant, mine);
+        }
+    }
+
+    private void evictLeastRecentlyUsed() {
+        while (entries.size() > maxSize) {
+            String eldest = null;
+            long eldestAccess = 0;
+            for (Map.Entry<String, Entry<V>> candidate : entries.entrySet()) {
+                long access = candidate.getValue().lastAccess;
+                if (eldest == null || access - eldestAccess < 0) {
+                    eldest = candidate.getKey();
+                    eldestAccess = access;
+                }
+            }
+            if (eldest == null || entries.remove(eldest) == null) {
+                return;
+            }
+            evictedSize.increment();
+        }
+    }
+
+    private void dropOldestFailures() {
+        while (failures.size() > maxSize) {
+            String oldest = null;
+            long oldestLoad = 0;
+            for (Map.Entry<String, Entry<V>> candidate : failures.entrySet()) {
+                long loadedAt = candidate.getValue().loadedAt;
+                if (oldest == null || loadedAt - oldestLoad < 0) {
+                    oldest = candidate.getKey();
+                    oldestLoad = loadedAt;
+                }
+            }
+            if (oldest == null || failures.remove(oldest) == null) {
+                return;
+            }
+        }
+    }
+
+    private void sweepIfDue(long now) {
+        long due = nextSweep.get();
+        if (now - due < 0 || !nextSweep.compareAndSet(due, now + idleNanos / 4)) {
+            return;
+        }
+        for (Map.Entry<String, Entry<V>> candidate : entries.entrySet()) {
+            Entry<V> entry = candidate.getValue();
+            if (now - entry.lastAccess >= idleNanos && entries.remove(candidate.getKey(), entry)) {
+                evictedIdle.increment();
+            }
+        }
+        failures.values().removeIf(failure -> now - failure.loadedAt >= failureNanos);
+    }
+
+    public void invalidate(String tenant) {
+        entries.remove(tenant);
+        failures.remove(tenant);
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+        failures.clear();
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private static final class Entry<V> {
+        final V value;
+        final RuntimeException failure;
+        final long loadedAt;
+        volatile long lastAccess;
+
+        Entry(V value, RuntimeException failure, long loadedAt) {
+            this.value = value;
+            this.failure = failure;
+            this.loadedAt = loadedAt;
+            this.lastAccess = loadedAt;
+        }
+
+        V value() {
+            if (failure != null) {
+                throw failure;
+            }
+            return value;
+        }
+    }
+}
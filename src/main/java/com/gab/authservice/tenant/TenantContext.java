@@ -0,0 +1,44 @@
+package com.gab.authservice.tenant;
+
+import java.util.function.Supplier;
+
+/**
+ * The tenant the current request was addressed to (by host or path, see {@link TenantFilter}).
+ * <p>
+ * {@code null} when the request didn't name one, which means the default tenant: tokens are issued for it and
+ * only its tokens are accepted. When set, tokens of other tenants are rejected.
+ * </p>
+ */
+public final class TenantContext {
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private TenantContext() {
+    }
+
+    public static String current() {
+        return CURRENT.get();
+    }
+
+    public static <T> T on(String tenant, Supplier<T> action) {
+        String previous = CURRENT.get();
+        CURRENT.set(tenant);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    static void set(String tenant) {
+        CURRENT.set(tenant);
+    }
+
+    static void clear() {
+        CURRENT.remove();
+    }
+}
@@ -0,0 +1,135 @@
+package com.gab.authservice.tenant;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UriUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Puts the tenant named by the request into {@link TenantContext}.
+ * <p>
+ * {@code acme.auth.example.com} (with {@code host-suffix=.auth.example.com}) and {@code /t/acme/auth/login}
+ * (with {@code path-prefix=/t/}) both address tenant {@code acme}; the latter is passed on as
+ * {@code /auth/login}, so controllers and security rules don't know about tenants. Requests naming neither
+ * leave the context empty. Malformed or unknown tenant ids are answered with 400, {@code /admin/**} for a tenant
+ * with 403: admin endpoints act on the whole service (users are shared) and only take its own tokens.
+ * </p>
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(name = "auth.tenants.enabled", havingValue = "true")
+public class TenantFilter extends OncePerRequestFilter {
+
+    private final TenantRegistry registry;
+    private final String hostSuffix;
+    private final String pathPrefix;
+
+    public TenantFilter(TenantRegistry registry, TenantProperties properties) {
+        this.registry = registry;
+        this.hostSuffix = properties.getHostSuffix();
+        this.pathPrefix = properties.getPathPrefix();
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain)
+            throws ServletException, IOException {
+
+        String tenant = null;
+        HttpServletRequest forwarded = request;
+
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (!pathPrefix.isEmpty() && path.startsWith(pathPrefix)) {
+            int end = path.indexOf('/', pathPrefix.length());
+            tenant = path.substring(pathPrefix.length(), end < 0 ? path.length() : end);
+            forwarded = new StrippedPathRequest(request, pathPrefix.length() + tenant.length());
+        } else if (!hostSuffix.isEmpty()) {
+            String host = request.getServerName();
+            if (host != null && host.length() > hostSuffix.length() && host.endsWith(hostSuffix)) {
+                tenant = host.substring(0, host.length() - hostSuffix.length());
+            }
+        }
+
+        if (tenant != null) {
+            try {
+                tenant = registry.validate(tenant);
+            } catch (IllegalArgumentException e) {
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+                return;
+            }
+            if (!registry.isDefault(tenant) && isAdmin(forwarded)) {
+                response.sendError(HttpServletResponse.SC_FORBIDDEN, "Admin endpoints are not served for tenants");
+                return;
+            }
+        }
+
+        TenantContext.set(tenant);
+        try {
+            filterChain.doFilter(forwarded, response);
+        } finally {
+            TenantContext.clear();
+        }
+    }
+
+    private static boolean isAdmin(HttpServletRequest request) {
+        // decoded like Spring MVC does before matching, so /%61dmin doesn't slip through
+        String path = UriUtils.decode(request.getRequestURI().substring(request.getContextPath().length()),
+                StandardCharsets.UTF_8);
+        return path.equals("/admin") || path.startsWith("/admin/");
+    }
+
+    /**
+     * The request as if {@code /t/<tenant>} weren't part of its path.
+     */
+    private static final class StrippedPathRequest extends HttpServletRequestWrapper {
+
+        private final String requestUri;
+        private final String servletPath;
+
+        StrippedPathRequest(HttpServletRequest request, int prefixLength) {
+            super(request);
+            String contextPath = request.getContextPath();
+            String rest = request.getRequestURI().substring(contextPath.length() + prefixLength);
+            String path = rest.isEmpty() ? "/" : rest;
+            this.requestUri = contextPath + path;
+            this.servletPath = path;
+        }
+
+        @Override
+        public String getRequestURI() {
+            return requestUri;
+        }
+
+        @Override
+        public String getServletPath() {
+            return servletPath;
+        }
+
+        @Override
+        public String getPathInfo() {
+            return null;
+        }
+
+        @Override
+        public StringBuffer getRequestURL() {
+            StringBuffer url = new StringBuffer(getScheme()).append("://").append(getServerName());
+            int port = getServerPort();
+            if (port > 0 && !(port == 80 && "http".equals(getScheme())) && !(port == 443 && "https".equals(getScheme()))) {
+                url.append(':').append(port);
+            }
+            return url.append(requestUri);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.gab.authservice.tenant;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gab.authservice.service.JwtService;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.ClassPathResource;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.secretsmanager.SecretsManagerClient;
+import software.amazon.awssdk.services.secretsmanager.model.GetSecretValueRequest;
+
+import java.io.IOException;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Reads a tenant's key pair: {@code <local-key-dir>/private.pem} and {@code public.pem} from the classpath in the
+ * local profile, otherwise the tenant's AWS Secrets Manager secret.
+ */
+public class TenantKeyLoader implements Function<String, TenantKeys> {
+
+    private final TenantProperties properties;
+    private final Environment environment;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private volatile SecretsManagerClient client;
+
+    public TenantKeyLoader(TenantProperties properties, Environment environment) {
+        this.properties = properties;
+        this.environment = environment;
+    }
+
+    @Override
+    public TenantKeys apply(String tenant) {
+        Map<String, String> secret = environment.matchesProfiles("local") ? readLocal(tenant) : readSecret(tenant);
+        String privatePem = secret.get("private-key");
+        String publicPem = secret.get("public-key");
+        if (privatePem == null || publicPem == null) {
+            throw new RuntimeException("Keys of tenant " + tenant + " are incomplete");
+        }
+        RSAPrivateKey privateKey = JwtService.parsePrivateKey(privatePem);
+        RSAPublicKey publicKey = JwtService.parsePublicKey(publicPem);
+        String issuer = secret.getOrDefault("issuer", expand(properties.getIssuerPattern(), tenant));
+        String ttl = secret.get("access-token-ttl");
+        return new TenantKeys(tenant, issuer, privateKey, publicKey, publicPem, JwtService.keyId(publicKey),
+                ttl == null ? null : Duration.parse(ttl));
+    }
+
+    private Map<String, String> readLocal(String tenant) {
+        String dir = expand(properties.getLocalKeyDir(), tenant);
+        try {
+            return Map.of(
+                    "private-key", new String(new ClassPathResource(dir + "/private.pem").getInputStream().readAllBytes()),
+                    "public-key", new String(new ClassPathResource(dir + "/public.pem").getInputStream().readAllBytes()));
+        } catch (IOException e) {
+            throw new RuntimeException("No keys for tenant " + tenant + " in " + dir, e);
+        }
+    }
+
+    private Map<String, String> readSecret(String tenant) {
+        String secretJson;
+        try {
+            secretJson = secretsManager().getSecretValue(GetSecretValueRequest.builder()
+                    .secretId(expand(properties.getSecretNamePattern(), tenant))
+                    .build()).secretString();
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to fetch JWT keys of tenant " + tenant + " from AWS Secrets Manager", e);
+        }
+        try {
+            return objectMapper.readValue(secretJson, new TypeReference<Map<String, String>>() {});
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to parse keys of tenant " + tenant + " from AWS secret", e);
+        }
+    }
+
+    private SecretsManagerClient secretsManager() {
+        SecretsManagerClient c = client;
+        if (c == null) {
+            synchronized (this) {
+                c = client;
+                if (c == null) {
+                    c = SecretsManagerClient.builder().region(Region.of(properties.getAwsRegion())).build();
+                    client = c;
+                }
+            }
+        }
+        return c;
+    }
+
+    static String expand(String pattern, String tenant) {
+        return pattern.replace("{tenant}", tenant);
+    }
+}
@@ -0,0 +1,23 @@
+package com.gab.authservice.tenant;
+
+import lombok.Value;
+
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+
+/**
+ * Signing keys and token policy of one tenant.
+ */
+@Value
+public class TenantKeys {
+
+    String tenant;
+    String issuer;
+    RSAPrivateKey privateKey;
+    RSAPublicKey publicKey;
+    String publicKeyPem;
+    String keyId;
+    // null = no tenant-specific cap
+    Duration accessTokenTtl;
+}
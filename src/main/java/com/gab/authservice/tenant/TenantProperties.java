@@ -0,0 +1,81 @@
+package com.gab.authservice.tenant;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * {@code auth.tenants.*}; see {@link TenantRegistry}.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties("auth.tenants")
+public class TenantProperties {
+
+    private boolean enabled;
+
+    /**
+     * Tenant of requests that don't name one. Uses the service's own keys (jwt.* / the default secret).
+     */
+    private String defaultTenant = "default";
+
+    /**
+     * Requests to {@code <tenant><host-suffix>} are for that tenant, e.g. {@code .auth.example.com}. Empty = off.
+     */
+    private String hostSuffix = "";
+
+    /**
+     * Requests to {@code <path-prefix><tenant>/...} are for that tenant and handled as {@code /...}. Empty = off.
+     */
+    private String pathPrefix = "/t/";
+
+    /**
+     * Tenants that may be loaded. Empty = any id matching {@link TenantRegistry#TENANT_ID}, which lets anyone make
+     * the service look up made-up tenants (see {@link #maxLoadsPerSecond}); set it in production.
+     */
+    private Set<String> allowed = new HashSet<>();
+
+    /**
+     * {@code {tenant}} is replaced by the tenant id. The secret has the same layout as the default one
+     * ({@code private-key}, {@code public-key}) plus optional {@code issuer} and {@code access-token-ttl}.
+     */
+    private String secretNamePattern = "auth-microservice/{tenant}/jwt/keys";
+
+    /**
+     * Classpath directory with {@code private.pem}/{@code public.pem} in the local profile.
+     */
+    private String localKeyDir = "keys/{tenant}";
+
+    /**
+     * {@code iss} of the tenant's tokens unless its secret sets one.
+     */
+    private String issuerPattern = "{tenant}";
+
+    private String awsRegion = "us-east-1";
+
+    /**
+     * Key rings kept in memory; the least recently used one is dropped beyond this.
+     */
+    private int maxCached = 1000;
+
+    /**
+     * Key rings not used for this long are dropped and loaded again on next use.
+     */
+    private Duration idleTimeout = Duration.ofMinutes(30);
+
+    /**
+     * How long a failed load (unknown tenant, Secrets Manager error) is remembered before it is retried.
+     */
+    private Duration failureTtl = Duration.ofMinutes(1);
+
+    /**
+     * Key ring loads (Secrets Manager calls) started per second at most; misses beyond that fail. 0 = no limit.
+     */
+    private int maxLoadsPerSecond = 20;
+}
@@ -0,0 +1,97 @@
+package com.gab.authservice.tenant;
+
+import com.gab.authservice.invalidation.InvalidationEvent;
+import com.gab.authservice.invalidation.InvalidationListener;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Opt-in ({@code auth.tenants.enabled=true}) per-tenant issuers.
+ * <p>
+ * Every tenant other than the default one signs with its own key pair, puts its issuer into {@code iss} and its
+ * id into {@code tid}, and may cap the access token lifetime. Key rings are loaded on first use and kept in a
+ * {@link TenantCache}, so thousands of configured tenants cost nothing until they get traffic.
+ * </p>
+ * Tenant ids come from hosts, paths and unverified token claims, so they are checked against {@link #TENANT_ID}
+ * and {@code auth.tenants.allowed} before anything is loaded; unknown tenants are remembered as failures (apart
+ * from loaded key rings) and loads are capped by {@code auth.tenants.max-loads-per-second}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "auth.tenants.enabled", havingValue = "true")
+public class TenantRegistry implements InvalidationListener {
+
+    public static final Pattern TENANT_ID = Pattern.compile("[a-z0-9][a-z0-9-]{0,62}");
+
+    private final TenantProperties properties;
+    private final TenantCache<TenantKeys> keys;
+
+    @Autowired
+    public TenantRegistry(TenantProperties properties, Environment environment, MeterRegistry meterRegistry) {
+        this(properties, new TenantKeyLoader(properties, environment), meterRegistry);
+    }
+
+    TenantRegistry(TenantProperties properties, Function<String, TenantKeys> loader, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.keys = new TenantCache<>("keys", loader, properties.getMaxCached(), properties.getIdleTimeout(),
+                properties.getFailureTtl(), properties.getMaxLoadsPerSecond(), System::nanoTime, meterRegistry);
+        if (properties.getAllowed().isEmpty()) {
+            log.warn("auth.tenants.allowed is empty: any well-formed tenant id in a request or token is looked up, "
+                    + "limited to {} loads per second", properties.getMaxLoadsPerSecond());
+        }
+    }
+
+    public String defaultTenant() {
+        return properties.getDefaultTenant();
+    }
+
+    public boolean isDefault(String tenant) {
+        return tenant == null || tenant.equals(properties.getDefaultTenant());
+    }
+
+    /**
+     * @throws IllegalArgumentException if the id is malformed or not allowed
+     * @throws RuntimeException if the tenant's keys can't be loaded
+     */
+    public TenantKeys keys(String tenant) {
+        return keys.get(validate(tenant));
+    }
+
+    public String validate(String tenant) {
+        if (tenant == null || !TENANT_ID.matcher(tenant).matches()) {
+            throw new IllegalArgumentException("Invalid tenant");
+        }
+        if (!properties.getAllowed().isEmpty() && !properties.getAllowed().contains(tenant)
+                && !isDefault(tenant)) {
+            throw new IllegalArgumentException("Unknown tenant " + tenant);
+        }
+        return tenant;
+    }
+
+    /**
+     * KEYS_ROTATED with a tenant as key drops that tenant's keys, without one all of them.
+     */
+    @Override
+    public void onInvalidation(InvalidationEvent event) {
+        if (event.getType() != InvalidationEvent.Type.KEYS_ROTATED) {
+            return;
+        }
+        if (event.getKey() == null) {
+            keys.invalidateAll();
+        } else {
+            keys.invalidate(event.getKey());
+        }
+    }
+
+    @Override
+    public void resync() {
+        keys.invalidateAll();
+    }
+}
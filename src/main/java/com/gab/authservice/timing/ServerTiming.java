@@ -0,0 +1,136 @@
+package com.gab.authservice.timing;
+
+import java.util.Arrays;
+
+/**
+ * Per-request phase timer behind the {@code Server-Timing} response header.
+ * <p>
+ * Usage anywhere on the request thread:
+ * <pre>
+ * try (ServerTiming.Phase ignored = ServerTiming.phase("sign")) {
+ *     ...
+ * }
+ * </pre>
+ * Outside an instrumented request (or with {@code auth.timing.enabled=false}) {@link #phase(String)}
+ * is a ThreadLocal read returning a shared no-op, so instrumented code costs next to nothing.
+ * Inside one, the request's recorder is reused as the {@link Phase}, so timing allocates nothing
+ * per phase either. Repeated phases with the same name (e.g. three token parses) are summed.
+ * </p>
+ */
+public final class ServerTiming {
+
+    private static final ThreadLocal<Recorder> CURRENT = new ThreadLocal<>();
+
+    private static final Phase NOOP = () -> { };
+
+    private ServerTiming() {
+    }
+
+    public static Phase phase(String name) {
+        Recorder recorder = CURRENT.get();
+        return recorder == null ? NOOP : recorder.start(name);
+    }
+
+    static Recorder begin() {
+        Recorder recorder = new Recorder(System.nanoTime());
+        CURRENT.set(recorder);
+        return recorder;
+    }
+
+    static void end() {
+        CURRENT.remove();
+    }
+
+    @FunctionalInterface
+    public interface Phase extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /**
+     * Durations per phase name for one request. Only touched by the request thread.
+     */
+    static final class Recorder implements Phase {
+
+        private static final int MAX_DEPTH = 8;
+
+        private final long requestStart;
+        private String[] names = new String[8];
+        private long[] nanos = new long[8];
+        private int count;
+
+        private final int[] openIndex = new int[MAX_DEPTH];
+        private final long[] openStart = new long[MAX_DEPTH];
+        private int depth;
+        // phases nested deeper than MAX_DEPTH are not recorded, but still have to be closed
+        private int overflow;
+
+        Recorder(long requestStart) {
+            this.requestStart = requestStart;
+        }
+
+        Phase start(String name) {
+            if (depth == MAX_DEPTH) {
+                overflow++;
+                return this;
+            }
+            openIndex[depth] = indexOf(name);
+            openStart[depth] = System.nanoTime();
+            depth++;
+            return this;
+        }
+
+        @Override
+        public void close() {
+            if (overflow > 0) {
+                overflow--;
+                return;
+            }
+            if (depth == 0) {
+                return;
+            }
+            depth--;
+            nanos[openIndex[depth]] += System.nanoTime() - openStart[depth];
+        }
+
+        private int indexOf(String name) {
+            for (int i = 0; i < count; i++) {
+                // phase names are string literals, identity check first
+                if (names[i] == name || names[i].equals(name)) {
+                    return i;
+                }
+            }
+            if (count == names.length) {
+                names = Arrays.copyOf(names, count * 2);
+                nanos = Arrays.copyOf(nanos, count * 2);
+            }
+            names[count] = name;
+            return count++;
+        }
+
+        long totalNanos() {
+            return System.nanoTime() - requestStart;
+        }
+
+        /**
+         * {@code name;dur=1.23, ..., total;dur=4.56} with durations in milliseconds.
+         */
+        String toHeaderValue(long totalNanos) {
+            StringBuilder header = new StringBuilder(24 * (count + 1));
+            for (int i = 0; i < count; i++) {
+                appendMetric(header, names[i], nanos[i]).append(", ");
+            }
+            return appendMetric(header, "total", totalNanos).toString();
+        }
+
+        private static StringBuilder appendMetric(StringBuilder header, String name, long nanos) {
+            long micros = nanos / 1_000;
+            header.append(name).append(";dur=").append(micros / 1_000).append('.');
+            long fraction = (micros % 1_000) / 10;
+            if (fraction < 10) {
+                header.append('0');
+            }
+            return header.append(fraction);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.gab.authservice.timing;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Opt-in ({@code auth.timing.enabled=true}) phase timing for {@code /auth/**}.
+ * <p>
+ * Phases recorded through {@link ServerTiming#phase(String)} are sent back as a {@code Server-Timing}
+ * header and, for a {@code auth.timing.log-sample-rate} fraction of requests, logged as one line.
+ * Runs before the Spring Security chain so {@code JwtAuthFilter} is measured too.
+ * </p>
+ */
+@Slf4j
+@Component
+// right after TenantFilter, which turns /t/<tenant>/auth/... into /auth/...
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+@ConditionalOnProperty(name = "auth.timing.enabled", havingValue = "true")
+public class ServerTimingFilter extends OncePerRequestFilter {
+
+    static final String HEADER = "Server-Timing";
+
+    private final double logSampleRate;
+
+    public ServerTimingFilter(@Value("${auth.timing.log-sample-rate:0.01}") double logSampleRate) {
+        this.logSampleRate = logSampleRate;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getServletPath().startsWith("/auth/");
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain)
+            throws ServletException, IOException {
+
+        ServerTiming.Recorder recorder = ServerTiming.begin();
+        TimingResponse timingResponse = new TimingResponse(response, recorder);
+        try {
+            filterChain.doFilter(request, timingResponse);
+        } finally {
+            ServerTiming.end();
+            String header = timingResponse.writeHeader();
+            if (logSampleRate > 0 && ThreadLocalRandom.current().nextDouble() < logSampleRate) {
+                log.info("server-timing method={} path={} status={} {}",
+                        request.getMethod(), request.getServletPath(), response.getStatus(), header);
+            }
+        }
+    }
+
+    /**
+     * Adds the header right before the response is committed (first body write, flush or error),
+     * since headers can't be added afterwards.
+     */
+    private static final class TimingResponse extends HttpServletResponseWrapper {
+
+        private final ServerTiming.Recorder recorder;
+        private String header;
+
+        TimingResponse(HttpServletResponse response, ServerTiming.Recorder recorder) {
+            super(response);
+            this.recorder = recorder;
+        }
+
+        String writeHeader() {
+            if (header == null) {
+                header = recorder.toHeaderValue(recorder.totalNanos());
+                if (!isCommitted()) {
+                    setHeader(HEADER, header);
+                }
+            }
+            return header;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            writeHeader();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            writeHeader();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            writeHeader();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            writeHeader();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            writeHeader();
+            super.sendError(sc, msg);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.gab.authservice.warmup;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * {@code auth.warmup.*}; see {@link WarmupRunner}.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties("auth.warmup")
+public class WarmupProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Sign + verify round trips, enough for the JIT to compile the jjwt and RSA paths.
+     */
+    private int tokenIterations = 500;
+
+    /**
+     * Password hash + match round trips. Each one costs as much as a real login, keep this small.
+     */
+    private int passwordIterations = 5;
+
+    /**
+     * Runs of each login/refresh query.
+     */
+    private int queryIterations = 50;
+
+    /**
+     * Connections opened up front; capped at the pool's maximum size.
+     */
+    private int poolConnections = 10;
+
+    /**
+     * Warm-up stops after this long even if iterations are left, so a slow node still becomes ready.
+     */
+    private Duration maxDuration = Duration.ofSeconds(30);
+}
@@ -0,0 +1,271 @@
+package com.gab.authservice.warmup;
+
+import com.gab.authservice.config.ReplicaRoutingDataSource;
+import com.gab.authservice.entity.Role;
+import com.gab.authservice.entity.User;
+import com.gab.authservice.repository.RefreshTokenRepository;
+import com.gab.authservice.repository.UserRepository;
+import com.gab.authservice.service.JwtService;
+import com.gab.authservice.shard.ShardRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.actuate.info.Info;
+import org.springframework.boot.actuate.info.InfoContributor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Exercises the login/refresh code paths once at startup, so the first real requests after a deploy don't pay
+ * for key loading, JIT compilation, Hibernate query plans and connection setup.
+ * <p>
+ * Spring Boot only reports the readiness probe ({@code /actuator/health/readiness}) as {@code UP} after all
+ * {@link ApplicationRunner}s have finished, so the load balancer keeps the node out of rotation until this
+ * is done. Each step is bounded by {@code auth.warmup.max-duration} overall, and a failing step is logged and
+ * skipped rather than keeping the node unready. The result is logged and shown under {@code warmup} in
+ * {@code /actuator/info}.
+ * </p>
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(name = "auth.warmup.enabled", havingValue = "true", matchIfMissing = true)
+public class WarmupRunner implements ApplicationRunner, InfoContributor {
+
+    // never stored; only used for signing/hashing and lookups that find nothing
+    private static final String SYNTHETIC_EMAIL = "warmup@localhost.invalid";
+
+    private final WarmupProperties properties;
+    private final JwtService jwtService;
+    private final PasswordEncoder passwordEncoder;
+    private final UserRepository userRepository;
+    private final RefreshTokenRepository refreshTokenRepository;
+    // every DataSource bean; the pools are found behind the routing ones (replicas, shards)
+    private final ObjectProvider<DataSource> dataSources;
+
+    private volatile Map<String, Object> report = Map.of("status", "pending");
+
+    public WarmupRunner(WarmupProperties properties, JwtService jwtService, PasswordEncoder passwordEncoder,
+                        UserRepository userRepository, RefreshTokenRepository refreshTokenRepository,
+                        ObjectProvider<DataSource> dataSources) {
+        this.properties = properties;
+        this.jwtService = jwtService;
+        this.passwordEncoder = passwordEncoder;
+        this.userRepository = userRepository;
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.dataSources = dataSources;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long deadline = System.nanoTime() + properties.getMaxDuration().toNanos();
+        long start = System.nanoTime();
+        Map<String, Object> steps = new LinkedHashMap<>();
+        boolean complete = true;
+
+        complete &= step(steps, "connection-pool", deadline, this::prefillPool);
+        complete &= step(steps, "tokens", deadline, () -> warmTokens(deadline));
+        complete &= step(steps, "passwords", deadline, () -> warmPasswords(deadline));
+        complete &= step(steps, "queries", deadline, () -> warmQueries(deadline));
+
+        long totalMillis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("status", complete ? "complete" : "partial");
+        result.put("durationMs", totalMillis);
+        result.put("steps", steps);
+        report = result;
+        log.info("Warm-up {} in {} ms: {}", result.get("status"), totalMillis, steps);
+    }
+
+    /**
+     * Runs one step and records its duration and how many iterations it got through.
+     *
+     * @return false if the step failed or ran out of time
+     */
+    private boolean step(Map<String, Object> steps, String name, long deadline, Step step) {
+        Map<String, Object> entry = new LinkedHashMap<>();
+        steps.put(name, entry);
+        if (System.nanoTime() >= deadline) {
+            entry.put("skipped", "max-duration reached");
+            return false;
+        }
+        long start = System.nanoTime();
+        boolean complete;
+        try {
+            Step.Result result = step.run();
+            if (result.skipped() != null) {
+                entry.put("skipped", result.skipped());
+                complete = false;
+            } else {
+                entry.put("iterations", result.done());
+                complete = result.done() >= result.planned();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Warm-up step {} failed", name, e);
+            entry.put("error", e.getClass().getSimpleName() + ": " + e.getMessage());
+            complete = false;
+        }
+        entry.put("durationMs", Duration.ofNanos(System.nanoTime() - start).toMillis());
+        return complete;
+    }
+
+    /**
+     * Opens up to {@code pool-connections} connections in every Hikari pool: the primary, and with replicas or
+     * shards configured also the pools behind {@link ReplicaRoutingDataSource} and {@link ShardRoutingDataSource}.
+     * A pool that can't be filled is logged and the others are still warmed.
+     */
+    private Step.Result prefillPool() {
+        List<HikariDataSource> pools = pools();
+        if (pools.isEmpty()) {
+            return Step.Result.skipped("no connection pool found");
+        }
+        int planned = 0;
+        int done = 0;
+        for (HikariDataSource pool : pools) {
+            int wanted = Math.min(properties.getPoolConnections(), pool.getMaximumPoolSize());
+            planned += wanted;
+            done += prefill(pool, wanted);
+        }
+        return new Step.Result(planned, done);
+    }
+
+    private int prefill(HikariDataSource pool, int wanted) {
+        // holding them all at once makes the pool create them now instead of in the background
+        List<Connection> held = new ArrayList<>(wanted);
+        try {
+            for (int i = 0; i < wanted; i++) {
+                Connection connection = pool.getConnection();
+                held.add(connection);
+                connection.isValid(1);
+            }
+        } catch (SQLException e) {
+            log.warn("Warm-up could only open {} of {} connections in pool {}: {}",
+                    held.size(), wanted, pool.getPoolName(), e.getMessage());
+        } finally {
+            for (Connection connection : held) {
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    log.debug("Closing warm-up connection failed", e);
+                }
+            }
+        }
+        return held.size();
+    }
+
+    private List<HikariDataSource> pools() {
+        Set<HikariDataSource> pools = Collections.newSetFromMap(new IdentityHashMap<>());
+        dataSources.orderedStream().forEach(dataSource -> {
+            if (dataSource instanceof ReplicaRoutingDataSource replicas) {
+                replicas.replicas().forEach(replica -> addHikari(pools, replica));
+            } else if (dataSource instanceof ShardRoutingDataSource shards) {
+                shards.getResolvedDataSources().values().forEach(shard -> addHikari(pools, shard));
+            } else {
+                addHikari(pools, dataSource);
+            }
+        });
+        return List.copyOf(pools);
+    }
+
+    private static void addHikari(Set<HikariDataSource> pools, DataSource dataSource) {
+        try {
+            // a LazyConnectionDataSourceProxy isn't a wrapper for its target, so routing setups only match below
+            if (dataSource instanceof HikariDataSource hikari) {
+                pools.add(hikari);
+            } else if (dataSource != null && dataSource.isWrapperFor(HikariDataSource.class)) {
+                pools.add(dataSource.unwrap(HikariDataSource.class));
+            }
+        } catch (SQLException e) {
+            log.debug("Could not unwrap {}", dataSource, e);
+        }
+    }
+
+    private Step.Result warmTokens(long deadline) {
+        User user = syntheticUser();
+        int planned = properties.getTokenIterations();
+        int done = 0;
+        while (done < planned && System.nanoTime() < deadline) {
+            String token = jwtService.generateToken(user, Duration.ofMinutes(1));
+            jwtService.extractUsername(token);
+            jwtService.extractRole(token);
+            done++;
+        }
+        jwtService.getPublicKeyPEM();
+        return new Step.Result(planned, done);
+    }
+
+    private Step.Result warmPasswords(long deadline) {
+        int planned = properties.getPasswordIterations();
+        int done = 0;
+        while (done < planned && System.nanoTime() < deadline) {
+            String hash = passwordEncoder.encode("warm-up-password-" + done);
+            passwordEncoder.matches("warm-up-password-" + done, hash);
+            done++;
+        }
+        return new Step.Result(planned, done);
+    }
+
+    private Step.Result warmQueries(long deadline) {
+        int planned = properties.getQueryIterations();
+        int done = 0;
+        while (done < planned && System.nanoTime() < deadline) {
+            // the statements behind signup, login and refresh; all of them find nothing
+            userRepository.existsByEmail(SYNTHETIC_EMAIL);
+            userRepository.findByEmail(SYNTHETIC_EMAIL);
+            refreshTokenRepository.findByTokenWithUser(SYNTHETIC_EMAIL);
+            done++;
+        }
+        return new Step.Result(planned, done);
+    }
+
+    private static User syntheticUser() {
+        return User.builder()
+                .id(new UUID(0, 0))
+                .email(SYNTHETIC_EMAIL)
+                .role(Role.USER)
+                .build();
+    }
+
+    @Override
+    public void contribute(Info.Builder builder) {
+        builder.withDetail("warmup", report);
+    }
+
+    @FunctionalInterface
+    private interface Step {
+
+        Result run();
+
+        /**
+         * @param skipped why the step had nothing to do, or {@code null}
+         */
+        record Result(int planned, int done, String skipped) {
+
+            Result(int planned, int done) {
+                this(planned, done, null);
+            }
+
+            static Result skipped(String reason) {
+                return new Result(0, 0, reason);
+            }
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.gab.authservice.writebehind;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of refresh token records, split into numbered segment files
+ * ({@code segment-<n>.log}) so flushed parts can be deleted as a whole.
+ * <p>
+ * Each record is framed as {@code [int length][int crc32][payload]}. A record only counts as written once
+ * {@link #sync()} has returned; concurrent callers share one {@code fsync} (group commit). On startup,
+ * {@link #replay(Consumer)} returns the records of all existing segments in order and stops at the first
+ * torn or corrupt frame of a segment, i.e. a write that was cut off by a crash.
+ * </p>
+ */
+@Slf4j
+public class RefreshTokenJournal implements AutoCloseable {
+
+    private static final String PREFIX = "segment-";
+    private static final String SUFFIX = ".log";
+    private static final int HEADER_BYTES = 8;
+    private static final int MAX_RECORD_BYTES = 64 * 1024;
+
+    private final Path directory;
+    private final List<Long> recovered;
+    private final Object syncLock = new Object();
+
+    // guarded by this
+    private long segment;
+    private FileChannel channel;
+    private long segmentBytes;
+    private long appended;
+    // guarded by syncLock
+    private long synced;
+
+    public RefreshTokenJournal(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+        this.recovered = existingSegments();
+        this.segment = recovered.isEmpty() ? 1 : recovered.get(recovered.size() - 1) + 1;
+        this.channel = open(segment);
+    }
+
+    /**
+     * Feeds the payloads of all segments that existed when the journal was opened to {@code consumer}, oldest first.
+     */
+    public void replay(Consumer<byte[]> consumer) throws IOException {
+        for (long id : recovered) {
+            Path file = path(id);
+            if (!Files.exists(file)) {
+                continue;
+            }
+            ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file));
+            while (bytes.remaining() >= HEADER_BYTES) {
+                int length = bytes.getInt();
+                int crc = bytes.getInt();
+                if (length < 0 || length > MAX_RECORD_BYTES || length > bytes.remaining()) {
+                    log.warn("Truncated record at offset {} of {}, ignoring the rest of the segment", bytes.position() - HEADER_BYTES, file);
+                    break;
+                }
+                byte[] payload = new byte[length];
+                bytes.get(payload);
+                if (crc(payload) != crc) {
+                    log.warn("Corrupt record at offset {} of {}, ignoring the rest of the segment", bytes.position() - length - HEADER_BYTES, file);
+                    break;
+                }
+                consumer.accept(payload);
+            }
+        }
+    }
+
+    /**
+     * Appends a record to the current segment and returns that segment's id. Not durable until {@link #sync()}.
+     */
+    public synchronized long append(byte[] payload) throws IOException {
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+        frame.putInt(payload.length).putInt(crc(payload)).put(payload).flip();
+        while (frame.hasRemaining()) {
+            channel.write(frame);
+        }
+        segmentBytes += HEADER_BYTES + payload.length;
+        appended += HEADER_BYTES + payload.length;
+        return segment;
+    }
+
+    /**
+     * Forces everything appended so far to disk. If another thread's force already covered it, returns right away.
+     */
+    public void sync() throws IOException {
+        long target;
+        synchronized (this) {
+            target = appended;
+        }
+        synchronized (syncLock) {
+            if (synced >= target) {
+                return;
+            }
+            long upTo;
+            FileChannel current;
+            synchronized (this) {
+                upTo = appended;
+                current = channel;
+            }
+            current.force(false);
+            synced = upTo;
+        }
+    }
+
+    /**
+     * Closes the current segment (if it has any records) and starts a new one.
+     *
+     * @return the id of the newest segment that no longer receives appends
+     */
+    public long rotate() throws IOException {
+        synchronized (syncLock) {
+            synchronized (this) {
+                if (segmentBytes == 0) {
+                    return segment - 1;
+                }
+                channel.force(false);
+                channel.close();
+                synced = appended;
+                long sealed = segment;
+                segment++;
+                segmentBytes = 0;
+                channel = open(segment);
+                return sealed;
+            }
+        }
+    }
+
+    /**
+     * Deletes all segments up to and including {@code sealed}; their records have been persisted elsewhere.
+     */
+    public void deleteUpTo(long sealed) throws IOException {
+        for (long id : existingSegments()) {
+            if (id <= sealed) {
+                Files.deleteIfExists(path(id));
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (syncLock) {
+            synchronized (this) {
+                channel.force(false);
+                channel.close();
+            }
+        }
+    }
+
+    private List<Long> existingSegments() throws IOException {
+        List<Long> ids = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(PREFIX) && name.endsWith(SUFFIX))
+                    .forEach(name -> ids.add(Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()))));
+        }
+        ids.sort(null);
+        return ids;
+    }
+
+    private FileChannel open(long id) throws IOException {
+        return FileChannel.open(path(id), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private Path path(long id) {
+        return directory.resolve(PREFIX + id + SUFFIX);
+    }
+
+    private static int crc(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+}
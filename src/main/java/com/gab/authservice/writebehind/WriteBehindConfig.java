@@ -0,0 +1,43 @@
+package com.gab.authservice.writebehind;
+
+import com.gab.authservice.repository.UserRepository;
+import com.gab.authservice.service.ReadYourWritesTracker;
+import com.gab.authservice.shard.ShardRouter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Configuration
+@ConditionalOnProperty(name = "auth.refresh.write-behind.enabled", havingValue = "true")
+public class WriteBehindConfig {
+
+    // Closed by the store after its final flush
+    @Bean(destroyMethod = "")
+    public RefreshTokenJournal refreshTokenJournal(
+            @Value("${auth.refresh.write-behind.journal-dir:data/refresh-token-journal}") Path directory) throws IOException {
+        return new RefreshTokenJournal(directory);
+    }
+
+    @Bean(destroyMethod = "close")
+    public WriteBehindRefreshTokenStore writeBehindRefreshTokenStore(
+            RefreshTokenJournal journal,
+            JdbcTemplate jdbcTemplate,
+            UserRepository userRepository,
+            ReadYourWritesTracker readYourWritesTracker,
+            ObjectProvider<ShardRouter> shardRouter,
+            MeterRegistry meterRegistry,
+            @Value("${auth.refresh.write-behind.max-pending:10000}") int maxPending,
+            @Value("${auth.refresh.write-behind.batch-size:256}") int batchSize,
+            @Value("${auth.refresh.write-behind.flush-interval:100ms}") Duration flushInterval) throws IOException {
+        return new WriteBehindRefreshTokenStore(journal, jdbcTemplate, userRepository, readYourWritesTracker,
+                shardRouter.getIfAvailable(), maxPending, batchSize, flushInterval, meterRegistry);
+    }
+}
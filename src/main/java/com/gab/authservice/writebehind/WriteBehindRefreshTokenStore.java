@@ -0,0 +1,367 @@
+package com.gab.authservice.writebehind;
+
+import com.gab.authservice.entity.RefreshToken;
+import com.gab.authservice.entity.User;
+import com.gab.authservice.invalidation.InvalidationEvent;
+import com.gab.authservice.invalidation.InvalidationListener;
+import com.gab.authservice.repository.UserRepository;
+import com.gab.authservice.service.ReadYourWritesTracker;
+import com.gab.authservice.shard.ShardContext;
+import com.gab.authservice.shard.ShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind persistence of new refresh tokens ({@code auth.refresh.write-behind.enabled=true}).
+ * <p>
+ * {@link #add} appends the token to the {@link RefreshTokenJournal}, waits for the fsync and puts it in an
+ * in-memory pending map. Login returns without a database round trip. A flusher thread inserts pending tokens
+ * into {@code refresh_tokens} in batches ({@code ON CONFLICT DO NOTHING}, so replays are harmless) and then
+ * deletes the journal segments they came from. Tokens found in the journal on startup are pending again
+ * until flushed.
+ * </p>
+ * <p>
+ * Lookups check the pending map before the database. Logout purges a user's pending tokens and journals a
+ * tombstone so they aren't resurrected by a later replay; a logout on another node does the same here through
+ * its {@code USER_LOGGED_OUT} event, before this node's flusher can insert them. When more than
+ * {@code maxPending} tokens are waiting (e.g. the database is down), {@link #add} refuses and the caller inserts
+ * synchronously.
+ * </p>
+ * <p>
+ * Pending tokens are only visible on the node that issued them, so a refresh on another node within the flush
+ * interval fails. Route {@code /auth/refresh} with session affinity when this is enabled on several nodes.
+ * </p>
+ * Metrics: {@code auth.refresh.write-behind.pending}, {@code auth.refresh.write-behind.flushed}
+ * and {@code auth.refresh.write-behind.failed}.
+ * <p>
+ * With sharding, each batch is split by the shard its users live on.
+ * </p>
+ */
+@Slf4j
+public class WriteBehindRefreshTokenStore implements InvalidationListener, AutoCloseable {
+
+    static final String INSERT_SQL =
+            "insert into refresh_tokens (token, user_id, expiry_date) values (?, ?, ?) on conflict (token) do nothing";
+
+    private static final byte TOKEN = 'T';
+    private static final byte TOMBSTONE = 'D';
+
+    private final RefreshTokenJournal journal;
+    private final JdbcTemplate jdbcTemplate;
+    private final UserRepository userRepository;
+    private final ReadYourWritesTracker readYourWritesTracker;
+    // null without sharding
+    private final ShardRouter shardRouter;
+    private final int maxPending;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+    // held while a batch is inserted, so a logout can't interleave between its purge and its DELETE
+    private final Object flushLock = new Object();
+
+    private final Counter flushed;
+    private final Counter failed;
+
+    private final Thread flusher;
+    private final Object wakeup = new Object();
+    private volatile boolean running = true;
+
+    public WriteBehindRefreshTokenStore(RefreshTokenJournal journal, JdbcTemplate jdbcTemplate, UserRepository userRepository,
+                                        ReadYourWritesTracker readYourWritesTracker, ShardRouter shardRouter, int maxPending,
+                                        int batchSize, Duration flushInterval, MeterRegistry meterRegistry) throws IOException {
+        this.journal = journal;
+        this.jdbcTemplate = jdbcTemplate;
+        this.userRepository = userRepository;
+        this.readYourWritesTracker = readYourWritesTracker;
+        this.shardRouter = shardRouter;
+        this.maxPending = maxPending;
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushInterval.toMillis();
+
+        this.flushed = meterRegistry.counter("auth.refresh.write-behind.flushed");
+        this.failed = meterRegistry.counter("auth.refresh.write-behind.failed");
+        Gauge.builder("auth.refresh.write-behind.pending", pending, Map::size).register(meterRegistry);
+
+        recover();
+        this.flusher = new Thread(this::run, "refresh-token-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    private void recover() throws IOException {
+        // the journal has just been opened on a fresh segment, so this is the newest recovered one
+        long recoveredSegment = journal.rotate();
+        journal.replay(payload -> {
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+                byte type = in.readByte();
+                if (type == TOKEN) {
+                    String token = in.readUTF();
+                    UUID userId = UUID.fromString(in.readUTF());
+                    String email = in.readUTF();
+                    Instant expiry = Instant.ofEpochMilli(in.readLong());
+                    pending.put(token, new Pending(token, userId, email, expiry, null, recoveredSegment));
+                } else if (type == TOMBSTONE) {
+                    String email = in.readUTF();
+                    pending.values().removeIf(entry -> entry.email.equals(email));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        if (!pending.isEmpty()) {
+            log.info("Recovered {} refresh token(s) from the write-behind journal", pending.size());
+        }
+    }
+
+    /**
+     * Journals a new refresh token and makes it visible to {@link #find(String)}.
+     *
+     * @return false if too many tokens are waiting to be flushed; the caller should persist it itself
+     */
+    public boolean add(String token, User user, Instant expiry) {
+        if (pending.size() >= maxPending) {
+            return false;
+        }
+        byte[] record = encode(out -> {
+            out.writeByte(TOKEN);
+            out.writeUTF(token);
+            out.writeUTF(user.getId().toString());
+            out.writeUTF(user.getEmail());
+            out.writeLong(expiry.toEpochMilli());
+        });
+        try {
+            // append and publish atomically with respect to the flusher's rotate-and-snapshot
+            synchronized (journal) {
+                long segment = journal.append(record);
+                pending.put(token, new Pending(token, user.getId(), user.getEmail(), expiry, user, segment));
+            }
+            journal.sync();
+        } catch (IOException e) {
+            pending.remove(token);
+            throw new UncheckedIOException("Failed to journal refresh token", e);
+        }
+        return true;
+    }
+
+    /**
+     * The refresh token if it hasn't been flushed yet, with its user.
+     */
+    public Optional<RefreshToken> find(String token) {
+        Pending entry = pending.get(token);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        User user = entry.user;
+        if (user == null) {
+            // recovered from the journal, only the id is known
+            user = userRepository.findById(entry.userId).orElse(null);
+            if (user == null) {
+                return Optional.empty();
+            }
+            entry.user = user;
+        }
+        return Optional.of(RefreshToken.builder().token(entry.token).user(user).expiryDate(entry.expiry).build());
+    }
+
+    /**
+     * Drops a pending token, e.g. because it expired before it was flushed.
+     */
+    public void remove(String token) {
+        pending.remove(token);
+    }
+
+    /**
+     * Drops all pending tokens of this user and journals that, so a replay after a crash won't bring them back.
+     * Call before deleting the user's tokens from the database.
+     */
+    public void purge(String email) {
+        synchronized (flushLock) {
+            pending.values().removeIf(entry -> entry.email.equals(email));
+            try {
+                synchronized (journal) {
+                    journal.append(encode(out -> {
+                        out.writeByte(TOMBSTONE);
+                        out.writeUTF(email);
+                    }));
+                }
+                journal.sync();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to journal refresh token purge", e);
+            }
+        }
+    }
+
+    @Override
+    public void onInvalidation(InvalidationEvent event) {
+        if (event.getType() == InvalidationEvent.Type.USER_LOGGED_OUT && event.getKey() != null) {
+            purge(event.getKey());
+        }
+    }
+
+    @Override
+    public void resync() {
+        // pending tokens are this node's own writes, not a cache; a missed logout can't be told apart from none
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                synchronized (wakeup) {
+                    if (running) {
+                        wakeup.wait(flushIntervalMillis);
+                    }
+                }
+                if (running) {
+                    flush();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                log.error("Refresh token flush failed", e);
+            }
+        }
+    }
+
+    /**
+     * Inserts everything journalled so far and deletes the journal segments that are fully persisted.
+     *
+     * @return true if nothing was left behind
+     */
+    boolean flush() {
+        synchronized (flushLock) {
+            long sealed;
+            List<Pending> batch = new ArrayList<>();
+            try {
+                synchronized (journal) {
+                    sealed = journal.rotate();
+                    for (Pending entry : pending.values()) {
+                        if (entry.segment <= sealed) {
+                            batch.add(entry);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                log.error("Failed to rotate the refresh token journal", e);
+                return false;
+            }
+
+            boolean complete = true;
+            for (int from = 0; from < batch.size(); from += batchSize) {
+                List<Pending> chunk = batch.subList(from, Math.min(batch.size(), from + batchSize));
+                if (!insert(chunk)) {
+                    complete = false;
+                }
+            }
+            if (complete) {
+                try {
+                    journal.deleteUpTo(sealed);
+                } catch (IOException e) {
+                    log.warn("Failed to delete flushed refresh token journal segments", e);
+                }
+            }
+            return complete;
+        }
+    }
+
+    private boolean insert(List<Pending> chunk) {
+        Map<Integer, List<Object[]>> rowsByShard = new LinkedHashMap<>();
+        try {
+            for (Pending entry : chunk) {
+                int shard = shardRouter == null ? 0 : shardRouter.locateUser(entry.email);
+                rowsByShard.computeIfAbsent(shard, key -> new ArrayList<>(chunk.size()))
+                        .add(new Object[] {entry.token, entry.userId, Timestamp.from(entry.expiry)});
+            }
+            if (shardRouter == null) {
+                jdbcTemplate.batchUpdate(INSERT_SQL, rowsByShard.get(0));
+            } else {
+                rowsByShard.forEach((shard, rows) -> ShardContext.on(shard, () -> jdbcTemplate.batchUpdate(INSERT_SQL, rows)));
+            }
+        } catch (RuntimeException e) {
+            failed.increment(chunk.size());
+            log.error("Failed to insert {} refresh token(s), will retry", chunk.size(), e);
+            return false;
+        }
+        for (Pending entry : chunk) {
+            // the row may only be on the primary for a moment
+            readYourWritesTracker.recordWrite(entry.token);
+            pending.remove(entry.token, entry);
+        }
+        flushed.increment(chunk.size());
+        return true;
+    }
+
+    int pendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Stops the flusher and makes a last attempt to flush; whatever fails stays in the journal.
+     */
+    @Override
+    public void close() throws Exception {
+        // no interrupt: it would close the journal's FileChannel mid-write
+        synchronized (wakeup) {
+            running = false;
+            wakeup.notifyAll();
+        }
+        flusher.join(30_000);
+        flush();
+        journal.close();
+    }
+
+    private static byte[] encode(RecordWriter writer) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writer.write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    @FunctionalInterface
+    private interface RecordWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private static final class Pending {
+        final String token;
+        final UUID userId;
+        final String email;
+        final Instant expiry;
+        final long segment;
+        volatile User user;
+
+        Pending(String token, UUID userId, String email, Instant expiry, User user, long segment) {
+            this.token = token;
+            this.userId = userId;
+            this.email = email;
+            this.expiry = expiry;
+            this.user = user;
+            this.segment = segment;
+        }
+    }
+}
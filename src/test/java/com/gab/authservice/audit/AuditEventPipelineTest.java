@@ -0,0 +1,190 @@
+package com.gab.authservice.audit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuditEventPipelineTest {
+
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void events_shouldBeWrittenInBatches() throws Exception {
+        CapturingSink sink = new CapturingSink();
+        AuditEventPipeline pipeline = new AuditEventPipeline(sink, 1024, 10, Duration.ofMillis(20),
+                AuditEventPipeline.OverflowPolicy.DROP, Duration.ZERO, meterRegistry);
+
+        sink.blockWrites();
+        pipeline.record(AuditEvent.Type.LOGIN_SUCCESS, "first@example.com", "127.0.0.1");
+        sink.awaitFirstWrite();
+        // the flusher is stuck on the first batch, so these pile up and go out together
+        for (int i = 0; i < 25; i++) {
+            pipeline.record(AuditEvent.Type.REFRESH, "user" + i + "@example.com", "127.0.0.1");
+        }
+        sink.releaseWrites();
+        pipeline.close();
+
+        assertEquals(26, sink.events().size());
+        assertEquals(List.of(1, 10, 10, 5), sink.batchSizes);
+        assertEquals(26, meterRegistry.counter("auth.audit.events.written").count());
+        assertTrue(sink.closed);
+    }
+
+    @Test
+    void dropPolicy_shouldCountDropsWhenQueueIsFull() throws Exception {
+        CapturingSink sink = new CapturingSink();
+        AuditEventPipeline pipeline = new AuditEventPipeline(sink, 2, 10, Duration.ofMillis(20),
+                AuditEventPipeline.OverflowPolicy.DROP, Duration.ZERO, meterRegistry);
+
+        sink.blockWrites();
+        pipeline.record(AuditEvent.Type.LOGOUT, "a@example.com", null);
+        sink.awaitFirstWrite();
+        for (int i = 0; i < 5; i++) {
+            pipeline.record(AuditEvent.Type.LOGOUT, "b@example.com", null);
+        }
+
+        assertEquals(3, meterRegistry.counter("auth.audit.events.dropped").count());
+        assertEquals(2, meterRegistry.get("auth.audit.queue.size").gauge().value());
+
+        sink.releaseWrites();
+        pipeline.close();
+        assertEquals(3, sink.events().size());
+    }
+
+    @Test
+    void blockPolicy_shouldWaitForSpace() throws Exception {
+        CapturingSink sink = new CapturingSink();
+        AuditEventPipeline pipeline = new AuditEventPipeline(sink, 1, 1, Duration.ofMillis(5),
+                AuditEventPipeline.OverflowPolicy.BLOCK, Duration.ofSeconds(5), meterRegistry);
+
+        for (int i = 0; i < 20; i++) {
+            pipeline.record(AuditEvent.Type.LOGIN_FAILURE, "c@example.com", null);
+        }
+        pipeline.close();
+
+        assertEquals(20, sink.events().size());
+        assertEquals(0, meterRegistry.counter("auth.audit.events.dropped").count());
+    }
+
+    @Test
+    void failingSink_shouldCountFailedEvents() throws Exception {
+        AuditSink sink = batch -> {
+            throw new IllegalStateException("database down");
+        };
+        AuditEventPipeline pipeline = new AuditEventPipeline(sink, 16, 16, Duration.ofMillis(5),
+                AuditEventPipeline.OverflowPolicy.DROP, Duration.ZERO, meterRegistry);
+
+        pipeline.record(AuditEvent.Type.REFRESH_FAILURE, null, "10.0.0.1");
+        pipeline.record(AuditEvent.Type.REFRESH_FAILURE, null, "10.0.0.1");
+        pipeline.close();
+
+        assertEquals(2, meterRegistry.counter("auth.audit.events.failed").count());
+    }
+
+    @Test
+    void eventsAfterClose_shouldBeCountedAsDropped() throws Exception {
+        CapturingSink sink = new CapturingSink();
+        AuditEventPipeline pipeline = new AuditEventPipeline(sink, 16, 16, Duration.ofMillis(5),
+                AuditEventPipeline.OverflowPolicy.BLOCK, Duration.ofSeconds(5), meterRegistry);
+
+        pipeline.record(AuditEvent.Type.LOGIN_SUCCESS, "a@example.com", null);
+        pipeline.close();
+        pipeline.record(AuditEvent.Type.LOGOUT, "a@example.com", null);
+
+        assertEquals(1, sink.events().size());
+        assertEquals(1, meterRegistry.counter("auth.audit.events.dropped").count());
+        assertEquals(0, meterRegistry.get("auth.audit.queue.size").gauge().value());
+    }
+
+    @Test
+    void oversizedEmail_shouldBeCutToColumnWidth() throws Exception {
+        CapturingSink sink = new CapturingSink();
+        AuditEventPipeline pipeline = new AuditEventPipeline(sink, 16, 16, Duration.ofMillis(5),
+                AuditEventPipeline.OverflowPolicy.DROP, Duration.ZERO, meterRegistry);
+
+        pipeline.record(AuditEvent.Type.LOGIN_FAILURE, "x".repeat(1000) + "@example.com", "a".repeat(100));
+        pipeline.close();
+
+        AuditEvent event = sink.events().get(0);
+        assertEquals(AuditEvent.MAX_PRINCIPAL_LENGTH, event.getPrincipal().length());
+        assertEquals(AuditEvent.MAX_REMOTE_ADDRESS_LENGTH, event.getRemoteAddress().length());
+    }
+
+    @Test
+    void rejectedBatch_shouldBeSplitSoOnlyTheBadEventIsLost() throws Exception {
+        List<AuditEvent> written = new CopyOnWriteArrayList<>();
+        AuditSink sink = batch -> {
+            if (batch.stream().anyMatch(event -> "bad@example.com".equals(event.getPrincipal()))) {
+                throw new IllegalStateException("value too long for type character varying(255)");
+            }
+            written.addAll(batch);
+        };
+        AuditEventPipeline pipeline = new AuditEventPipeline(sink, 16, 16, Duration.ofSeconds(1),
+                AuditEventPipeline.OverflowPolicy.DROP, Duration.ZERO, meterRegistry);
+
+        for (int i = 0; i < 4; i++) {
+            pipeline.record(AuditEvent.Type.LOGIN_SUCCESS, "user" + i + "@example.com", null);
+        }
+        pipeline.record(AuditEvent.Type.LOGIN_FAILURE, "bad@example.com", null);
+        for (int i = 4; i < 8; i++) {
+            pipeline.record(AuditEvent.Type.LOGIN_SUCCESS, "user" + i + "@example.com", null);
+        }
+        pipeline.close();
+
+        assertEquals(8, written.size());
+        assertEquals(8, meterRegistry.counter("auth.audit.events.written").count());
+        assertEquals(1, meterRegistry.counter("auth.audit.events.failed").count());
+    }
+
+    private static class CapturingSink implements AuditSink {
+        final List<List<AuditEvent>> batches = new CopyOnWriteArrayList<>();
+        final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        private final CountDownLatch firstWrite = new CountDownLatch(1);
+        private volatile CountDownLatch gate = new CountDownLatch(0);
+        volatile boolean closed;
+
+        void blockWrites() {
+            gate = new CountDownLatch(1);
+        }
+
+        void releaseWrites() {
+            gate.countDown();
+        }
+
+        void awaitFirstWrite() throws InterruptedException {
+            assertTrue(firstWrite.await(5, TimeUnit.SECONDS));
+        }
+
+        @Override
+        public void write(List<AuditEvent> batch) throws InterruptedException {
+            firstWrite.countDown();
+            gate.await(5, TimeUnit.SECONDS);
+            batches.add(new ArrayList<>(batch));
+            batchSizes.add(batch.size());
+        }
+
+        List<AuditEvent> events() {
+            return batches.stream().flatMap(List::stream).toList();
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.gab.authservice.authz;
+
+import com.gab.authservice.controller.DemoController;
+import org.aopalliance.intercept.MethodInvocation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authorization.AuthorizationResult;
+import org.springframework.security.authorization.method.PreAuthorizeAuthorizationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.util.SimpleMethodInvocation;
+import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Per-request authorization overhead of a {@code @PreAuthorize("hasRole('USER')")} route for a token that is
+ * already in {@code VerifiedTokenCache}: building the {@link Authentication} in {@code JwtAuthFilter} plus the
+ * method security decision.
+ * <p>
+ * {@code before} is the previous code path (new token, authorities and request details per request, SpEL decision);
+ * {@code after} is the shared {@link JwtAuthentication} and {@link PrecomputedAuthorizationManager}.
+ * Run with {@code -prof gc} (the profile's default) for bytes allocated per op.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuthorizationBenchmark {
+
+    private MockHttpServletRequest request;
+    private MethodInvocation invocation;
+    private PreAuthorizeAuthorizationManager spelManager;
+    private PrecomputedAuthorizationManager precomputedManager;
+    private Supplier<Authentication> cachedAuthentication;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        request = new MockHttpServletRequest("GET", "/api/demo/hello_user");
+        request.setRemoteAddr("10.0.0.1");
+        invocation = new SimpleMethodInvocation(new DemoController(null),
+                DemoController.class.getMethod("securedHello"));
+        spelManager = new PreAuthorizeAuthorizationManager();
+        precomputedManager = new PrecomputedAuthorizationManager(spelManager);
+        JwtAuthentication authentication = new JwtAuthentication("user@example.com", "USER");
+        cachedAuthentication = () -> authentication;
+    }
+
+    @Benchmark
+    public boolean before() {
+        UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+                "user@example.com", null, List.of(new SimpleGrantedAuthority("ROLE_" + "USER")));
+        authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+        AuthorizationResult result = spelManager.authorize(() -> authentication, invocation);
+        return result.isGranted();
+    }
+
+    @Benchmark
+    public boolean after() {
+        AuthorizationResult result = precomputedManager.authorize(cachedAuthentication, invocation);
+        return result.isGranted();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(AuthorizationBenchmark.class.getSimpleName()).build()).run();
+    }
+}
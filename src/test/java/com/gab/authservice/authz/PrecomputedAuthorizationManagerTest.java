@@ -0,0 +1,116 @@
+package com.gab.authservice.authz;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.authorization.AuthorizationResult;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.util.SimpleMethodInvocation;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrecomputedAuthorizationManagerTest {
+
+    private final AtomicInteger fallbackCalls = new AtomicInteger();
+    private final AuthorizationManager<MethodInvocation> fallback = (authentication, invocation) -> {
+        fallbackCalls.incrementAndGet();
+        return null;
+    };
+    private final PrecomputedAuthorizationManager manager = new PrecomputedAuthorizationManager(fallback);
+
+    @Test
+    void roleChecks_shouldApplyHierarchy() throws Exception {
+        Authentication user = new JwtAuthentication("user@example.com", "USER");
+        Authentication admin = new JwtAuthentication("admin@example.com", "ADMIN");
+
+        assertTrue(isGranted(user, new Routes(), "userOnly"));
+        assertTrue(isGranted(admin, new Routes(), "userOnly"));
+        assertFalse(isGranted(user, new Routes(), "adminOnly"));
+        assertTrue(isGranted(admin, new Routes(), "adminOnly"));
+        assertTrue(isGranted(user, new Routes(), "anyRole"));
+        assertTrue(isGranted(user, new Routes(), "authority"));
+        assertEquals(0, fallbackCalls.get());
+    }
+
+    @Test
+    void classLevelAnnotation_shouldApplyToMethodsWithoutOne() throws Exception {
+        assertFalse(isGranted(new JwtAuthentication("user@example.com", "USER"), new AdminRoutes(), "reload"));
+        assertTrue(isGranted(new JwtAuthentication("admin@example.com", "ADMIN"), new AdminRoutes(), "reload"));
+    }
+
+    @Test
+    void otherAuthentications_shouldBeMatchedByAuthorities() throws Exception {
+        Authentication anonymous = new AnonymousAuthenticationToken("key", "anonymousUser",
+                AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS"));
+        Authentication admin = new TestingAuthenticationToken("admin@example.com", null, "ROLE_ADMIN");
+
+        assertFalse(isGranted(anonymous, new Routes(), "userOnly"));
+        assertTrue(isGranted(admin, new Routes(), "userOnly"));
+        // unknown role claims never match a known role
+        assertFalse(isGranted(new JwtAuthentication("x@example.com", "GUEST"), new Routes(), "anyRole"));
+    }
+
+    @Test
+    void otherExpressions_shouldGoToFallback() throws Exception {
+        Authentication user = new JwtAuthentication("user@example.com", "USER");
+
+        assertNull(authorize(user, new Routes(), "combined"));
+        assertNull(authorize(user, new Routes(), "unknownRole"));
+        assertEquals(2, fallbackCalls.get());
+        // not annotated: no decision, and the fallback isn't asked either
+        assertNull(authorize(user, new Routes(), "open"));
+        assertEquals(2, fallbackCalls.get());
+    }
+
+    private boolean isGranted(Authentication authentication, Object target, String method) throws Exception {
+        return authorize(authentication, target, method).isGranted();
+    }
+
+    private AuthorizationResult authorize(Authentication authentication, Object target, String method) throws Exception {
+        return manager.authorize(() -> authentication,
+                new SimpleMethodInvocation(target, target.getClass().getMethod(method)));
+    }
+
+    public static class Routes {
+
+        @PreAuthorize("hasRole('USER')")
+        public void userOnly() {
+        }
+
+        @PreAuthorize("hasRole('ADMIN')")
+        public void adminOnly() {
+        }
+
+        @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+        public void anyRole() {
+        }
+
+        @PreAuthorize("hasAuthority('ROLE_USER')")
+        public void authority() {
+        }
+
+        @PreAuthorize("hasRole('USER') and #root != null")
+        public void combined() {
+        }
+
+        @PreAuthorize("hasRole('AUDITOR')")
+        public void unknownRole() {
+        }
+
+        public void open() {
+        }
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    public static class AdminRoutes {
+
+        public void reload() {
+        }
+    }
+}
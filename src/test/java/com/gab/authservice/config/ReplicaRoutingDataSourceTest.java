@@ -0,0 +1,134 @@
+package com.gab.authservice.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ReplicaRoutingDataSourceTest {
+
+    private DataSource primary;
+    private DataSource replica1;
+    private DataSource replica2;
+    private ReplicaRoutingDataSource replicas;
+    private DataSource routing;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        primary = mockDataSource();
+        replica1 = mockDataSource();
+        replica2 = mockDataSource();
+        replicas = new ReplicaRoutingDataSource(primary, List.of(replica1, replica2), Duration.ofMinutes(1));
+
+        // Same wiring as ReadReplicaConfig
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(primary);
+        proxy.setReadOnlyDataSource(replicas);
+        routing = proxy;
+        // the proxy fetches one primary connection up front to detect driver defaults
+        routing.getConnection().close();
+        clearInvocations(primary);
+    }
+
+    @Test
+    void writeTransaction_shouldUsePrimary() throws SQLException {
+        try (Connection connection = routing.getConnection()) {
+            connection.createStatement();
+        }
+
+        verify(primary).getConnection();
+        verify(replica1, never()).getConnection();
+        verify(replica2, never()).getConnection();
+    }
+
+    @Test
+    void readOnlyTransactions_shouldRoundRobinOverReplicas() throws SQLException {
+        readOnlyStatement();
+        readOnlyStatement();
+
+        verify(replica1).getConnection();
+        verify(replica2).getConnection();
+        verify(primary, never()).getConnection();
+    }
+
+    @Test
+    void failingReplica_shouldBeSkippedUntilCooldownEnds() throws SQLException {
+        when(replica1.getConnection()).thenThrow(new SQLException("connection refused"));
+
+        readOnlyStatement();
+        readOnlyStatement();
+        readOnlyStatement();
+
+        // replica1 is tried once, then only replica2 serves reads
+        verify(replica1, times(1)).getConnection();
+        verify(replica2, times(3)).getConnection();
+        assertFalse(replicas.isHealthy(0));
+        assertTrue(replicas.isHealthy(1));
+    }
+
+    @Test
+    void allReplicasDown_shouldFallBackToPrimary() throws SQLException {
+        when(replica1.getConnection()).thenThrow(new SQLException("down"));
+        when(replica2.getConnection()).thenThrow(new SQLException("down"));
+
+        readOnlyStatement();
+
+        verify(primary).getConnection();
+    }
+
+    @Test
+    void readYourWrites_shouldForcePrimaryForReadOnlyTransaction() throws SQLException {
+        ReadRouting.onPrimary(() -> {
+            try {
+                readOnlyStatement();
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+            return null;
+        });
+
+        verify(primary).getConnection();
+        verify(replica1, never()).getConnection();
+        verify(replica2, never()).getConnection();
+    }
+
+    @Test
+    void explicitCredentials_shouldBePassedToChosenPool() throws SQLException {
+        when(replica1.getConnection("reader", "secret")).thenAnswer(invocation -> mock(Connection.class));
+        when(replica2.getConnection("reader", "secret")).thenAnswer(invocation -> mock(Connection.class));
+
+        replicas.getConnection("reader", "secret").close();
+        ReadRouting.onPrimary(() -> {
+            try {
+                return replicas.getConnection("reader", "secret");
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        verify(replica1).getConnection("reader", "secret");
+        verify(primary).getConnection("reader", "secret");
+        verify(replica2, never()).getConnection(anyString(), anyString());
+    }
+
+    // Mirrors what the JPA transaction manager does for @Transactional(readOnly = true)
+    private void readOnlyStatement() throws SQLException {
+        try (Connection connection = routing.getConnection()) {
+            connection.setReadOnly(true);
+            connection.createStatement();
+        }
+    }
+
+    private static DataSource mockDataSource() throws SQLException {
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenAnswer(invocation -> mock(Connection.class));
+        return dataSource;
+    }
+}
@@ -0,0 +1,32 @@
+package com.gab.authservice.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts every SQL statement Hibernate prepares, so tests can pin the number of statements per endpoint
+ * and catch N+1 selects or row-by-row deletes.
+ * <p>
+ * Register with {@code spring.jpa.properties.hibernate.session_factory.statement_inspector}. Hibernate
+ * instantiates the class itself, hence the static counter.
+ * </p>
+ */
+public class SqlStatementCounter implements StatementInspector {
+
+    private static final AtomicInteger COUNT = new AtomicInteger();
+
+    @Override
+    public String inspect(String sql) {
+        COUNT.incrementAndGet();
+        return sql;
+    }
+
+    public static void reset() {
+        COUNT.set(0);
+    }
+
+    public static int count() {
+        return COUNT.get();
+    }
+}
@@ -1,6 +1,8 @@
 package com.gab.authservice.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.gab.authservice.config.SqlStatementCounter;
 import com.gab.authservice.config.TestConfig;
 import com.gab.authservice.dto.LoginRequest;
 import com.gab.authservice.dto.SignupRequest;
@@ -29,9 +31,11 @@ import java.security.NoSuchAlgorithmException;
 import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.util.Base64;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -60,6 +64,8 @@ class AuthControllerIntegrationTest {
         registry.add("spring.datasource.password", postgres::getPassword);
         registry.add("spring.jpa.hibernate.ddl-auto", () -> "create-drop");
         registry.add("aws.secrets.enabled", () -> "false");
+        // Counts SQL statements so tests can assert the exact number per endpoint
+        registry.add("spring.jpa.properties.hibernate.session_factory.statement_inspector", SqlStatementCounter.class::getName);
     }
 
     @BeforeAll
@@ -125,4 +131,57 @@ class AuthControllerIntegrationTest {
                     assertEquals(3, parts.length, "Response is not a valid JWT token");
                 });
     }
-}
\ No newline at end of file
+
+    @Test
+    void authEndpoints_shouldIssueExpectedNumberOfStatements() throws Exception {
+        String credentials = objectMapper.writeValueAsString(new SignupRequest("statements@example.com", "password"));
+
+        // existsByEmail + merge-select of the new user + insert
+        SqlStatementCounter.reset();
+        mockMvc.perform(post("/auth/signup").contentType(MediaType.APPLICATION_JSON).content(credentials))
+                .andExpect(status().isOk());
+        assertEquals(3, SqlStatementCounter.count(), "signup");
+
+        // user lookup by the authentication manager + user lookup for the token + refresh token insert
+        SqlStatementCounter.reset();
+        String loginBody = mockMvc.perform(post("/auth/login").contentType(MediaType.APPLICATION_JSON).content(credentials))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertEquals(3, SqlStatementCounter.count(), "login");
+
+        JsonNode tokens = objectMapper.readTree(loginBody);
+        String accessToken = tokens.get("accessToken").asText();
+        String refreshToken = tokens.get("refreshToken").asText();
+
+        // one select joining refresh_tokens and users
+        SqlStatementCounter.reset();
+        mockMvc.perform(post("/auth/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("refreshToken", refreshToken))))
+                .andExpect(status().isOk());
+        assertEquals(1, SqlStatementCounter.count(), "refresh");
+
+        // one bulk delete, no user lookup and no per-row deletes
+        SqlStatementCounter.reset();
+        mockMvc.perform(post("/auth/logout").header("Authorization", "Bearer " + accessToken))
+                .andExpect(status().isOk());
+        assertEquals(1, SqlStatementCounter.count(), "logout");
+    }
+
+    @Test
+    void jwks_shouldPublishKeyMatchingTokenKid() throws Exception {
+        String credentials = objectMapper.writeValueAsString(new SignupRequest("jwks@example.com", "password"));
+        mockMvc.perform(post("/auth/signup").contentType(MediaType.APPLICATION_JSON).content(credentials))
+                .andExpect(status().isOk());
+        String accessToken = objectMapper.readTree(mockMvc.perform(post("/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON).content(credentials))
+                .andReturn().getResponse().getContentAsString()).get("accessToken").asText();
+        JsonNode header = objectMapper.readTree(Base64.getUrlDecoder().decode(accessToken.split("\\.")[0]));
+
+        mockMvc.perform(get("/auth/jwks"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.keys[0].kty").value("RSA"))
+                .andExpect(jsonPath("$.keys[0].alg").value("RS256"))
+                .andExpect(jsonPath("$.keys[0].kid").value(header.get("kid").asText()));
+    }
+}
@@ -0,0 +1,106 @@
+package com.gab.authservice.cwt;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.security.SignatureException;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CwtCodecTest {
+
+    private static KeyPair keys;
+    private static KeyPair otherKeys;
+
+    @BeforeAll
+    static void generateKeys() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        keys = generator.generateKeyPair();
+        otherKeys = generator.generateKeyPair();
+    }
+
+    private static Map<String, Object> claims(long expiresAt) {
+        Map<String, Object> claims = new LinkedHashMap<>();
+        claims.put(Claims.SUBJECT, "user@example.com");
+        claims.put("role", "ADMIN");
+        claims.put(Claims.ISSUER, "acme");
+        claims.put("tid", "acme");
+        claims.put(Claims.ISSUED_AT, expiresAt - 60);
+        claims.put(Claims.EXPIRATION, expiresAt);
+        return claims;
+    }
+
+    private static long inOneHour() {
+        return System.currentTimeMillis() / 1000 + 3600;
+    }
+
+    @Test
+    void signedToken_shouldRoundTripClaims() {
+        long exp = inOneHour();
+        String token = CwtCodec.sign(claims(exp), "kid-1", keys.getPrivate());
+
+        assertTrue(CwtCodec.isCwt(token));
+        Claims claims = CwtCodec.verify(token, c -> keys.getPublic());
+        assertEquals("user@example.com", claims.getSubject());
+        assertEquals("ADMIN", claims.get("role", String.class));
+        assertEquals("acme", claims.getIssuer());
+        assertEquals("acme", claims.get("tid", String.class));
+        assertEquals(exp * 1000, claims.getExpiration().getTime());
+        assertEquals((exp - 60) * 1000, claims.getIssuedAt().getTime());
+    }
+
+    @Test
+    void keyResolver_shouldSeeClaimsBeforeSignatureCheck() {
+        String token = CwtCodec.sign(claims(inOneHour()), "kid-1", keys.getPrivate());
+
+        Claims claims = CwtCodec.verify(token, c -> {
+            assertEquals("acme", c.get("tid", String.class));
+            return keys.getPublic();
+        });
+        assertNotNull(claims);
+    }
+
+    @Test
+    void tamperedOrForeignToken_shouldBeRejected() {
+        String token = CwtCodec.sign(claims(inOneHour()), "kid-1", keys.getPrivate());
+        byte[] cose = Base64.getUrlDecoder().decode(token);
+        // flip a bit inside the claims (the subject text sits in the middle)
+        cose[cose.length / 3] ^= 1;
+        String tampered = Base64.getUrlEncoder().withoutPadding().encodeToString(cose);
+
+        assertThrows(SignatureException.class, () -> CwtCodec.verify(token, c -> otherKeys.getPublic()));
+        assertThrows(RuntimeException.class, () -> CwtCodec.verify(tampered, c -> keys.getPublic()));
+    }
+
+    @Test
+    void expiredToken_shouldBeRejected() {
+        String token = CwtCodec.sign(claims(System.currentTimeMillis() / 1000 - 10), "kid-1", keys.getPrivate());
+
+        ExpiredJwtException e = assertThrows(ExpiredJwtException.class, () -> CwtCodec.verify(token, c -> keys.getPublic()));
+        assertEquals("user@example.com", e.getClaims().getSubject());
+    }
+
+    @Test
+    void garbage_shouldBeMalformed() {
+        assertThrows(MalformedJwtException.class, () -> CwtCodec.verify("not*base64", c -> keys.getPublic()));
+        assertThrows(MalformedJwtException.class, () -> CwtCodec.verify("oWFhAQ", c -> keys.getPublic()));
+        assertFalse(CwtCodec.isCwt("header.payload.signature"));
+    }
+
+    @Test
+    void tokenFormatHeader_shouldFallBackToJwt() {
+        assertEquals(TokenFormat.JWT, TokenFormat.fromHeader(null));
+        assertEquals(TokenFormat.CWT, TokenFormat.fromHeader(" CWT "));
+        assertEquals(TokenFormat.BOTH, TokenFormat.fromHeader("jwt+cwt"));
+        assertEquals(TokenFormat.JWT, TokenFormat.fromHeader("paseto"));
+    }
+}
@@ -0,0 +1,100 @@
+package com.gab.authservice.cwt;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JWT vs CWT with the same claims and RSA key: signing and full verification (decode, RS256 check, claims).
+ * Token sizes are printed at setup; run with {@code -prof gc} (the profile's default) for bytes allocated per op.
+ * <p>
+ * Run with {@code ./mvnw test-compile exec:exec -Pbenchmark} or from the IDE via {@link #main(String[])}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenFormatBenchmark {
+
+    private KeyPair keys;
+    private JwtParser jwtParser;
+    private String jwt;
+    private String cwt;
+    private long expiresAt;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        keys = generator.generateKeyPair();
+        jwtParser = Jwts.parserBuilder().setSigningKey(keys.getPublic()).build();
+        // long enough to outlive the run
+        expiresAt = System.currentTimeMillis() / 1000 + 3600;
+        jwt = signJwt();
+        cwt = signCwt();
+        System.out.printf("%nToken size: jwt=%d chars, cwt=%d chars%n", jwt.length(), cwt.length());
+    }
+
+    @Benchmark
+    public String signJwt() {
+        return Jwts.builder()
+                .setHeaderParam("kid", "AAAAAAAAAAA")
+                .setSubject("user@example.com")
+                .claim("role", "USER")
+                .setIssuedAt(new Date((expiresAt - 60) * 1000))
+                .setExpiration(new Date(expiresAt * 1000))
+                .signWith(keys.getPrivate(), SignatureAlgorithm.RS256)
+                .compact();
+    }
+
+    @Benchmark
+    public String signCwt() {
+        Map<String, Object> claims = new LinkedHashMap<>();
+        claims.put(Claims.SUBJECT, "user@example.com");
+        claims.put("role", "USER");
+        claims.put(Claims.ISSUED_AT, expiresAt - 60);
+        claims.put(Claims.EXPIRATION, expiresAt);
+        return CwtCodec.sign(claims, "AAAAAAAAAAA", keys.getPrivate());
+    }
+
+    @Benchmark
+    public Claims verifyJwt() {
+        return jwtParser.parseClaimsJws(jwt).getBody();
+    }
+
+    @Benchmark
+    public Claims verifyCwt() {
+        RSAPublicKey key = (RSAPublicKey) keys.getPublic();
+        return CwtCodec.verify(cwt, claims -> key);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(TokenFormatBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,135 @@
+package com.gab.authservice.invalidation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InvalidationBusTest {
+
+    private SharedTransport network;
+    private RecordingListener listenerA;
+    private RecordingListener listenerB;
+    private InvalidationBus nodeA;
+    private InvalidationBus nodeB;
+
+    @BeforeEach
+    void setUp() {
+        network = new SharedTransport();
+        listenerA = new RecordingListener();
+        listenerB = new RecordingListener();
+        nodeA = new InvalidationBus(network, provider(listenerA));
+        nodeB = new InvalidationBus(network, provider(listenerB));
+        nodeA.start();
+        nodeB.start();
+    }
+
+    @Test
+    void publish_shouldApplyLocallyAndOnOtherNodesOnce() {
+        nodeA.publish(InvalidationEvent.Type.USER_LOGGED_OUT, "user@example.com");
+
+        assertEquals(1, listenerA.events.size());
+        assertEquals(1, listenerB.events.size());
+        InvalidationEvent received = listenerB.events.get(0);
+        assertEquals(InvalidationEvent.Type.USER_LOGGED_OUT, received.getType());
+        assertEquals("user@example.com", received.getKey());
+        assertEquals(nodeA.getNodeId(), received.getOrigin());
+    }
+
+    @Test
+    void duplicateDelivery_shouldBeIgnored() {
+        nodeA.publish(InvalidationEvent.Type.KEYS_ROTATED, null);
+        network.replay(0);
+
+        assertEquals(1, listenerB.events.size());
+        assertNull(listenerB.events.get(0).getKey());
+    }
+
+    @Test
+    void sequenceGap_shouldTriggerResync() {
+        nodeA.publish(InvalidationEvent.Type.USER_CHANGED, "a@example.com");
+        network.dropNext = true;
+        nodeA.publish(InvalidationEvent.Type.USER_CHANGED, "b@example.com");
+        nodeA.publish(InvalidationEvent.Type.USER_CHANGED, "c@example.com");
+
+        assertEquals(1, listenerB.resyncs);
+        assertEquals(List.of("a@example.com", "c@example.com"),
+                listenerB.events.stream().map(InvalidationEvent::getKey).toList());
+        assertEquals(0, listenerA.resyncs);
+    }
+
+    @Test
+    void transportReconnect_shouldTriggerResync() {
+        network.reconnectAll();
+
+        assertEquals(1, listenerA.resyncs);
+        assertEquals(1, listenerB.resyncs);
+    }
+
+    @Test
+    void encodeDecode_shouldRoundTrip() {
+        InvalidationEvent event = new InvalidationEvent(InvalidationEvent.Type.USER_LOGGED_OUT, "x|y@example.com", "node", 42);
+        assertEquals(event, InvalidationEvent.decode(event.encode()));
+    }
+
+    private static ObjectProvider<InvalidationListener> provider(InvalidationListener listener) {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("listener", listener);
+        return beanFactory.getBeanProvider(InvalidationListener.class);
+    }
+
+    /** Stands in for one Postgres channel that all nodes LISTEN on. */
+    private static class SharedTransport implements InvalidationTransport {
+        final List<Receiver> receivers = new CopyOnWriteArrayList<>();
+        final List<String> sent = new ArrayList<>();
+        boolean dropNext;
+
+        @Override
+        public void publish(String payload) {
+            sent.add(payload);
+            if (dropNext) {
+                dropNext = false;
+                return;
+            }
+            receivers.forEach(receiver -> receiver.onMessage(payload));
+        }
+
+        void replay(int index) {
+            receivers.forEach(receiver -> receiver.onMessage(sent.get(index)));
+        }
+
+        void reconnectAll() {
+            receivers.forEach(Receiver::onPossibleGap);
+        }
+
+        @Override
+        public void start(Receiver receiver) {
+            receivers.add(receiver);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static class RecordingListener implements InvalidationListener {
+        final List<InvalidationEvent> events = new ArrayList<>();
+        int resyncs;
+
+        @Override
+        public void onInvalidation(InvalidationEvent event) {
+            events.add(event);
+        }
+
+        @Override
+        public void resync() {
+            resyncs++;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.gab.authservice.invalidation;
+
+import com.gab.authservice.AuthServiceApplication;
+import com.gab.authservice.config.TestConfig;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+
+// Two application contexts ("nodes") on one PostgreSQL, talking over LISTEN/NOTIFY
+@Testcontainers
+class PostgresInvalidationIntegrationTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:17")
+            .withDatabaseName("authdb").withUsername("testuser").withPassword("testpass");
+
+    private static ConfigurableApplicationContext nodeA;
+    private static ConfigurableApplicationContext nodeB;
+
+    @BeforeAll
+    static void startNodes() {
+        nodeA = startNode();
+        nodeB = startNode();
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        if (nodeB != null) {
+            nodeB.close();
+        }
+        if (nodeA != null) {
+            nodeA.close();
+        }
+    }
+
+    @BeforeEach
+    void clearRecordings() {
+        recorder(nodeA).clear();
+        recorder(nodeB).clear();
+    }
+
+    @Test
+    void events_shouldReachTheOtherNode() {
+        nodeA.getBean(InvalidationBus.class).publish(InvalidationEvent.Type.USER_LOGGED_OUT, "user@example.com");
+        nodeA.getBean(InvalidationBus.class).publish(InvalidationEvent.Type.KEYS_ROTATED, null);
+
+        RecordingListener b = recorder(nodeB);
+        await().atMost(Duration.ofSeconds(10)).until(() -> b.events.size() == 2);
+        assertEquals(InvalidationEvent.Type.USER_LOGGED_OUT, b.events.get(0).getType());
+        assertEquals("user@example.com", b.events.get(0).getKey());
+        assertEquals(InvalidationEvent.Type.KEYS_ROTATED, b.events.get(1).getType());
+        assertEquals(nodeA.getBean(InvalidationBus.class).getNodeId(), b.events.get(1).getOrigin());
+        assertEquals(0, b.resyncs.get());
+        // the publisher applies its own events once, not again when its NOTIFY comes back
+        assertEquals(2, recorder(nodeA).events.size());
+    }
+
+    @Test
+    void lostListenerConnection_shouldReconnectAndResync() throws Exception {
+        try (Connection connection = connect(); Statement statement = connection.createStatement()) {
+            statement.execute("select pg_terminate_backend(pid) from pg_stat_activity "
+                    + "where query like 'LISTEN %' and pid <> pg_backend_pid()");
+        }
+
+        RecordingListener b = recorder(nodeB);
+        await().atMost(Duration.ofSeconds(30)).until(() -> b.resyncs.get() > 0);
+        assertTrue(recorder(nodeA).resyncs.get() > 0);
+
+        // and keeps receiving on the new connection
+        nodeA.getBean(InvalidationBus.class).publish(InvalidationEvent.Type.USER_CHANGED, "other@example.com");
+        await().atMost(Duration.ofSeconds(10)).until(() -> b.events.stream()
+                .anyMatch(event -> "other@example.com".equals(event.getKey())));
+    }
+
+    private static ConfigurableApplicationContext startNode() {
+        return new SpringApplicationBuilder(AuthServiceApplication.class, TestConfig.class, RecorderConfig.class)
+                .profiles("local")
+                .properties(
+                        "server.port=0",
+                        "spring.datasource.url=" + postgres.getJdbcUrl(),
+                        "spring.datasource.username=" + postgres.getUsername(),
+                        "spring.datasource.password=" + postgres.getPassword(),
+                        "spring.jpa.hibernate.ddl-auto=update",
+                        "aws.secrets.enabled=false",
+                        "auth.warmup.enabled=false",
+                        "auth.invalidation.transport=postgres",
+                        "auth.invalidation.poll-timeout=100ms")
+                .run();
+    }
+
+    private static RecordingListener recorder(ConfigurableApplicationContext node) {
+        return node.getBean(RecordingListener.class);
+    }
+
+    private static Connection connect() throws Exception {
+        return DriverManager.getConnection(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+    }
+
+    @TestConfiguration
+    static class RecorderConfig {
+
+        @Bean
+        RecordingListener recordingListener() {
+            return new RecordingListener();
+        }
+    }
+
+    static class RecordingListener implements InvalidationListener {
+        final List<InvalidationEvent> events = new CopyOnWriteArrayList<>();
+        final AtomicInteger resyncs = new AtomicInteger();
+
+        @Override
+        public void onInvalidation(InvalidationEvent event) {
+            events.add(event);
+        }
+
+        @Override
+        public void resync() {
+            resyncs.incrementAndGet();
+        }
+
+        void clear() {
+            events.clear();
+            resyncs.set(0);
+        }
+    }
+}
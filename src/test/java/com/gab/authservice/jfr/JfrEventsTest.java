@@ -0,0 +1,53 @@
+package com.gab.authservice.jfr;
+
+import com.gab.authservice.config.InstrumentedPasswordEncoder;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JfrEventsTest {
+
+    @Test
+    void settings_shouldLayerAuthEventsOnTopOfDefault() throws Exception {
+        Map<String, String> settings = ContinuousJfrRecording.settings();
+
+        assertEquals("true", settings.get("com.gab.authservice.TokenSign#enabled"));
+        assertEquals("0 ms", settings.get("com.gab.authservice.PasswordHash#threshold"));
+        assertEquals("20 us", settings.get("com.gab.authservice.TokenVerify#threshold"));
+        assertEquals("true", settings.get("com.gab.authservice.KeyLoad#stackTrace"));
+        // still has the JDK's own events
+        assertEquals("true", settings.get("jdk.GarbageCollection#enabled"));
+    }
+
+    @Test
+    void passwordEncoder_shouldRecordEncodeAndMatches(@TempDir Path dir) throws Exception {
+        InstrumentedPasswordEncoder encoder = new InstrumentedPasswordEncoder(new BCryptPasswordEncoder(4), "bcrypt");
+        Path file = dir.resolve("events.jfr");
+
+        try (Recording recording = new Recording()) {
+            recording.enable(PasswordHashEvent.class).withoutThreshold();
+            recording.start();
+            String hash = encoder.encode("secret");
+            assertTrue(encoder.matches("secret", hash));
+            assertFalse(encoder.matches("wrong", hash));
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+                .filter(e -> e.getEventType().getName().equals("com.gab.authservice.PasswordHash"))
+                .toList();
+        assertEquals(List.of("encode:encoded", "matches:matched", "matches:mismatched"),
+                events.stream().map(e -> e.getString("operation") + ":" + e.getString("outcome")).toList());
+        assertTrue(events.stream().allMatch(e -> "bcrypt".equals(e.getString("algorithm"))));
+    }
+}
@@ -0,0 +1,140 @@
+package com.gab.authservice.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Refresh load of many clients against a running service, to compare refresh QPS per client behaviour:
+ * <ul>
+ *     <li>{@code expiry}: refresh when the access token expires, as clients did before {@code expires_in} and
+ *     {@code refresh_after} existed (the lifetime was a fixed 60s)</li>
+ *     <li>{@code hint}: refresh after {@code refresh_after}</li>
+ * </ul>
+ * All clients log in at the same moment (a deploy or a reconnect storm), then refresh for the given duration.
+ * Prints the number of refreshes, the average and the peak (busiest second) refresh QPS. Run through
+ * {@code refresh-load.sh}.
+ * <pre>
+ * RefreshLoadGenerator &lt;base-url&gt; &lt;expiry|hint&gt; &lt;clients&gt; &lt;duration-seconds&gt;
+ * </pre>
+ */
+public final class RefreshLoadGenerator {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final String baseUrl;
+    private final boolean followHint;
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(16);
+    private final AtomicIntegerArray perSecond;
+    private final AtomicLong failures = new AtomicLong();
+    private long startMillis;
+
+    private RefreshLoadGenerator(String baseUrl, boolean followHint, int durationSeconds) {
+        this.baseUrl = baseUrl;
+        this.followHint = followHint;
+        this.perSecond = new AtomicIntegerArray(durationSeconds);
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 4 || !(args[1].equals("expiry") || args[1].equals("hint"))) {
+            System.err.println("Usage: RefreshLoadGenerator <base-url> <expiry|hint> <clients> <duration-seconds>");
+            System.exit(2);
+        }
+        int clients = Integer.parseInt(args[2]);
+        int durationSeconds = Integer.parseInt(args[3]);
+        new RefreshLoadGenerator(args[0], args[1].equals("hint"), durationSeconds).run(args[1], clients);
+    }
+
+    private void run(String mode, int clients) throws Exception {
+        String prefix = "load-" + mode + "-" + System.currentTimeMillis() + "-";
+        ExecutorService setup = Executors.newFixedThreadPool(32);
+        List<Future<?>> signups = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            String email = prefix + i + "@example.com";
+            signups.add(setup.submit(() -> post("/auth/signup", Map.of("email", email, "password", "password"))));
+        }
+        for (Future<?> signup : signups) {
+            signup.get();
+        }
+
+        startMillis = System.currentTimeMillis();
+        List<Future<?>> logins = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            String email = prefix + i + "@example.com";
+            logins.add(setup.submit(() -> {
+                JsonNode login = MAPPER.readTree(post("/auth/login", Map.of("email", email, "password", "password")));
+                schedule(login.get("refreshToken").asText(), login);
+                return null;
+            }));
+        }
+        for (Future<?> login : logins) {
+            login.get();
+        }
+        setup.shutdown();
+
+        long durationMillis = perSecond.length() * 1000L;
+        Thread.sleep(Math.max(0, startMillis + durationMillis - System.currentTimeMillis()));
+        scheduler.shutdownNow();
+        scheduler.awaitTermination(10, TimeUnit.SECONDS);
+        report(mode, clients);
+    }
+
+    private void schedule(String refreshToken, JsonNode response) {
+        long delaySeconds = response.get(followHint ? "refresh_after" : "expires_in").asLong();
+        scheduler.schedule(() -> refresh(refreshToken), delaySeconds, TimeUnit.SECONDS);
+    }
+
+    private void refresh(String refreshToken) {
+        try {
+            JsonNode response = MAPPER.readTree(post("/auth/refresh", Map.of("refreshToken", refreshToken)));
+            int second = (int) ((System.currentTimeMillis() - startMillis) / 1000);
+            if (second < perSecond.length()) {
+                perSecond.incrementAndGet(second);
+            }
+            schedule(refreshToken, response);
+        } catch (Exception e) {
+            // the client is gone for the rest of the run
+            failures.incrementAndGet();
+        }
+    }
+
+    private String post(String path, Map<String, String> body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(MAPPER.writeValueAsString(body)))
+                .build();
+        HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(path + ": HTTP " + response.statusCode() + " " + response.body());
+        }
+        return response.body();
+    }
+
+    private void report(String mode, int clients) {
+        long total = 0;
+        int peak = 0;
+        for (int i = 0; i < perSecond.length(); i++) {
+            total += perSecond.get(i);
+            peak = Math.max(peak, perSecond.get(i));
+        }
+        System.out.printf("%-6s clients=%d duration=%ds refreshes=%d avg=%.2f/s peak=%d/s failures=%d%n",
+                mode, clients, perSecond.length(), total, (double) total / perSecond.length(), peak, failures.get());
+    }
+}
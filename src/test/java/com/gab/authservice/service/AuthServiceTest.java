@@ -4,12 +4,14 @@ import com.gab.authservice.dto.LoginRequest;
 import com.gab.authservice.dto.SignupRequest;
 import com.gab.authservice.entity.Role;
 import com.gab.authservice.entity.User;
+import com.gab.authservice.invalidation.InvalidationBus;
 import com.gab.authservice.repository.UserRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.time.Duration;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -28,7 +30,8 @@ class AuthServiceTest {
         userRepository = mock(UserRepository.class);
         passwordEncoder = mock(PasswordEncoder.class);
         jwtService = mock(JwtService.class);
-        authService = new AuthService(userRepository, passwordEncoder, jwtService);
+        authService = new AuthService(userRepository, passwordEncoder, jwtService, new ReadYourWritesTracker(Duration.ofSeconds(2)),
+                mock(InvalidationBus.class));
     }
 
     @Test
@@ -0,0 +1,85 @@
+package com.gab.authservice.service;
+
+import com.gab.authservice.config.TokenLifetimeProperties;
+import com.gab.authservice.entity.Role;
+import com.gab.authservice.entity.User;
+import com.gab.authservice.tenant.TenantContext;
+import com.gab.authservice.tenant.TenantKeys;
+import com.gab.authservice.tenant.TenantRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.env.Environment;
+import org.springframework.test.util.ReflectionTestUtils;
+import software.amazon.awssdk.services.secretsmanager.SecretsManagerClient;
+import software.amazon.awssdk.services.secretsmanager.model.GetSecretValueRequest;
+import software.amazon.awssdk.services.secretsmanager.model.GetSecretValueResponse;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class JwtServiceTest {
+
+    private JwtService jwtService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair own = generator.generateKeyPair();
+        KeyPair acme = generator.generateKeyPair();
+
+        SecretsManagerClient secrets = mock(SecretsManagerClient.class);
+        when(secrets.getSecretValue(any(GetSecretValueRequest.class))).thenReturn(GetSecretValueResponse.builder()
+                .secretString("{\"private-key\": \"" + pem("PRIVATE KEY", own.getPrivate().getEncoded())
+                        + "\", \"public-key\": \"" + pem("PUBLIC KEY", own.getPublic().getEncoded()) + "\"}")
+                .build());
+
+        TenantRegistry registry = mock(TenantRegistry.class);
+        when(registry.isDefault(any())).thenAnswer(call -> call.getArgument(0) == null
+                || "default".equals(call.getArgument(0)));
+        when(registry.keys("acme")).thenReturn(new TenantKeys("acme", "acme", (RSAPrivateKey) acme.getPrivate(),
+                (RSAPublicKey) acme.getPublic(), pem("PUBLIC KEY", acme.getPublic().getEncoded()), "acme-1", null));
+
+        jwtService = new JwtService(mock(Environment.class),
+                new TokenLifetimePolicy(new TokenLifetimeProperties(), Optional.empty()), Optional.of(registry));
+        ReflectionTestUtils.setField(jwtService, "client", secrets);
+    }
+
+    private static String pem(String type, byte[] encoded) {
+        // single line, so it fits into the JSON secret as is
+        return "-----BEGIN " + type + "-----" + Base64.getEncoder().encodeToString(encoded) + "-----END " + type + "-----";
+    }
+
+    private static User admin() {
+        return User.builder().email("admin@example.com").password("hash").role(Role.ADMIN).build();
+    }
+
+    @Test
+    void tenantToken_shouldOnlyPassForItsOwnTenant() {
+        String token = TenantContext.on("acme", () -> jwtService.generateToken(admin(), Duration.ofMinutes(1)));
+
+        assertTrue(TenantContext.on("acme", () -> jwtService.validateToken(token)));
+        // a request that names no tenant is the default tenant's, e.g. /admin/** on the service's own host
+        assertFalse(jwtService.validateToken(token));
+        assertFalse(TenantContext.on("default", () -> jwtService.validateToken(token)));
+    }
+
+    @Test
+    void defaultToken_shouldOnlyPassForTheDefaultTenant() {
+        String token = jwtService.generateToken(admin(), Duration.ofMinutes(1));
+
+        assertTrue(jwtService.validateToken(token));
+        assertTrue(TenantContext.on("default", () -> jwtService.validateToken(token)));
+        assertFalse(TenantContext.on("acme", () -> jwtService.validateToken(token)));
+    }
+}
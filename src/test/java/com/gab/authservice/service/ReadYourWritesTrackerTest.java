@@ -0,0 +1,41 @@
+package com.gab.authservice.service;
+
+import com.gab.authservice.config.ReadRouting;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReadYourWritesTrackerTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final ReadYourWritesTracker tracker = new ReadYourWritesTracker(Duration.ofSeconds(2), clock::get);
+
+    @Test
+    void recentWrite_shouldBeReadFromPrimaryUntilWindowEnds() {
+        tracker.recordWrite("user@example.com");
+
+        assertTrue(tracker.read("user@example.com", ReadRouting::isPrimaryForced));
+        assertFalse(tracker.read("other@example.com", ReadRouting::isPrimaryForced));
+
+        clock.addAndGet(Duration.ofSeconds(2).toNanos());
+        assertFalse(tracker.read("user@example.com", ReadRouting::isPrimaryForced));
+    }
+
+    @Test
+    void expiredWrites_shouldBeSweptAtMostOncePerWindow() {
+        for (int i = 0; i < 20_000; i++) {
+            tracker.recordWrite("first-" + i);
+        }
+        clock.addAndGet(Duration.ofMillis(2500).toNanos());
+        tracker.recordWrite("second");
+        // the first batch expired and went in one sweep, not one scan per write
+        assertEquals(1, tracker.size());
+
+        clock.addAndGet(Duration.ofSeconds(1).toNanos());
+        tracker.recordWrite("third");
+        assertEquals(2, tracker.size());
+    }
+}
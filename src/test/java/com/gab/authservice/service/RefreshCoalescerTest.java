@@ -0,0 +1,177 @@
+package com.gab.authservice.service;
+
+import com.gab.authservice.config.TokenLifetimeProperties;
+import com.gab.authservice.cwt.TokenFormat;
+import com.gab.authservice.entity.RefreshToken;
+import com.gab.authservice.entity.Role;
+import com.gab.authservice.entity.User;
+import com.gab.authservice.invalidation.InvalidationEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class RefreshCoalescerTest {
+
+    private RefreshTokenService refreshTokenService;
+    private JwtService jwtService;
+    private MeterRegistry meterRegistry;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        refreshTokenService = mock(RefreshTokenService.class);
+        jwtService = mock(JwtService.class);
+        meterRegistry = new SimpleMeterRegistry();
+        user = new User();
+        user.setEmail("user@example.com");
+        user.setRole(Role.USER);
+
+        RefreshToken token = new RefreshToken();
+        token.setUser(user);
+        when(refreshTokenService.verifyExpiration(anyString())).thenReturn(token);
+        when(jwtService.generateToken(eq(user), any(Duration.class))).thenReturn("access-1", "access-2", "access-3");
+    }
+
+    private RefreshCoalescer coalescer(Duration grace) {
+        return new RefreshCoalescer(refreshTokenService, jwtService, new TokenLifetimePolicy(new TokenLifetimeProperties(), Optional.empty()),
+                meterRegistry, grace, 100);
+    }
+
+    @Test
+    void concurrentRefreshes_shouldShareOneExecution() throws Exception {
+        RefreshCoalescer coalescer = coalescer(Duration.ZERO);
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(refreshTokenService.verifyExpiration("refresh")).thenAnswer(invocation -> {
+            leaderStarted.countDown();
+            assertTrue(release.await(5, TimeUnit.SECONDS));
+            RefreshToken token = new RefreshToken();
+            token.setUser(user);
+            return token;
+        });
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<RefreshCoalescer.Result>> results = new ArrayList<>();
+            results.add(pool.submit(() -> coalescer.refresh("refresh", null, TokenFormat.JWT)));
+            assertTrue(leaderStarted.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 7; i++) {
+                results.add(pool.submit(() -> coalescer.refresh("refresh", null, TokenFormat.JWT)));
+            }
+            // followers are parked on the leader's future once they are counted
+            while (meterRegistry.counter("auth.refresh.coalesced", "via", "in-flight").count() < 7) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+
+            for (Future<RefreshCoalescer.Result> result : results) {
+                assertEquals("access-1", result.get(5, TimeUnit.SECONDS).getAccessToken());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        verify(refreshTokenService, times(1)).verifyExpiration("refresh");
+        verify(jwtService, times(1)).generateToken(eq(user), any(Duration.class));
+        assertEquals(1, meterRegistry.counter("auth.refresh.executed").count());
+    }
+
+    @Test
+    void failure_shouldReachEveryWaiterAndNotBeReplayed() {
+        when(refreshTokenService.verifyExpiration("expired")).thenThrow(new RuntimeException("Refresh token expired"));
+        RefreshCoalescer coalescer = coalescer(Duration.ofSeconds(30));
+
+        RuntimeException first = assertThrows(RuntimeException.class, () -> coalescer.refresh("expired", null, TokenFormat.JWT));
+        RuntimeException second = assertThrows(RuntimeException.class, () -> coalescer.refresh("expired", null, TokenFormat.JWT));
+
+        assertEquals("Refresh token expired", first.getMessage());
+        assertEquals("Refresh token expired", second.getMessage());
+        verify(refreshTokenService, times(2)).verifyExpiration("expired");
+    }
+
+    @Test
+    void graceWindow_shouldReplayRecentResult() {
+        RefreshCoalescer coalescer = coalescer(Duration.ofSeconds(30));
+
+        assertEquals("access-1", coalescer.refresh("refresh", null, TokenFormat.JWT).getAccessToken());
+        assertEquals("access-1", coalescer.refresh("refresh", null, TokenFormat.JWT).getAccessToken());
+        // a different refresh token is its own flight
+        assertEquals("access-2", coalescer.refresh("other", null, TokenFormat.JWT).getAccessToken());
+
+        assertEquals(2, meterRegistry.counter("auth.refresh.executed").count());
+        assertEquals(1, meterRegistry.counter("auth.refresh.coalesced", "via", "grace").count());
+    }
+
+    @Test
+    void graceWindow_shouldExpire() throws Exception {
+        RefreshCoalescer coalescer = coalescer(Duration.ofMillis(20));
+
+        assertEquals("access-1", coalescer.refresh("refresh", null, TokenFormat.JWT).getAccessToken());
+        Thread.sleep(40);
+        assertEquals("access-2", coalescer.refresh("refresh", null, TokenFormat.JWT).getAccessToken());
+    }
+
+    @Test
+    void graceCache_shouldStayBounded() {
+        RefreshCoalescer coalescer = coalescer(Duration.ofMinutes(1));
+        when(jwtService.generateToken(eq(user), any(Duration.class))).thenReturn("access");
+
+        for (int i = 0; i < 1_000; i++) {
+            coalescer.refresh("refresh-" + i, null, TokenFormat.JWT);
+        }
+
+        assertEquals(100, coalescer.graceSize());
+    }
+
+    @Test
+    void logout_shouldDropReplayableResults() {
+        RefreshCoalescer coalescer = coalescer(Duration.ofSeconds(30));
+        coalescer.refresh("refresh", null, TokenFormat.JWT);
+
+        coalescer.onInvalidation(new InvalidationEvent(InvalidationEvent.Type.USER_LOGGED_OUT, "user@example.com", "node", 1));
+
+        assertEquals(0, coalescer.graceSize());
+        assertEquals("access-2", coalescer.refresh("refresh", null, TokenFormat.JWT).getAccessToken());
+    }
+
+    @Test
+    void logoutDuringRefresh_shouldNotBeReplayed() throws Exception {
+        RefreshCoalescer coalescer = coalescer(Duration.ofSeconds(30));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(refreshTokenService.verifyExpiration("refresh")).thenAnswer(invocation -> {
+            started.countDown();
+            assertTrue(release.await(5, TimeUnit.SECONDS));
+            RefreshToken token = new RefreshToken();
+            token.setUser(user);
+            return token;
+        });
+
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<RefreshCoalescer.Result> running = pool.submit(() -> coalescer.refresh("refresh", null, TokenFormat.JWT));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            coalescer.onInvalidation(new InvalidationEvent(InvalidationEvent.Type.USER_LOGGED_OUT, "user@example.com", "node", 1));
+            release.countDown();
+
+            assertEquals("access-1", running.get(5, TimeUnit.SECONDS).getAccessToken());
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(0, coalescer.graceSize());
+        assertEquals("access-2", coalescer.refresh("refresh", null, TokenFormat.JWT).getAccessToken());
+    }
+}
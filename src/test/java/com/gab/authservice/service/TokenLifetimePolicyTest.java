@@ -0,0 +1,103 @@
+package com.gab.authservice.service;
+
+import com.gab.authservice.config.TokenLifetimeProperties;
+import com.gab.authservice.entity.Role;
+import com.gab.authservice.entity.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenLifetimePolicyTest {
+
+    private TokenLifetimeProperties properties;
+    private TokenLifetimePolicy policy;
+
+    @BeforeEach
+    void setUp() {
+        properties = new TokenLifetimeProperties();
+        properties.getRoles().put(Role.ADMIN, Duration.ofMinutes(2));
+        properties.getClients().put("mobile-app", Duration.ofMinutes(10));
+        properties.getClients().put("kiosk", Duration.ofSeconds(30));
+        policy = new TokenLifetimePolicy(properties, Optional.empty());
+    }
+
+    @Test
+    void ttl_shouldDefaultTo60Seconds() {
+        assertEquals(Duration.ofSeconds(60), policy.accessTokenTtl(user(Role.USER), null));
+        assertEquals(Duration.ofSeconds(60), policy.accessTokenTtl(user(Role.USER), "unknown-client"));
+    }
+
+    @Test
+    void ttl_shouldUseRoleSettingShortenedByClient() {
+        assertEquals(Duration.ofMinutes(2), policy.accessTokenTtl(user(Role.ADMIN), null));
+        assertEquals(Duration.ofSeconds(30), policy.accessTokenTtl(user(Role.USER), "kiosk"));
+        assertEquals(Duration.ofSeconds(30), policy.accessTokenTtl(user(Role.ADMIN), "kiosk"));
+    }
+
+    @Test
+    void clientTtlLongerThanAllowed_shouldBeIgnored() {
+        // X-Client-Id is caller-controlled, so it must not extend the default or role lifetime
+        assertEquals(Duration.ofSeconds(60), policy.accessTokenTtl(user(Role.USER), "mobile-app"));
+        assertEquals(Duration.ofMinutes(2), policy.accessTokenTtl(user(Role.ADMIN), "mobile-app"));
+    }
+
+    @Test
+    void refreshAfter_shouldBeJitteredBeforeTheRefreshAheadPoint() {
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < 1_000; i++) {
+            long refreshAfter = policy.refreshAfterSeconds(600);
+            min = Math.min(min, refreshAfter);
+            max = Math.max(max, refreshAfter);
+        }
+        // 600s * (1 - 0.05) = 570s, minus up to 600s * 0.05
+        assertTrue(min >= 540, "min " + min);
+        assertTrue(max <= 570, "max " + max);
+        assertTrue(max - min > 15, "spread " + (max - min));
+    }
+
+    @Test
+    void refreshAfter_shouldStayWithinLifetime() {
+        properties.setRefreshAhead(0);
+        properties.setRefreshJitter(0);
+        assertEquals(60, policy.refreshAfterSeconds(60));
+        assertEquals(0, policy.refreshAfterSeconds(0));
+    }
+
+    @Test
+    void refreshHints_shouldSpreadClientsThatLoggedInTogether() {
+        // 1000 clients log in at second 0 and keep refreshing 60s tokens for 30 minutes
+        int clients = 1000;
+        int seconds = 1800;
+        int[] atExpiry = new int[seconds];
+        int[] hinted = new int[seconds];
+        for (int client = 0; client < clients; client++) {
+            for (int t = 60; t < seconds; t += 60) {
+                atExpiry[t]++;
+            }
+            for (long t = policy.refreshAfterSeconds(60); t < seconds; t += policy.refreshAfterSeconds(60)) {
+                hinted[(int) t]++;
+            }
+        }
+
+        // at expiry, all of them refresh in the same second every minute; with hints they drift apart
+        // (the peak drops by more each cycle), at the price of slightly more refreshes in total
+        assertEquals(clients, Arrays.stream(atExpiry).max().getAsInt());
+        assertTrue(Arrays.stream(hinted).max().getAsInt() < clients / 2);
+        assertTrue(Arrays.stream(hinted, 1200, seconds).max().getAsInt() < clients / 5);
+        long total = Arrays.stream(atExpiry).sum();
+        long hintedTotal = Arrays.stream(hinted).sum();
+        assertTrue(hintedTotal > total && hintedTotal < total * 1.15, hintedTotal + " vs " + total);
+    }
+
+    private static User user(Role role) {
+        User user = new User();
+        user.setRole(role);
+        return user;
+    }
+}
@@ -0,0 +1,75 @@
+package com.gab.authservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class UserExportServiceTest {
+
+    private PreparedStatement statement;
+    private ResultSet resultSet;
+    private UserExportService exportService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        DataSource dataSource = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        statement = mock(PreparedStatement.class);
+        resultSet = mock(ResultSet.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(UserExportService.EXPORT_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY))
+                .thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(resultSet);
+
+        exportService = new UserExportService(new JdbcTemplate(dataSource), new ObjectMapper(), 250,
+                mock(PlatformTransactionManager.class), Optional.empty());
+    }
+
+    @Test
+    void export_shouldStreamOneJsonLinePerRowThroughACursor() throws Exception {
+        when(resultSet.next()).thenReturn(true, true, false);
+        when(resultSet.getString("id")).thenReturn("11111111-1111-1111-1111-111111111111", "22222222-2222-2222-2222-222222222222");
+        when(resultSet.getString("email")).thenReturn("a@example.com", "b\"quoted\"@example.com");
+        when(resultSet.getString("role")).thenReturn("ADMIN", "USER");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long written = exportService.exportUsers(out);
+
+        assertEquals(2, written);
+        assertEquals("{\"id\":\"11111111-1111-1111-1111-111111111111\",\"email\":\"a@example.com\",\"role\":\"ADMIN\"}\n"
+                        + "{\"id\":\"22222222-2222-2222-2222-222222222222\",\"email\":\"b\\\"quoted\\\"@example.com\",\"role\":\"USER\"}\n",
+                out.toString(StandardCharsets.UTF_8));
+        verify(statement).setFetchSize(250);
+    }
+
+    @Test
+    void brokenClientConnection_shouldStopReadingRows() throws Exception {
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getString(anyString())).thenReturn("x");
+        OutputStream broken = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+
+        assertThrows(IOException.class, () -> exportService.exportUsers(broken));
+        verify(resultSet, atMost(10_000)).next();
+        verify(resultSet).close();
+    }
+}
@@ -0,0 +1,62 @@
+package com.gab.authservice.service;
+
+import com.gab.authservice.dto.UserPage;
+import com.gab.authservice.dto.UserSummary;
+import com.gab.authservice.entity.Role;
+import com.gab.authservice.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class UserServiceTest {
+
+    private UserRepository userRepository;
+    private UserService userService;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        userService = new UserService(userRepository, new ReadYourWritesTracker(Duration.ofSeconds(2)));
+    }
+
+    @Test
+    void fullPage_shouldPointToItsLastEmail() {
+        when(userRepository.findPageAfter("", Limit.of(2)))
+                .thenReturn(List.of(summary("a@example.com"), summary("b@example.com")));
+
+        UserPage page = userService.listUsers(null, 2);
+
+        assertEquals(2, page.getUsers().size());
+        assertEquals("b@example.com", page.getNext());
+    }
+
+    @Test
+    void shortPage_shouldBeTheLast() {
+        when(userRepository.findPageAfter("b@example.com", Limit.of(2))).thenReturn(List.of(summary("c@example.com")));
+
+        UserPage page = userService.listUsers("b@example.com", 2);
+
+        assertEquals(1, page.getUsers().size());
+        assertNull(page.getNext());
+    }
+
+    @Test
+    void limit_shouldBeClamped() {
+        userService.listUsers(null, 1_000_000);
+        userService.listUsers(null, 0);
+
+        verify(userRepository).findPageAfter("", Limit.of(UserService.MAX_PAGE_SIZE));
+        verify(userRepository).findPageAfter("", Limit.of(1));
+    }
+
+    private static UserSummary summary(String email) {
+        return new UserSummary(UUID.randomUUID(), email, Role.USER);
+    }
+}
@@ -0,0 +1,111 @@
+package com.gab.authservice.service;
+
+import com.gab.authservice.invalidation.InvalidationEvent;
+import com.gab.authservice.snapshot.SnapshotFile;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class VerifiedTokenCacheTest {
+
+    @TempDir
+    Path dir;
+
+    private JwtService jwtService;
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        jwtService = mock(JwtService.class);
+        when(jwtService.signingKeyId()).thenReturn("kid-1");
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    private static Date inSeconds(long seconds) {
+        return new Date(System.currentTimeMillis() + seconds * 1000);
+    }
+
+    @Test
+    void verifiedToken_shouldBeServedUntilItExpires() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(jwtService, meterRegistry, 10);
+        cache.put("live", "user@example.com", "USER", inSeconds(60));
+        cache.put("expired", "user@example.com", "USER", inSeconds(-1));
+
+        assertEquals("user@example.com", cache.get("live").email());
+        assertNull(cache.get("expired"));
+        assertNull(cache.get("unknown"));
+        assertEquals(1, meterRegistry.counter("auth.token.cache.hits").count());
+        assertEquals(2, meterRegistry.counter("auth.token.cache.misses").count());
+    }
+
+    @Test
+    void fullCache_shouldMakeRoomByDroppingExpiredEntriesOnly() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(jwtService, meterRegistry, 2);
+        cache.put("a", "a@example.com", "USER", inSeconds(60));
+        cache.put("b", "b@example.com", "USER", inSeconds(-1));
+        cache.put("c", "c@example.com", "USER", inSeconds(60));
+        cache.put("d", "d@example.com", "USER", inSeconds(60));
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get("a"));
+        assertNotNull(cache.get("c"));
+        assertNull(cache.get("d"));
+    }
+
+    @Test
+    void keyRotation_shouldClearCache() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(jwtService, meterRegistry, 10);
+        cache.put("live", "user@example.com", "USER", inSeconds(60));
+
+        cache.onInvalidation(new InvalidationEvent(InvalidationEvent.Type.KEYS_ROTATED, null, "node", 1));
+
+        assertNull(cache.get("live"));
+    }
+
+    @Test
+    void snapshot_shouldRestoreLiveEntriesSignedWithTheSameKey() {
+        VerifiedTokenCache before = new VerifiedTokenCache(jwtService, meterRegistry, 10);
+        before.put("live", "user@example.com", "ADMIN", inSeconds(60));
+        before.put("short", "user@example.com", "ADMIN", inSeconds(1));
+        SnapshotFile file = new SnapshotFile(dir.resolve("cache.bin"), new byte[32]);
+        assertDoesNotThrow(() -> file.write(List.of(before), System.currentTimeMillis()));
+
+        // "short" expired while the service was down
+        VerifiedTokenCache after = new VerifiedTokenCache(jwtService, meterRegistry, 10);
+        SnapshotFile.LoadResult result = file.read(Map.of(after.snapshotName(), after), System.currentTimeMillis() + 5_000);
+        assertEquals(Map.of("verified-tokens", 1), result.restored());
+        assertEquals("ADMIN", after.get("live").role());
+
+        when(jwtService.signingKeyId()).thenReturn("kid-2");
+        VerifiedTokenCache rotated = new VerifiedTokenCache(jwtService, meterRegistry, 10);
+        file.read(Map.of(rotated.snapshotName(), rotated), System.currentTimeMillis());
+        assertNull(rotated.get("live"));
+    }
+
+    @Test
+    void snapshot_shouldLeaveOutTenantTokens() {
+        VerifiedTokenCache before = new VerifiedTokenCache(jwtService, meterRegistry, 10);
+        before.put("default", "user@example.com", "USER", inSeconds(60));
+        before.put("tenant", "user@example.com", "ADMIN", "acme", inSeconds(60));
+        SnapshotFile file = new SnapshotFile(dir.resolve("cache.bin"), new byte[32]);
+        assertDoesNotThrow(() -> file.write(List.of(before), System.currentTimeMillis()));
+
+        // acme's keys aren't tracked by the snapshot and may have changed meanwhile
+        VerifiedTokenCache after = new VerifiedTokenCache(jwtService, meterRegistry, 10);
+        SnapshotFile.LoadResult result = file.read(Map.of(after.snapshotName(), after), System.currentTimeMillis());
+        assertEquals(Map.of("verified-tokens", 1), result.restored());
+        assertNotNull(after.get("default"));
+        assertNull(after.get("tenant"));
+    }
+}
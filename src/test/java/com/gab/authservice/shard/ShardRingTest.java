@@ -0,0 +1,54 @@
+package com.gab.authservice.shard;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardRingTest {
+
+    private static final int KEYS = 20_000;
+
+    @Test
+    void keys_shouldSpreadEvenlyOverShards() {
+        ShardRing ring = new ShardRing(4, 128);
+        int[] counts = new int[4];
+        for (int i = 0; i < KEYS; i++) {
+            counts[ring.shardFor(ShardRouter.routingKey("user" + i + "@example.com"))]++;
+        }
+        for (int count : counts) {
+            // 5000 each if perfectly even
+            assertTrue(count > 4_000 && count < 6_000, "shard got " + count + " keys");
+        }
+    }
+
+    @Test
+    void addingAShard_shouldOnlyMoveKeysToTheNewShard() {
+        ShardRing before = new ShardRing(3, 128);
+        ShardRing after = new ShardRing(4, 128);
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            long key = ShardRouter.routingKey("user" + i + "@example.com");
+            int from = before.shardFor(key);
+            int to = after.shardFor(key);
+            if (from != to) {
+                assertEquals(3, to);
+                moved++;
+            }
+        }
+        // ~1/4 of the keys
+        assertTrue(moved > KEYS / 5 && moved < KEYS * 3 / 10, moved + " keys moved");
+    }
+
+    @Test
+    void routingKey_shouldIgnoreCaseAndSurroundingWhitespace() {
+        assertEquals(ShardRouter.routingKey("alice@example.com"), ShardRouter.routingKey(" Alice@Example.COM "));
+    }
+
+    @Test
+    void singleShard_shouldOwnEverything() {
+        ShardRing ring = new ShardRing(1, 4);
+        assertEquals(0, ring.shardFor(Long.MIN_VALUE));
+        assertEquals(0, ring.shardFor(Long.MAX_VALUE));
+        assertEquals(0, ring.shardFor(0));
+    }
+}
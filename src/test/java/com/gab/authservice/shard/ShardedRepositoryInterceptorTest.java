@@ -0,0 +1,202 @@
+package com.gab.authservice.shard;
+
+import com.gab.authservice.dto.UserSummary;
+import com.gab.authservice.entity.RefreshToken;
+import com.gab.authservice.entity.Role;
+import com.gab.authservice.entity.User;
+import com.gab.authservice.repository.RefreshTokenRepository;
+import com.gab.authservice.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ShardedRepositoryInterceptorTest {
+
+    private MeterRegistry meterRegistry;
+    private JdbcTemplate jdbcTemplate;
+    private UserRepository userTarget;
+    private RefreshTokenRepository tokenTarget;
+    // shard the target was called on, per call
+    private List<Integer> calls;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        jdbcTemplate = mock(JdbcTemplate.class);
+        userTarget = mock(UserRepository.class);
+        tokenTarget = mock(RefreshTokenRepository.class);
+        calls = new ArrayList<>();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+    }
+
+    @Test
+    void lookupByEmail_shouldOnlyTouchTheOwner() {
+        ShardRouter router = router(3, 0);
+        String email = emailOwnedBy(router, 2);
+        when(userTarget.findByEmail(email)).thenAnswer(call -> {
+            calls.add(ShardContext.current());
+            return Optional.of(user(email));
+        });
+
+        assertTrue(users(router).findByEmail(email).isPresent());
+
+        assertEquals(List.of(2), calls);
+        assertNull(ShardContext.current());
+    }
+
+    @Test
+    void resharding_shouldFallBackToThePreviousOwner() {
+        // 1 -> 2 shards: everything used to be on shard 0
+        ShardRouter router = router(2, 1);
+        String email = emailOwnedBy(router, 1);
+        when(userTarget.findByEmail(email)).thenAnswer(call -> {
+            calls.add(ShardContext.current());
+            return ShardContext.current() == 0 ? Optional.of(user(email)) : Optional.empty();
+        });
+
+        assertTrue(users(router).findByEmail(email).isPresent());
+
+        assertEquals(List.of(1, 0), calls);
+        assertEquals(1, meterRegistry.counter("auth.shard.fallback").count());
+    }
+
+    @Test
+    void refreshTokens_shouldBeRoutedByTheirKeyAndLegacyTokensSearchedEverywhere() {
+        ShardRouter router = router(3, 0);
+        String email = emailOwnedBy(router, 1);
+        String token = router.newRefreshToken(email);
+        when(tokenTarget.findByTokenWithUser(anyString())).thenAnswer(call -> {
+            calls.add(ShardContext.current());
+            return Optional.empty();
+        });
+        RefreshTokenRepository tokens = proxy(tokenTarget, RefreshTokenRepository.class, router);
+
+        tokens.findByTokenWithUser(token);
+        assertEquals(List.of(1), calls);
+
+        calls.clear();
+        tokens.findByTokenWithUser(UUID.randomUUID().toString());
+        assertEquals(List.of(0, 1, 2), calls);
+    }
+
+    @Test
+    void deletesWhileResharding_shouldHitThePreviousOwnerFirst() {
+        ShardRouter router = router(2, 1);
+        String email = emailOwnedBy(router, 1);
+        when(tokenTarget.deleteByUserEmail(email)).thenAnswer(call -> {
+            calls.add(ShardContext.current());
+            return 1;
+        });
+
+        proxy(tokenTarget, RefreshTokenRepository.class, router).deleteByUserEmail(email);
+
+        assertEquals(List.of(0, 1), calls);
+    }
+
+    @Test
+    void saves_shouldGoToTheShardTheUserIsOn() {
+        ShardRouter router = router(2, 1);
+        String email = emailOwnedBy(router, 1);
+        // not moved yet: only the old shard has the user
+        when(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class), eq(email)))
+                .thenAnswer(call -> ShardContext.current() == 0);
+        when(tokenTarget.save(any())).thenAnswer(call -> {
+            calls.add(ShardContext.current());
+            return call.getArgument(0);
+        });
+        RefreshToken token = RefreshToken.builder().token(router.newRefreshToken(email)).user(user(email)).build();
+
+        proxy(tokenTarget, RefreshTokenRepository.class, router).save(token);
+
+        assertEquals(List.of(0), calls);
+    }
+
+    @Test
+    void userPages_shouldBeMergedAcrossShardsInEmailOrder() {
+        ShardRouter router = router(2, 0);
+        when(userTarget.findPageAfter(eq(""), any())).thenAnswer(call -> ShardContext.current() == 0
+                ? List.of(summary("a@x"), summary("c@x"), summary("e@x"))
+                : List.of(summary("b@x"), summary("d@x"), summary("f@x")));
+
+        List<UserSummary> page = users(router).findPageAfter("", Limit.of(3));
+
+        assertEquals(List.of("a@x", "b@x", "c@x"), page.stream().map(UserSummary::getEmail).toList());
+    }
+
+    @Test
+    void keylessReads_shouldBeCombinedAndKeylessWritesRejected() {
+        ShardRouter router = router(3, 0);
+        when(userTarget.count()).thenReturn(5L);
+
+        assertEquals(15L, users(router).count());
+        assertThrows(UnsupportedOperationException.class, () -> users(router).deleteAll());
+        verify(userTarget, never()).deleteAll();
+    }
+
+    @Test
+    void spanningShardsInsideATransaction_shouldFail() {
+        ShardRouter router = router(2, 0);
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+
+        assertThrows(IllegalStateException.class, () -> users(router).count());
+        verify(userTarget, never()).count();
+    }
+
+    private ShardRouter router(int shards, int previousShards) {
+        return new ShardRouter(new ShardRing(shards, 64), previousShards == 0 ? null : new ShardRing(previousShards, 64),
+                jdbcTemplate, meterRegistry);
+    }
+
+    private UserRepository users(ShardRouter router) {
+        return proxy(userTarget, UserRepository.class, router);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(T target, Class<T> type, ShardRouter router) {
+        ObjectProvider<ShardRouter> provider = mock(ObjectProvider.class);
+        when(provider.getObject()).thenReturn(router);
+        ProxyFactory factory = new ProxyFactory(target);
+        factory.setInterfaces(type);
+        factory.addAdvice(new ShardedRepositoryInterceptor(provider));
+        return (T) factory.getProxy();
+    }
+
+    private static String emailOwnedBy(ShardRouter router, int shard) {
+        for (int i = 0; ; i++) {
+            String email = "user" + i + "@example.com";
+            if (router.shardFor(email) == shard) {
+                return email;
+            }
+        }
+    }
+
+    private static User user(String email) {
+        return User.builder().id(UUID.randomUUID()).email(email).password("hash").role(Role.USER).build();
+    }
+
+    private static UserSummary summary(String email) {
+        return new UserSummary(UUID.randomUUID(), email, Role.USER);
+    }
+}
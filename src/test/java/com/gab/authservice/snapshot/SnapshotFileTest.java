@@ -0,0 +1,158 @@
+package com.gab.authservice.snapshot;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotFileTest {
+
+    private static final byte[] KEY = "0123456789abcdef0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void sections_shouldRoundTripAndDropExpiredEntries() throws Exception {
+        SnapshotFile file = new SnapshotFile(dir.resolve("snapshots/cache.bin"), KEY);
+        ListSection written = new ListSection("buckets", List.of(100L, 200L, 300L));
+        ListSection other = new ListSection("other", List.of(1000L));
+        file.write(List.of(written, other), 50);
+
+        ListSection restored = new ListSection("buckets", List.of());
+        SnapshotFile.LoadResult result = file.read(Map.of("buckets", restored), 150);
+
+        assertEquals(SnapshotFile.Outcome.LOADED, result.outcome());
+        assertEquals(50, result.writtenAtMillis());
+        // "other" has no bean to go to and is skipped
+        assertEquals(Map.of("buckets", 2), result.restored());
+        assertEquals(List.of(200L, 300L), restored.expiries);
+        assertFalse(Files.exists(dir.resolve("snapshots/cache.bin.tmp")));
+    }
+
+    @Test
+    void missingFile_shouldStartEmpty() {
+        SnapshotFile.LoadResult result = new SnapshotFile(dir.resolve("none.bin"), KEY).read(Map.of(), 0);
+
+        assertEquals(SnapshotFile.Outcome.MISSING, result.outcome());
+    }
+
+    @Test
+    void corruptFile_shouldBeIgnored() throws Exception {
+        Path path = dir.resolve("cache.bin");
+        SnapshotFile file = new SnapshotFile(path, KEY);
+        file.write(List.of(new ListSection("buckets", List.of(100L, 200L))), 0);
+        try (RandomAccessFile raw = new RandomAccessFile(path.toFile(), "rw")) {
+            raw.seek(raw.length() - 3);
+            raw.write(0x7f);
+        }
+
+        ListSection restored = new ListSection("buckets", List.of());
+        SnapshotFile.LoadResult result = file.read(Map.of("buckets", restored), 0);
+
+        assertEquals(SnapshotFile.Outcome.CORRUPT, result.outcome());
+        assertTrue(restored.expiries.isEmpty());
+
+        Files.write(path, new byte[]{1, 2, 3});
+        assertEquals(SnapshotFile.Outcome.CORRUPT, file.read(Map.of("buckets", restored), 0).outcome());
+    }
+
+    @Test
+    void otherFormatVersion_shouldBeIgnored() throws Exception {
+        Path path = dir.resolve("cache.bin");
+        SnapshotFile file = new SnapshotFile(path, KEY);
+        file.write(List.of(new ListSection("buckets", List.of(100L))), 0);
+        try (RandomAccessFile raw = new RandomAccessFile(path.toFile(), "rw")) {
+            raw.seek(8);
+            raw.writeInt(SnapshotFile.FORMAT_VERSION + 1);
+        }
+
+        ListSection restored = new ListSection("buckets", List.of());
+        assertEquals(SnapshotFile.Outcome.VERSION_MISMATCH, file.read(Map.of("buckets", restored), 0).outcome());
+        assertTrue(restored.expiries.isEmpty());
+    }
+
+    @Test
+    void sectionEditedWithValidChecksum_shouldBeRejected() throws Exception {
+        Path path = dir.resolve("cache.bin");
+        new SnapshotFile(path, KEY).write(List.of(new ListSection("buckets", List.of(100L))), 0);
+        // rewrite the entry and fix up the checksum, as someone without the key would
+        byte[] bytes = Files.readAllBytes(path);
+        ByteBuffer file = ByteBuffer.wrap(bytes);
+        int entry = SnapshotFile.HEADER_BYTES + 4 + 2 + "buckets".length() + 4 + 4;
+        file.putLong(entry, 999L);
+        CRC32 crc = new CRC32();
+        crc.update(bytes, SnapshotFile.HEADER_BYTES, bytes.length - SnapshotFile.HEADER_BYTES);
+        file.putInt(SnapshotFile.HEADER_BYTES - 4, (int) crc.getValue());
+        Files.write(path, bytes);
+
+        ListSection restored = new ListSection("buckets", List.of());
+        SnapshotFile.LoadResult result = new SnapshotFile(path, KEY).read(Map.of("buckets", restored), 0);
+
+        assertEquals(SnapshotFile.Outcome.UNTRUSTED, result.outcome());
+        assertTrue(restored.expiries.isEmpty());
+    }
+
+    @Test
+    void snapshotWrittenWithAnotherKey_shouldBeRejected() throws Exception {
+        Path path = dir.resolve("cache.bin");
+        new SnapshotFile(path, KEY).write(List.of(new ListSection("buckets", List.of(100L))), 0);
+
+        byte[] otherKey = "fedcba9876543210fedcba9876543210".getBytes(StandardCharsets.US_ASCII);
+        ListSection restored = new ListSection("buckets", List.of());
+        assertEquals(SnapshotFile.Outcome.UNTRUSTED,
+                new SnapshotFile(path, otherKey).read(Map.of("buckets", restored), 0).outcome());
+        assertTrue(restored.expiries.isEmpty());
+    }
+
+    /**
+     * Entries are just expiry times.
+     */
+    private static final class ListSection implements SnapshotSection {
+        private final String name;
+        final List<Long> expiries;
+
+        ListSection(String name, List<Long> expiries) {
+            this.name = name;
+            this.expiries = new ArrayList<>(expiries);
+        }
+
+        @Override
+        public String snapshotName() {
+            return name;
+        }
+
+        @Override
+        public void writeSnapshot(DataOutputStream out) throws IOException {
+            out.writeInt(expiries.size());
+            for (long expiry : expiries) {
+                out.writeLong(expiry);
+            }
+        }
+
+        @Override
+        public int readSnapshot(DataInputStream in, long nowMillis) throws IOException {
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                long expiry = in.readLong();
+                if (expiry > nowMillis) {
+                    expiries.add(expiry);
+                }
+            }
+            return expiries.size();
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.gab.authservice.tenant;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TenantCacheTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicInteger loads = new AtomicInteger();
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    private TenantCache<String> cache(int maxSize, Function<String, String> loader) {
+        return cache(maxSize, 0, loader);
+    }
+
+    private TenantCache<String> cache(int maxSize, int maxLoadsPerSecond, Function<String, String> loader) {
+        return new TenantCache<>("test", tenant -> {
+            loads.incrementAndGet();
+            return loader.apply(tenant);
+        }, maxSize, Duration.ofMinutes(30), Duration.ofMinutes(1), maxLoadsPerSecond, clock::get, meterRegistry);
+    }
+
+    @Test
+    void concurrentMisses_shouldLoadOnce() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        TenantCache<String> cache = cache(10, tenant -> {
+            loading.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return tenant.toUpperCase();
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<String> first = executor.submit(() -> cache.get("acme"));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            Future<String> second = executor.submit(() -> cache.get("acme"));
+            Future<String> third = executor.submit(() -> cache.get("acme"));
+            Thread.sleep(50);
+            release.countDown();
+
+            assertEquals("ACME", first.get(5, TimeUnit.SECONDS));
+            assertEquals("ACME", second.get(5, TimeUnit.SECONDS));
+            assertEquals("ACME", third.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, loads.get());
+        assertEquals(1, meterRegistry.counter("auth.tenant.cache.loads", "cache", "test", "outcome", "loaded").count());
+    }
+
+    @Test
+    void idleTenants_shouldBeEvictedAndReloaded() {
+        TenantCache<String> cache = cache(10, String::toUpperCase);
+        cache.get("acme");
+        clock.addAndGet(Duration.ofMinutes(20).toNanos());
+        cache.get("globex");
+        clock.addAndGet(Duration.ofMinutes(15).toNanos());
+
+        // acme idle for 35 minutes, globex for 15
+        cache.get("globex");
+        assertEquals(1, cache.size());
+        assertEquals(1, meterRegistry.counter("auth.tenant.cache.evictions", "cache", "test", "reason", "idle").count());
+
+        cache.get("acme");
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void overCapacity_shouldEvictLeastRecentlyUsed() {
+        TenantCache<String> cache = cache(2, String::toUpperCase);
+        cache.get("a");
+        clock.incrementAndGet();
+        cache.get("b");
+        clock.incrementAndGet();
+        cache.get("a");
+        clock.incrementAndGet();
+        cache.get("c");
+
+        assertEquals(2, cache.size());
+        assertEquals(1, meterRegistry.counter("auth.tenant.cache.evictions", "cache", "test", "reason", "size").count());
+        cache.get("a");
+        assertEquals(3, loads.get());
+        cache.get("b");
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    void failedLoads_shouldBeRememberedUntilFailureTtl() {
+        TenantCache<String> cache = cache(10, tenant -> {
+            throw new IllegalStateException("no such secret");
+        });
+
+        assertThrows(IllegalStateException.class, () -> cache.get("ghost"));
+        assertThrows(IllegalStateException.class, () -> cache.get("ghost"));
+        assertEquals(1, loads.get());
+
+        clock.addAndGet(Duration.ofMinutes(2).toNanos());
+        assertThrows(IllegalStateException.class, () -> cache.get("ghost"));
+        assertEquals(2, loads.get());
+        assertEquals(2, meterRegistry.counter("auth.tenant.cache.loads", "cache", "test", "outcome", "failed").count());
+    }
+
+    @Test
+    void failedLoads_shouldNotEvictLoadedTenants() {
+        TenantCache<String> cache = cache(2, tenant -> {
+            if (tenant.startsWith("ghost")) {
+                throw new IllegalStateException("no such secret");
+            }
+            return tenant.toUpperCase();
+        });
+        cache.get("acme");
+        cache.get("globex");
+
+        for (int i = 0; i < 10; i++) {
+            String ghost = "ghost" + i;
+            clock.incrementAndGet();
+            assertThrows(IllegalStateException.class, () -> cache.get(ghost));
+        }
+
+        assertEquals(2, cache.size());
+        assertEquals(0, meterRegistry.counter("auth.tenant.cache.evictions", "cache", "test", "reason", "size").count());
+        assertEquals("ACME", cache.get("acme"));
+        assertEquals("GLOBEX", cache.get("globex"));
+        assertEquals(12, loads.get());
+    }
+
+    @Test
+    void loadsBeyondRate_shouldFailWithoutCallingLoader() {
+        TenantCache<String> cache = cache(100, 2, String::toUpperCase);
+        cache.get("a");
+        cache.get("b");
+
+        assertThrows(IllegalStateException.class, () -> cache.get("c"));
+        assertEquals(2, loads.get());
+        assertEquals(1, meterRegistry.counter("auth.tenant.cache.loads", "cache", "test", "outcome", "throttled").count());
+        // hits are never throttled
+        assertEquals("A", cache.get("a"));
+
+        clock.addAndGet(Duration.ofSeconds(1).toNanos());
+        assertEquals("C", cache.get("c"));
+        assertEquals(3, loads.get());
+    }
+}
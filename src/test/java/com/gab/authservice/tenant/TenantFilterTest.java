@@ -0,0 +1,113 @@
+package com.gab.authservice.tenant;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TenantFilterTest {
+
+    private final List<String> seen = new ArrayList<>();
+
+    private TenantFilter filter(String hostSuffix, Set<String> allowed) {
+        TenantProperties properties = new TenantProperties();
+        properties.setHostSuffix(hostSuffix);
+        properties.setAllowed(allowed);
+        TenantRegistry registry = new TenantRegistry(properties, tenant -> {
+            throw new AssertionError("keys are not needed to resolve the tenant");
+        }, new SimpleMeterRegistry());
+        return new TenantFilter(registry, properties);
+    }
+
+    private MockFilterChain recordingChain() {
+        return new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) {
+                seen.add(TenantContext.current() + " " + req.getRequestURI() + " " + req.getServletPath());
+            }
+        });
+    }
+
+    @Test
+    void pathPrefix_shouldSelectTenantAndBeStripped() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/t/acme/auth/login");
+        request.setServletPath("/t/acme/auth/login");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter("", Set.of()).doFilter(request, response, recordingChain());
+
+        assertEquals(List.of("acme /auth/login /auth/login"), seen);
+        assertNull(TenantContext.current());
+    }
+
+    @Test
+    void hostSuffix_shouldSelectTenant() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/auth/login");
+        request.setServletPath("/auth/login");
+        request.setServerName("globex.auth.example.com");
+
+        filter(".auth.example.com", Set.of()).doFilter(request, new MockHttpServletResponse(), recordingChain());
+
+        assertEquals(List.of("globex /auth/login /auth/login"), seen);
+    }
+
+    @Test
+    void requestWithoutTenant_shouldLeaveContextEmpty() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/auth/jwks");
+        request.setServletPath("/auth/jwks");
+        request.setServerName("auth.example.com");
+
+        filter(".auth.example.com", Set.of()).doFilter(request, new MockHttpServletResponse(), recordingChain());
+
+        assertEquals(List.of("null /auth/jwks /auth/jwks"), seen);
+    }
+
+    @Test
+    void malformedOrUnknownTenant_shouldBeRejected() throws Exception {
+        TenantFilter filter = filter("", Set.of("acme"));
+
+        MockHttpServletResponse malformed = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("POST", "/t/..%2F/auth/login"), malformed, recordingChain());
+        MockHttpServletResponse unknown = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("POST", "/t/initech/auth/login"), unknown, recordingChain());
+
+        assertEquals(400, malformed.getStatus());
+        assertEquals(400, unknown.getStatus());
+        assertTrue(seen.isEmpty());
+    }
+
+    @Test
+    void adminEndpoints_shouldNotBeServedForTenants() throws Exception {
+        TenantFilter filter = filter(".auth.example.com", Set.of("acme"));
+
+        MockHttpServletResponse byPath = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/t/acme/admin/users"), byPath, recordingChain());
+        MockHttpServletResponse encoded = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/t/acme/%61dmin/users"), encoded, recordingChain());
+        MockHttpServletRequest byHost = new MockHttpServletRequest("GET", "/admin/users");
+        byHost.setServerName("acme.auth.example.com");
+        MockHttpServletResponse hostResponse = new MockHttpServletResponse();
+        filter.doFilter(byHost, hostResponse, recordingChain());
+
+        assertEquals(403, byPath.getStatus());
+        assertEquals(403, encoded.getStatus());
+        assertEquals(403, hostResponse.getStatus());
+        assertTrue(seen.isEmpty());
+
+        MockHttpServletRequest ownHost = new MockHttpServletRequest("GET", "/admin/users");
+        ownHost.setServerName("auth.example.com");
+        ownHost.setServletPath("/admin/users");
+        filter.doFilter(ownHost, new MockHttpServletResponse(), recordingChain());
+        assertEquals(List.of("null /admin/users /admin/users"), seen);
+    }
+}
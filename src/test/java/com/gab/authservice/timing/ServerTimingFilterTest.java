@@ -0,0 +1,103 @@
+package com.gab.authservice.timing;
+
+import com.gab.authservice.config.InstrumentedPasswordEncoder;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServerTimingFilterTest {
+
+    private final ServerTimingFilter filter = new ServerTimingFilter(0);
+
+    @Test
+    void phases_shouldBeReportedInHeaderBeforeBodyIsWritten() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/auth/login");
+        request.setServletPath("/auth/login");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                try (ServerTiming.Phase ignored = ServerTiming.phase("authenticate")) {
+                    try (ServerTiming.Phase nested = ServerTiming.phase("user-lookup")) {
+                        busyWait();
+                    }
+                }
+                // same name twice is summed into one metric
+                try (ServerTiming.Phase ignored = ServerTiming.phase("verify")) {
+                    busyWait();
+                }
+                try (ServerTiming.Phase ignored = ServerTiming.phase("verify")) {
+                    busyWait();
+                }
+                resp.getWriter().write("{}");
+                resp.flushBuffer();
+            }
+        }));
+
+        String header = response.getHeader(ServerTimingFilter.HEADER);
+        assertNotNull(header);
+        assertTrue(header.matches("authenticate;dur=\\d+\\.\\d{2}, user-lookup;dur=\\d+\\.\\d{2}, "
+                + "verify;dur=\\d+\\.\\d{2}, total;dur=\\d+\\.\\d{2}"), header);
+        assertTrue(response.isCommitted());
+    }
+
+    @Test
+    void passwordMatch_shouldBeItsOwnPhase() throws Exception {
+        PasswordEncoder encoder = new InstrumentedPasswordEncoder(new BCryptPasswordEncoder(4), "bcrypt");
+        String hash = encoder.encode("password");
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/auth/login");
+        request.setServletPath("/auth/login");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) {
+                try (ServerTiming.Phase ignored = ServerTiming.phase("authenticate")) {
+                    assertTrue(encoder.matches("password", hash));
+                }
+            }
+        }));
+
+        String header = response.getHeader(ServerTimingFilter.HEADER);
+        assertTrue(header.matches("authenticate;dur=\\d+\\.\\d{2}, password;dur=\\d+\\.\\d{2}, total;dur=\\d+\\.\\d{2}"),
+                header);
+    }
+
+    @Test
+    void nonAuthPaths_shouldNotBeTimed() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/demo/hello_user");
+        request.setServletPath("/api/demo/hello_user");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, new MockFilterChain());
+
+        assertNull(response.getHeader(ServerTimingFilter.HEADER));
+    }
+
+    @Test
+    void phaseOutsideRequest_shouldBeNoop() {
+        ServerTiming.Phase first = ServerTiming.phase("sign");
+        ServerTiming.Phase second = ServerTiming.phase("verify");
+        assertSame(first, second);
+        first.close();
+    }
+
+    private static void busyWait() {
+        long end = System.nanoTime() + 100_000;
+        while (System.nanoTime() < end) {
+            Thread.onSpinWait();
+        }
+    }
+}
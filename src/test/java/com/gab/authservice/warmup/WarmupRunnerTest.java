@@ -0,0 +1,161 @@
+package com.gab.authservice.warmup;
+
+import com.gab.authservice.config.ReplicaRoutingDataSource;
+import com.gab.authservice.entity.User;
+import com.gab.authservice.repository.RefreshTokenRepository;
+import com.gab.authservice.repository.UserRepository;
+import com.gab.authservice.service.JwtService;
+import com.gab.authservice.shard.ShardRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.DefaultApplicationArguments;
+import org.springframework.boot.actuate.info.Info;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class WarmupRunnerTest {
+
+    private WarmupProperties properties;
+    private JwtService jwtService;
+    private PasswordEncoder passwordEncoder;
+    private UserRepository userRepository;
+    private RefreshTokenRepository refreshTokenRepository;
+    private HikariDataSource dataSource;
+
+    @BeforeEach
+    void setUp() {
+        properties = new WarmupProperties();
+        properties.setTokenIterations(20);
+        properties.setPasswordIterations(2);
+        properties.setQueryIterations(3);
+        properties.setPoolConnections(4);
+        jwtService = mock(JwtService.class);
+        passwordEncoder = mock(PasswordEncoder.class);
+        userRepository = mock(UserRepository.class);
+        refreshTokenRepository = mock(RefreshTokenRepository.class);
+        dataSource = mock(HikariDataSource.class);
+        when(jwtService.generateToken(any(User.class), any(Duration.class))).thenReturn("token");
+        when(passwordEncoder.encode(anyString())).thenReturn("hash");
+    }
+
+    @Test
+    void run_shouldExerciseEveryStepAndReportIt() throws Exception {
+        Connection connection = mock(Connection.class);
+        when(dataSource.isWrapperFor(HikariDataSource.class)).thenReturn(true);
+        when(dataSource.unwrap(HikariDataSource.class)).thenReturn(dataSource);
+        when(dataSource.getMaximumPoolSize()).thenReturn(3);
+        when(dataSource.getConnection()).thenReturn(connection);
+
+        WarmupRunner runner = runner(dataSource);
+        runner.run(new DefaultApplicationArguments());
+
+        verify(jwtService, times(20)).generateToken(any(User.class), any(Duration.class));
+        verify(jwtService, times(20)).extractUsername("token");
+        verify(passwordEncoder, times(2)).matches(anyString(), eq("hash"));
+        verify(userRepository, times(3)).existsByEmail(anyString());
+        verify(refreshTokenRepository, times(3)).findByTokenWithUser(anyString());
+        // capped at the pool's maximum size, all held at once and then returned
+        verify(dataSource, times(3)).getConnection();
+        verify(connection, times(3)).close();
+
+        Map<String, Object> report = report(runner);
+        assertEquals("complete", report.get("status"));
+        @SuppressWarnings("unchecked")
+        Map<String, Map<String, Object>> steps = (Map<String, Map<String, Object>>) report.get("steps");
+        assertEquals(20, steps.get("tokens").get("iterations"));
+        assertEquals(3, steps.get("connection-pool").get("iterations"));
+    }
+
+    @Test
+    void routingDataSources_shouldHaveEveryPoolBehindThemFilled() throws Exception {
+        HikariDataSource primary = pool(10);
+        HikariDataSource replica = pool(2);
+        HikariDataSource shard1 = pool(10);
+        // the @Primary LazyConnectionDataSourceProxy hides the pools
+        DataSource lazyProxy = mock(DataSource.class);
+
+        WarmupRunner runner = runner(lazyProxy, primary,
+                new ReplicaRoutingDataSource(primary, List.of(replica), Duration.ofSeconds(30)),
+                new ShardRoutingDataSource(List.of(primary, shard1)));
+        runner.run(new DefaultApplicationArguments());
+
+        verify(primary, times(4)).getConnection();
+        verify(replica, times(2)).getConnection();
+        verify(shard1, times(4)).getConnection();
+        @SuppressWarnings("unchecked")
+        Map<String, Map<String, Object>> steps = (Map<String, Map<String, Object>>) report(runner).get("steps");
+        assertEquals(10, steps.get("connection-pool").get("iterations"));
+    }
+
+    @Test
+    void noPool_shouldBeReportedAsSkipped() {
+        WarmupRunner runner = runner(mock(DataSource.class));
+        runner.run(new DefaultApplicationArguments());
+
+        Map<String, Object> report = report(runner);
+        assertEquals("partial", report.get("status"));
+        @SuppressWarnings("unchecked")
+        Map<String, Map<String, Object>> steps = (Map<String, Map<String, Object>>) report.get("steps");
+        assertEquals("no connection pool found", steps.get("connection-pool").get("skipped"));
+    }
+
+    @Test
+    void failingStep_shouldBeSkippedWithoutFailingStartup() {
+        when(jwtService.generateToken(any(User.class), any(Duration.class)))
+                .thenThrow(new IllegalStateException("key not available"));
+
+        WarmupRunner runner = runner();
+        runner.run(new DefaultApplicationArguments());
+
+        verify(userRepository, times(3)).existsByEmail(anyString());
+        Map<String, Object> report = report(runner);
+        assertEquals("partial", report.get("status"));
+        assertTrue(report.get("steps").toString().contains("key not available"));
+    }
+
+    @Test
+    void maxDuration_shouldCutWarmupShort() {
+        properties.setMaxDuration(Duration.ZERO);
+
+        WarmupRunner runner = runner();
+        runner.run(new DefaultApplicationArguments());
+
+        verifyNoInteractions(passwordEncoder, userRepository);
+        assertEquals("partial", report(runner).get("status"));
+    }
+
+    private WarmupRunner runner(DataSource... dataSources) {
+        @SuppressWarnings("unchecked")
+        ObjectProvider<DataSource> provider = mock(ObjectProvider.class);
+        when(provider.orderedStream()).thenAnswer(invocation -> Stream.of(dataSources));
+        return new WarmupRunner(properties, jwtService, passwordEncoder, userRepository, refreshTokenRepository,
+                provider);
+    }
+
+    private static HikariDataSource pool(int maximumPoolSize) throws Exception {
+        HikariDataSource pool = mock(HikariDataSource.class);
+        when(pool.getMaximumPoolSize()).thenReturn(maximumPoolSize);
+        when(pool.getConnection()).thenAnswer(invocation -> mock(Connection.class));
+        return pool;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> report(WarmupRunner runner) {
+        Info.Builder builder = new Info.Builder();
+        runner.contribute(builder);
+        return (Map<String, Object>) builder.build().get("warmup");
+    }
+}
@@ -0,0 +1,224 @@
+package com.gab.authservice.writebehind;
+
+import com.gab.authservice.entity.RefreshToken;
+import com.gab.authservice.entity.Role;
+import com.gab.authservice.entity.User;
+import com.gab.authservice.invalidation.InvalidationBus;
+import com.gab.authservice.invalidation.InvalidationEvent;
+import com.gab.authservice.invalidation.InvalidationListener;
+import com.gab.authservice.invalidation.InvalidationTransport;
+import com.gab.authservice.repository.UserRepository;
+import com.gab.authservice.service.ReadYourWritesTracker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class WriteBehindRefreshTokenStoreTest {
+
+    private static final Instant EXPIRY = Instant.now().plus(7, ChronoUnit.DAYS).truncatedTo(ChronoUnit.MILLIS);
+
+    @TempDir
+    Path journalDir;
+
+    private UserRepository userRepository;
+    private User alice;
+    private User bob;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        alice = user("alice@example.com");
+        bob = user("bob@example.com");
+        when(userRepository.findById(alice.getId())).thenReturn(Optional.of(alice));
+        when(userRepository.findById(bob.getId())).thenReturn(Optional.of(bob));
+    }
+
+    private WriteBehindRefreshTokenStore store(JdbcTemplate jdbcTemplate, int maxPending) throws Exception {
+        // flushes only when the test calls flush()
+        return new WriteBehindRefreshTokenStore(new RefreshTokenJournal(journalDir), jdbcTemplate, userRepository,
+                new ReadYourWritesTracker(Duration.ofSeconds(2)), null, maxPending, 2, Duration.ofHours(1), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void pendingToken_shouldBeVisibleBeforeAndInsertedByFlush() throws Exception {
+        CapturingJdbcTemplate jdbc = new CapturingJdbcTemplate();
+        WriteBehindRefreshTokenStore store = store(jdbc, 100);
+
+        assertTrue(store.add("t1", alice, EXPIRY));
+        RefreshToken found = store.find("t1").orElseThrow();
+        assertSame(alice, found.getUser());
+        assertEquals(EXPIRY, found.getExpiryDate());
+
+        assertTrue(store.add("t2", alice, EXPIRY));
+        assertTrue(store.add("t3", bob, EXPIRY));
+        assertTrue(store.flush());
+
+        assertEquals(List.of("t1", "t2", "t3"), jdbc.insertedTokens().stream().sorted().toList());
+        // batch size 2
+        assertEquals(2, jdbc.batches.size());
+        assertEquals(0, store.pendingCount());
+        assertTrue(store.find("t1").isEmpty());
+        // flushed segments are deleted, only the new (empty) current one is left
+        assertEquals(1, segments().size());
+        assertEquals(0, Files.size(segments().get(0)));
+        store.close();
+    }
+
+    @Test
+    void crash_shouldNotLoseJournaledTokens() throws Exception {
+        JdbcTemplate down = mock(JdbcTemplate.class);
+        when(down.batchUpdate(eq(WriteBehindRefreshTokenStore.INSERT_SQL), anyList()))
+                .thenThrow(new IllegalStateException("database down"));
+        WriteBehindRefreshTokenStore beforeCrash = store(down, 100);
+
+        beforeCrash.add("a1", alice, EXPIRY);
+        beforeCrash.add("b1", bob, EXPIRY);
+        assertFalse(beforeCrash.flush());
+        beforeCrash.add("a2", alice, EXPIRY);
+        // bob logs out before his token reached the database
+        beforeCrash.purge("bob@example.com");
+        beforeCrash.add("b2", bob, EXPIRY);
+        // crash: no close(), no final flush
+
+        CapturingJdbcTemplate jdbc = new CapturingJdbcTemplate();
+        WriteBehindRefreshTokenStore afterRestart = store(jdbc, 100);
+
+        assertEquals(3, afterRestart.pendingCount());
+        assertEquals(alice.getEmail(), afterRestart.find("a1").orElseThrow().getUser().getEmail());
+        assertTrue(afterRestart.find("b1").isEmpty(), "purged token must not come back");
+        assertTrue(afterRestart.flush());
+        assertEquals(List.of("a1", "a2", "b2"), jdbc.insertedTokens().stream().sorted().toList());
+        afterRestart.close();
+    }
+
+    @Test
+    void tornWrite_shouldOnlyLoseTheRecordThatWasCutOff() throws Exception {
+        WriteBehindRefreshTokenStore beforeCrash = store(mock(JdbcTemplate.class), 100);
+        beforeCrash.add("a1", alice, EXPIRY);
+        beforeCrash.add("a2", alice, EXPIRY);
+        // half a frame header and some payload bytes, as left by a crash during write()
+        Path newest = segments().get(segments().size() - 1);
+        Files.write(newest, new byte[] {0, 0, 0, 42, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        WriteBehindRefreshTokenStore afterRestart = store(new CapturingJdbcTemplate(), 100);
+
+        assertEquals(2, afterRestart.pendingCount());
+        assertTrue(afterRestart.find("a2").isPresent());
+        afterRestart.close();
+    }
+
+    @Test
+    void fullPendingSet_shouldRefuseSoCallerInsertsSynchronously() throws Exception {
+        WriteBehindRefreshTokenStore store = store(new CapturingJdbcTemplate(), 2);
+
+        assertTrue(store.add("t1", alice, EXPIRY));
+        assertTrue(store.add("t2", alice, EXPIRY));
+        assertFalse(store.add("t3", alice, EXPIRY));
+        assertTrue(store.find("t3").isEmpty());
+        store.close();
+    }
+
+    @Test
+    void logoutOnAnotherNode_shouldPurgePendingTokensHere() throws Exception {
+        CapturingJdbcTemplate jdbc = new CapturingJdbcTemplate();
+        WriteBehindRefreshTokenStore store = store(jdbc, 100);
+        InvalidationTransport network = new LoopbackTransport();
+        InvalidationBus nodeA = new InvalidationBus(network, provider(store));
+        InvalidationBus nodeB = new InvalidationBus(network, provider());
+        nodeA.start();
+        nodeB.start();
+
+        // alice logs in on A, then logs out on B before A has flushed her token
+        store.add("a1", alice, EXPIRY);
+        store.add("b1", bob, EXPIRY);
+        nodeB.publish(InvalidationEvent.Type.USER_LOGGED_OUT, alice.getEmail());
+
+        assertTrue(store.find("a1").isEmpty());
+        assertTrue(store.flush());
+        assertEquals(List.of("b1"), jdbc.insertedTokens());
+        // crash right after a second logout: the tombstones keep alice's tokens from coming back on replay
+        store.add("a2", alice, EXPIRY);
+        nodeB.publish(InvalidationEvent.Type.USER_LOGGED_OUT, alice.getEmail());
+        WriteBehindRefreshTokenStore afterRestart = store(new CapturingJdbcTemplate(), 100);
+        assertEquals(0, afterRestart.pendingCount());
+        afterRestart.close();
+    }
+
+    private List<Path> segments() throws Exception {
+        try (Stream<Path> files = Files.list(journalDir)) {
+            return files.filter(file -> Files.isRegularFile(file)).sorted().toList();
+        }
+    }
+
+    private static User user(String email) {
+        User user = new User();
+        user.setId(UUID.randomUUID());
+        user.setEmail(email);
+        user.setRole(Role.USER);
+        return user;
+    }
+
+    private static ObjectProvider<InvalidationListener> provider(InvalidationListener... listeners) {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        for (int i = 0; i < listeners.length; i++) {
+            beanFactory.addBean("listener" + i, listeners[i]);
+        }
+        return beanFactory.getBeanProvider(InvalidationListener.class);
+    }
+
+    /** Delivers every message to every started node, like one Postgres channel. */
+    private static class LoopbackTransport implements InvalidationTransport {
+        final List<Receiver> receivers = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void publish(String payload) {
+            receivers.forEach(receiver -> receiver.onMessage(payload));
+        }
+
+        @Override
+        public void start(Receiver receiver) {
+            receivers.add(receiver);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static class CapturingJdbcTemplate extends JdbcTemplate {
+        final List<List<Object[]>> batches = new ArrayList<>();
+
+        @Override
+        public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+            assertEquals(WriteBehindRefreshTokenStore.INSERT_SQL, sql);
+            batches.add(List.copyOf(batchArgs));
+            return new int[batchArgs.size()];
+        }
+
+        List<String> insertedTokens() {
+            return batches.stream().flatMap(List::stream).map(row -> (String) row[0]).toList();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.gab.authservice.verifier;
+
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.interfaces.RSAKey;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Key ids as issued by the auth service: the first 8 bytes of SHA-256 over the RSA modulus, base64url.
+ * Derived from the key itself, so a PEM-only key source can match the {@code kid} header of a token.
+ */
+public final class KeyIds {
+
+    private KeyIds() {
+    }
+
+    public static String of(RSAKey key) {
+        return of(key.getModulus());
+    }
+
+    static String of(BigInteger modulus) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(modulus.toByteArray());
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
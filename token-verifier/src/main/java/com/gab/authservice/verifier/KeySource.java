@@ -0,0 +1,15 @@
+package com.gab.authservice.verifier;
+
+import java.security.interfaces.RSAPublicKey;
+
+/**
+ * Supplies the public key a token was signed with.
+ */
+public interface KeySource {
+
+    /**
+     * @param kid the token's {@code kid} header, or {@code null} for tokens without one
+     * @throws VerificationException if there is no key for this id
+     */
+    RSAPublicKey get(String kid);
+}
@@ -0,0 +1,311 @@
+package com.gab.authservice.verifier;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.RSAPublicKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+/**
+ * Public keys fetched over HTTP from the auth service, either as a JWKS ({@code /auth/jwks})
+ * or as the single PEM key ({@code /auth/public-key}).
+ * <p>
+ * Keys are cached for {@code ttl}. Once they are older than {@code ttl - refreshAhead} the next lookup
+ * triggers a background refresh, so callers normally never wait on the network. A token whose
+ * {@code kid} isn't cached (e.g. right after a key rotation) causes an immediate refetch, but fetches
+ * are never more frequent than {@code minRefetchInterval} so garbage {@code kid}s can't hammer the
+ * auth service. If a refresh fails the previous keys keep being served.
+ * </p>
+ */
+public class RemoteKeySource implements KeySource, AutoCloseable {
+
+    public enum Format {
+        JWKS,
+        PEM
+    }
+
+    private static final System.Logger log = System.getLogger(RemoteKeySource.class.getName());
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final URI uri;
+    private final Format format;
+    private final HttpClient httpClient;
+    private final Duration requestTimeout;
+    private final long ttlNanos;
+    private final long refreshAheadNanos;
+    private final long minRefetchNanos;
+    private final Executor refreshExecutor;
+    private final ExecutorService ownedExecutor;
+    private final LongSupplier nanoClock;
+
+    private final Object fetchLock = new Object();
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private volatile KeySet keys;
+    // guarded by fetchLock
+    private boolean attempted;
+    private long lastAttempt;
+
+    private RemoteKeySource(Builder builder) {
+        this.uri = builder.uri;
+        this.format = builder.format;
+        this.httpClient = builder.httpClient != null
+                ? builder.httpClient
+                : HttpClient.newBuilder().connectTimeout(builder.requestTimeout).build();
+        this.requestTimeout = builder.requestTimeout;
+        this.ttlNanos = builder.ttl.toNanos();
+        this.refreshAheadNanos = Math.min(builder.refreshAhead.toNanos(), ttlNanos);
+        this.minRefetchNanos = builder.minRefetchInterval.toNanos();
+        if (builder.refreshExecutor != null) {
+            this.refreshExecutor = builder.refreshExecutor;
+            this.ownedExecutor = null;
+        } else {
+            this.ownedExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "token-verifier-key-refresh");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.refreshExecutor = ownedExecutor;
+        }
+        this.nanoClock = builder.nanoClock;
+    }
+
+    public static Builder jwks(URI uri) {
+        return new Builder(uri, Format.JWKS);
+    }
+
+    public static Builder pem(URI uri) {
+        return new Builder(uri, Format.PEM);
+    }
+
+    @Override
+    public RSAPublicKey get(String kid) {
+        KeySet current = keys;
+        long now = nanoClock.getAsLong();
+        if (current == null || now - current.fetchedAt >= ttlNanos) {
+            current = fetchIfAllowed(current);
+        } else if (now - current.fetchedAt >= ttlNanos - refreshAheadNanos) {
+            refreshInBackground(current);
+        }
+
+        RSAPublicKey key = current.find(kid);
+        if (key == null) {
+            // possibly a key rotated in since the last fetch
+            current = fetchIfAllowed(current);
+            key = current.find(kid);
+        }
+        if (key == null) {
+            throw new VerificationException(kid == null
+                    ? "Token has no kid and " + current.byId.size() + " keys are published"
+                    : "Unknown key id " + kid);
+        }
+        return key;
+    }
+
+    private void refreshInBackground(KeySet seen) {
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    fetchIfAllowed(seen);
+                } catch (VerificationException e) {
+                    // already logged, stale keys stay in use
+                } finally {
+                    refreshing.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            refreshing.set(false);
+            log.log(System.Logger.Level.WARNING, "Could not schedule key refresh", e);
+        }
+    }
+
+    /**
+     * Fetches unless another thread already replaced {@code seen} or the last attempt was too recent.
+     */
+    private KeySet fetchIfAllowed(KeySet seen) {
+        synchronized (fetchLock) {
+            KeySet latest = keys;
+            if (latest != seen) {
+                return latest;
+            }
+            long now = nanoClock.getAsLong();
+            if (attempted && now - lastAttempt < minRefetchNanos) {
+                if (latest == null) {
+                    throw new VerificationException("Keys from " + uri + " are unavailable");
+                }
+                return latest;
+            }
+            attempted = true;
+            lastAttempt = now;
+            try {
+                KeySet fetched = new KeySet(fetch(), now);
+                keys = fetched;
+                return fetched;
+            } catch (IOException | GeneralSecurityException | RuntimeException e) {
+                if (latest == null) {
+                    throw new VerificationException("Failed to fetch keys from " + uri, e);
+                }
+                log.log(System.Logger.Level.WARNING, "Failed to refresh keys from " + uri + ", keeping previous keys", e);
+                return latest;
+            }
+        }
+    }
+
+    private Map<String, RSAPublicKey> fetch() throws IOException, GeneralSecurityException {
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(requestTimeout).GET().build();
+        HttpResponse<String> response;
+        try {
+            response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while fetching keys", e);
+        }
+        if (response.statusCode() != 200) {
+            throw new IOException("Unexpected status " + response.statusCode());
+        }
+        Map<String, RSAPublicKey> byId = format == Format.JWKS ? parseJwks(response.body()) : parsePem(response.body());
+        if (byId.isEmpty()) {
+            throw new IOException("No RSA signing keys in response");
+        }
+        return byId;
+    }
+
+    static Map<String, RSAPublicKey> parseJwks(String body) throws IOException, GeneralSecurityException {
+        KeyFactory keyFactory = KeyFactory.getInstance("RSA");
+        Base64.Decoder decoder = Base64.getUrlDecoder();
+        Map<String, RSAPublicKey> byId = new HashMap<>();
+        for (JsonNode jwk : MAPPER.readTree(body).path("keys")) {
+            if (!"RSA".equals(jwk.path("kty").asText()) || "enc".equals(jwk.path("use").asText())) {
+                continue;
+            }
+            BigInteger modulus = new BigInteger(1, decoder.decode(jwk.path("n").asText()));
+            BigInteger exponent = new BigInteger(1, decoder.decode(jwk.path("e").asText()));
+            RSAPublicKey key = (RSAPublicKey) keyFactory.generatePublic(new RSAPublicKeySpec(modulus, exponent));
+            String kid = jwk.hasNonNull("kid") ? jwk.get("kid").asText() : KeyIds.of(key);
+            byId.put(kid, key);
+        }
+        return byId;
+    }
+
+    static Map<String, RSAPublicKey> parsePem(String body) throws GeneralSecurityException {
+        String base64 = body.replace("-----BEGIN PUBLIC KEY-----", "")
+                .replace("-----END PUBLIC KEY-----", "")
+                .replaceAll("\\s", "");
+        RSAPublicKey key = (RSAPublicKey) KeyFactory.getInstance("RSA")
+                .generatePublic(new X509EncodedKeySpec(Base64.getDecoder().decode(base64)));
+        return Map.of(KeyIds.of(key), key);
+    }
+
+    @Override
+    public void close() {
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdownNow();
+        }
+    }
+
+    private static final class KeySet {
+        final Map<String, RSAPublicKey> byId;
+        final long fetchedAt;
+
+        KeySet(Map<String, RSAPublicKey> byId, long fetchedAt) {
+            this.byId = Map.copyOf(byId);
+            this.fetchedAt = fetchedAt;
+        }
+
+        RSAPublicKey find(String kid) {
+            if (kid != null) {
+                return byId.get(kid);
+            }
+            // tokens issued before kid headers were added: fine as long as there is only one key
+            return byId.size() == 1 ? byId.values().iterator().next() : null;
+        }
+    }
+
+    public static final class Builder {
+        private final URI uri;
+        private final Format format;
+        private HttpClient httpClient;
+        private Duration requestTimeout = Duration.ofSeconds(2);
+        private Duration ttl = Duration.ofMinutes(10);
+        private Duration refreshAhead = Duration.ofMinutes(1);
+        private Duration minRefetchInterval = Duration.ofSeconds(30);
+        private Executor refreshExecutor;
+        private LongSupplier nanoClock = System::nanoTime;
+
+        private Builder(URI uri, Format format) {
+            this.uri = uri;
+            this.format = format;
+        }
+
+        public Builder httpClient(HttpClient httpClient) {
+            this.httpClient = httpClient;
+            return this;
+        }
+
+        public Builder requestTimeout(Duration requestTimeout) {
+            this.requestTimeout = requestTimeout;
+            return this;
+        }
+
+        /**
+         * How long fetched keys are used before a lookup has to wait for a refetch. Default 10 minutes.
+         */
+        public Builder ttl(Duration ttl) {
+            this.ttl = ttl;
+            return this;
+        }
+
+        /**
+         * How long before {@code ttl} runs out a background refresh is started. Default 1 minute.
+         */
+        public Builder refreshAhead(Duration refreshAhead) {
+            this.refreshAhead = refreshAhead;
+            return this;
+        }
+
+        /**
+         * Minimum time between two fetches, including those caused by unknown {@code kid}s. Default 30 seconds.
+         */
+        public Builder minRefetchInterval(Duration minRefetchInterval) {
+            this.minRefetchInterval = minRefetchInterval;
+            return this;
+        }
+
+        /**
+         * Where background refreshes run. Defaults to a daemon thread owned by the key source.
+         */
+        public Builder refreshExecutor(Executor refreshExecutor) {
+            this.refreshExecutor = refreshExecutor;
+            return this;
+        }
+
+        Builder nanoClock(LongSupplier nanoClock) {
+            this.nanoClock = nanoClock;
+            return this;
+        }
+
+        public RemoteKeySource build() {
+            return new RemoteKeySource(this);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.gab.authservice.verifier;
+
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+
+import java.io.IOException;
+import java.security.Principal;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Servlet counterpart of the auth service's {@code JwtAuthFilter} for downstream services.
+ * <p>
+ * A valid {@code Authorization: Bearer} token makes the request authenticated: {@link #current(ServletRequest)}
+ * returns the {@link VerifiedToken}, {@code getUserPrincipal()}/{@code getRemoteUser()} return the email and
+ * {@code isUserInRole("ADMIN")} (or {@code "ROLE_ADMIN"}) checks the role claim, with the auth service's role
+ * hierarchy ({@code ADMIN > USER}, see its {@code RoleAuthorities}): an admin is also in role USER. Like
+ * {@code JwtAuthFilter}, missing or invalid tokens are not rejected here; the request just continues
+ * unauthenticated.
+ * </p>
+ */
+public class TokenVerificationFilter implements Filter {
+
+    public static final String ATTRIBUTE = VerifiedToken.class.getName();
+
+    // roles each role implies besides itself; keep in line with the service's RoleAuthorities.HIERARCHY
+    private static final Map<String, Set<String>> IMPLIED_ROLES = Map.of("ADMIN", Set.of("USER"));
+
+    private static final System.Logger log = System.getLogger(TokenVerificationFilter.class.getName());
+
+    private final TokenVerifier verifier;
+
+    public TokenVerificationFilter(TokenVerifier verifier) {
+        this.verifier = verifier;
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        if (!(request instanceof HttpServletRequest httpRequest)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        String authHeader = httpRequest.getHeader("Authorization");
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        VerifiedToken token;
+        try {
+            token = verifier.verify(authHeader.substring(7));
+        } catch (VerificationException e) {
+            log.log(System.Logger.Level.DEBUG, "Rejected bearer token: {0}", e.getMessage());
+            chain.doFilter(request, response);
+            return;
+        }
+        httpRequest.setAttribute(ATTRIBUTE, token);
+        chain.doFilter(new AuthenticatedRequest(httpRequest, token), response);
+    }
+
+    /**
+     * The token verified for this request, or {@code null}.
+     */
+    public static VerifiedToken current(ServletRequest request) {
+        return (VerifiedToken) request.getAttribute(ATTRIBUTE);
+    }
+
+    private static final class AuthenticatedRequest extends HttpServletRequestWrapper {
+
+        private final VerifiedToken token;
+        private final Principal principal;
+
+        AuthenticatedRequest(HttpServletRequest request, VerifiedToken token) {
+            super(request);
+            this.token = token;
+            this.principal = token::getSubject;
+        }
+
+        @Override
+        public String getAuthType() {
+            return "Bearer";
+        }
+
+        @Override
+        public String getRemoteUser() {
+            return token.getSubject();
+        }
+
+        @Override
+        public Principal getUserPrincipal() {
+            return principal;
+        }
+
+        @Override
+        public boolean isUserInRole(String role) {
+            String granted = token.getRole();
+            if (granted == null || role == null) {
+                return false;
+            }
+            String name = role.startsWith("ROLE_") ? role.substring("ROLE_".length()) : role;
+            return granted.equals(name) || IMPLIED_ROLES.getOrDefault(granted, Set.of()).contains(name);
+        }
+    }
+}
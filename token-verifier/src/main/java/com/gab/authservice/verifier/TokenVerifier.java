@@ -0,0 +1,138 @@
+package com.gab.authservice.verifier;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.NoSuchAlgorithmException;
+import java.security.Signature;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Verifies RS256 access tokens issued by the auth service without calling it.
+ * <p>
+ * Only {@code RS256} is accepted, whatever the token header says, so {@code none}/HMAC downgrades
+ * are rejected. Signatures are checked before the payload is parsed, and {@code exp} is required.
+ * Thread-safe; create one per application.
+ * </p>
+ */
+public class TokenVerifier {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final TypeReference<Map<String, Object>> CLAIMS = new TypeReference<>() { };
+
+    private final KeySource keySource;
+    private final Clock clock;
+    private final long clockSkewSeconds;
+    private final ThreadLocal<Signature> signatures = ThreadLocal.withInitial(TokenVerifier::newSignature);
+
+    public TokenVerifier(KeySource keySource) {
+        this(keySource, Clock.systemUTC(), Duration.ZERO);
+    }
+
+    /**
+     * @param clockSkew how long after {@code exp} a token is still accepted
+     */
+    public TokenVerifier(KeySource keySource, Clock clock, Duration clockSkew) {
+        this.keySource = keySource;
+        this.clock = clock;
+        this.clockSkewSeconds = clockSkew.toSeconds();
+    }
+
+    public VerifiedToken verify(String token) {
+        if (token == null) {
+            throw new VerificationException("Token is missing");
+        }
+        byte[] ascii = token.getBytes(StandardCharsets.US_ASCII);
+        int firstDot = token.indexOf('.');
+        int secondDot = firstDot < 0 ? -1 : token.indexOf('.', firstDot + 1);
+        if (firstDot <= 0 || secondDot < 0 || token.indexOf('.', secondDot + 1) >= 0) {
+            throw new VerificationException("Malformed token");
+        }
+
+        JsonNode header = readTree(decode(ascii, 0, firstDot));
+        String alg = header.path("alg").asText(null);
+        if (!"RS256".equals(alg)) {
+            throw new VerificationException("Unsupported algorithm " + alg);
+        }
+        RSAPublicKey key = keySource.get(header.path("kid").textValue());
+
+        if (!signatureMatches(key, ascii, secondDot, decode(ascii, secondDot + 1, ascii.length))) {
+            throw new VerificationException("Invalid signature");
+        }
+
+        Map<String, Object> claims = readClaims(decode(ascii, firstDot + 1, secondDot));
+        long now = clock.instant().getEpochSecond();
+        if (!(claims.get("exp") instanceof Number exp)) {
+            throw new VerificationException("Token has no expiry");
+        }
+        if (now - clockSkewSeconds >= exp.longValue()) {
+            throw new VerificationException("Token expired");
+        }
+        if (claims.get("nbf") instanceof Number nbf && now + clockSkewSeconds < nbf.longValue()) {
+            throw new VerificationException("Token not valid yet");
+        }
+        return new VerifiedToken(stringClaim(claims, "sub"), stringClaim(claims, "role"),
+                Instant.ofEpochSecond(exp.longValue()), Collections.unmodifiableMap(claims));
+    }
+
+    private boolean signatureMatches(RSAPublicKey key, byte[] signingInput, int length, byte[] signatureBytes) {
+        Signature signature = signatures.get();
+        try {
+            signature.initVerify(key);
+            signature.update(signingInput, 0, length);
+            return signature.verify(signatureBytes);
+        } catch (GeneralSecurityException e) {
+            throw new VerificationException("Invalid signature", e);
+        }
+    }
+
+    private static byte[] decode(byte[] ascii, int from, int to) {
+        try {
+            ByteBuffer decoded = Base64.getUrlDecoder().decode(ByteBuffer.wrap(ascii, from, to - from));
+            byte[] bytes = new byte[decoded.remaining()];
+            decoded.get(bytes);
+            return bytes;
+        } catch (IllegalArgumentException e) {
+            throw new VerificationException("Malformed token", e);
+        }
+    }
+
+    private static JsonNode readTree(byte[] json) {
+        try {
+            return MAPPER.readTree(json);
+        } catch (IOException e) {
+            throw new VerificationException("Malformed token header", e);
+        }
+    }
+
+    private static Map<String, Object> readClaims(byte[] json) {
+        try {
+            return MAPPER.readValue(json, CLAIMS);
+        } catch (IOException e) {
+            throw new VerificationException("Malformed token payload", e);
+        }
+    }
+
+    private static String stringClaim(Map<String, Object> claims, String name) {
+        return claims.get(name) instanceof String value ? value : null;
+    }
+
+    private static Signature newSignature() {
+        try {
+            return Signature.getInstance("SHA256withRSA");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA256withRSA not available", e);
+        }
+    }
+}
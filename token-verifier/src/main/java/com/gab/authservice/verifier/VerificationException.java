@@ -0,0 +1,16 @@
+package com.gab.authservice.verifier;
+
+/**
+ * Thrown when a token can't be verified: malformed, unsupported algorithm, unknown key,
+ * bad signature or expired.
+ */
+public class VerificationException extends RuntimeException {
+
+    public VerificationException(String message) {
+        super(message);
+    }
+
+    public VerificationException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
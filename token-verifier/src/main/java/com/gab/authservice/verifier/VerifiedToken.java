@@ -0,0 +1,49 @@
+package com.gab.authservice.verifier;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Claims of a token whose signature and expiry have been checked.
+ */
+public final class VerifiedToken {
+
+    private final String subject;
+    private final String role;
+    private final Instant expiresAt;
+    private final Map<String, Object> claims;
+
+    VerifiedToken(String subject, String role, Instant expiresAt, Map<String, Object> claims) {
+        this.subject = subject;
+        this.role = role;
+        this.expiresAt = expiresAt;
+        this.claims = claims;
+    }
+
+    /**
+     * The user's email.
+     */
+    public String getSubject() {
+        return subject;
+    }
+
+    /**
+     * {@code USER} or {@code ADMIN}, without the {@code ROLE_} prefix.
+     */
+    public String getRole() {
+        return role;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public Map<String, Object> getClaims() {
+        return claims;
+    }
+
+    @Override
+    public String toString() {
+        return "VerifiedToken[subject=" + subject + ", role=" + role + ", expiresAt=" + expiresAt + "]";
+    }
+}
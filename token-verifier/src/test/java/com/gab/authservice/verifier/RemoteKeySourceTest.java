@@ -0,0 +1,153 @@
+package com.gab.authservice.verifier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RemoteKeySourceTest {
+
+    private static TestKeys first;
+    private static TestKeys second;
+
+    private StubKeyServer server;
+    private final AtomicLong nanos = new AtomicLong();
+
+    @BeforeAll
+    static void generateKeys() throws Exception {
+        first = TestKeys.generate();
+        second = TestKeys.generate();
+    }
+
+    @BeforeEach
+    void startServer() throws Exception {
+        server = new StubKeyServer();
+        server.respond(200, TestKeys.jwks(first));
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.close();
+    }
+
+    private RemoteKeySource.Builder jwks() {
+        return RemoteKeySource.jwks(server.uri("/auth/jwks"))
+                .ttl(Duration.ofMinutes(10))
+                .refreshAhead(Duration.ofMinutes(1))
+                .minRefetchInterval(Duration.ofSeconds(30))
+                .refreshExecutor(Runnable::run)
+                .nanoClock(nanos::get);
+    }
+
+    private void advance(Duration duration) {
+        nanos.addAndGet(duration.toNanos());
+    }
+
+    @Test
+    void keys_shouldBeFetchedOnceAndCached() {
+        RemoteKeySource keys = jwks().build();
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(first.publicKey(), keys.get(first.kid));
+        }
+        assertEquals(1, server.requests());
+    }
+
+    @Test
+    void refreshAhead_shouldRefetchBeforeTtlExpires() {
+        RemoteKeySource keys = jwks().build();
+        keys.get(first.kid);
+
+        advance(Duration.ofMinutes(8));
+        keys.get(first.kid);
+        assertEquals(1, server.requests());
+
+        // inside the refresh-ahead window: served from cache, refreshed in the background
+        advance(Duration.ofMinutes(1).plusSeconds(30));
+        server.respond(200, TestKeys.jwks(first, second));
+        assertEquals(first.publicKey(), keys.get(first.kid));
+        assertEquals(2, server.requests());
+        assertEquals(second.publicKey(), keys.get(second.kid));
+        assertEquals(2, server.requests());
+    }
+
+    @Test
+    void unknownKid_shouldRefetchButNotMoreThanOncePerInterval() {
+        RemoteKeySource keys = jwks().build();
+        keys.get(first.kid);
+
+        // key rotated in after the first fetch
+        advance(Duration.ofMinutes(1));
+        server.respond(200, TestKeys.jwks(first, second));
+        assertEquals(second.publicKey(), keys.get(second.kid));
+        assertEquals(2, server.requests());
+
+        for (int i = 0; i < 50; i++) {
+            assertThrows(VerificationException.class, () -> keys.get("garbage"));
+        }
+        assertEquals(2, server.requests());
+
+        advance(Duration.ofSeconds(31));
+        assertThrows(VerificationException.class, () -> keys.get("garbage"));
+        assertEquals(3, server.requests());
+    }
+
+    @Test
+    void failedRefresh_shouldKeepServingPreviousKeys() {
+        RemoteKeySource keys = jwks().build();
+        keys.get(first.kid);
+
+        server.respond(503, "");
+        advance(Duration.ofMinutes(11));
+        assertEquals(first.publicKey(), keys.get(first.kid));
+        assertEquals(2, server.requests());
+    }
+
+    @Test
+    void unreachableServer_shouldFailVerificationWithoutRetryStorm() {
+        server.respond(500, "");
+        RemoteKeySource keys = jwks().build();
+
+        assertThrows(VerificationException.class, () -> keys.get(first.kid));
+        assertThrows(VerificationException.class, () -> keys.get(first.kid));
+        assertEquals(1, server.requests());
+    }
+
+    @Test
+    void pem_shouldMatchTokensByDerivedKid() {
+        server.respond(200, first.pem());
+        RemoteKeySource keys = RemoteKeySource.pem(server.uri("/auth/public-key"))
+                .refreshExecutor(Runnable::run)
+                .nanoClock(nanos::get)
+                .build();
+
+        assertEquals(first.publicKey(), keys.get(first.kid));
+        // tokens without a kid header still work while there is a single key
+        assertEquals(first.publicKey(), keys.get(null));
+    }
+
+    @Test
+    void defaultExecutor_shouldRefreshOnDaemonThread() throws Exception {
+        try (RemoteKeySource keys = RemoteKeySource.jwks(server.uri("/auth/jwks"))
+                .ttl(Duration.ofMinutes(10))
+                .refreshAhead(Duration.ofMinutes(1))
+                .nanoClock(nanos::get)
+                .build()) {
+            keys.get(first.kid);
+            advance(Duration.ofMinutes(9).plusSeconds(30));
+            keys.get(first.kid);
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (server.requests() < 2 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(2, server.requests());
+        }
+    }
+}
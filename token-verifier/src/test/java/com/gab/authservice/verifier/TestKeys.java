@@ -0,0 +1,79 @@
+package com.gab.authservice.verifier;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Base64;
+
+/**
+ * An RSA key pair plus helpers to publish it and sign tokens with it the way the auth service does.
+ */
+final class TestKeys {
+
+    private static final Base64.Encoder URL = Base64.getUrlEncoder().withoutPadding();
+
+    final KeyPair keyPair;
+    final String kid;
+
+    private TestKeys(KeyPair keyPair) {
+        this.keyPair = keyPair;
+        this.kid = KeyIds.of((RSAPublicKey) keyPair.getPublic());
+    }
+
+    static TestKeys generate() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        return new TestKeys(generator.generateKeyPair());
+    }
+
+    RSAPublicKey publicKey() {
+        return (RSAPublicKey) keyPair.getPublic();
+    }
+
+    String jwk() {
+        RSAPublicKey key = publicKey();
+        return "{\"kty\":\"RSA\",\"use\":\"sig\",\"alg\":\"RS256\",\"kid\":\"" + kid + "\","
+                + "\"n\":\"" + URL.encodeToString(unsigned(key.getModulus().toByteArray())) + "\","
+                + "\"e\":\"" + URL.encodeToString(unsigned(key.getPublicExponent().toByteArray())) + "\"}";
+    }
+
+    static String jwks(TestKeys... keys) {
+        StringBuilder body = new StringBuilder("{\"keys\":[");
+        for (int i = 0; i < keys.length; i++) {
+            body.append(i == 0 ? "" : ",").append(keys[i].jwk());
+        }
+        return body.append("]}").toString();
+    }
+
+    String pem() {
+        return "-----BEGIN PUBLIC KEY-----\n"
+                + Base64.getMimeEncoder(64, "\n".getBytes()).encodeToString(keyPair.getPublic().getEncoded())
+                + "\n-----END PUBLIC KEY-----\n";
+    }
+
+    String token(String subject, String role, long expiresAtEpochSecond) throws Exception {
+        return sign("{\"alg\":\"RS256\",\"kid\":\"" + kid + "\"}",
+                "{\"sub\":\"" + subject + "\",\"role\":\"" + role + "\",\"iat\":" + (expiresAtEpochSecond - 60)
+                        + ",\"exp\":" + expiresAtEpochSecond + "}");
+    }
+
+    String sign(String header, String payload) throws Exception {
+        String signingInput = URL.encodeToString(header.getBytes(StandardCharsets.UTF_8)) + "."
+                + URL.encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+        Signature signature = Signature.getInstance("SHA256withRSA");
+        signature.initSign(keyPair.getPrivate());
+        signature.update(signingInput.getBytes(StandardCharsets.US_ASCII));
+        return signingInput + "." + URL.encodeToString(signature.sign());
+    }
+
+    private static byte[] unsigned(byte[] bytes) {
+        if (bytes.length > 1 && bytes[0] == 0) {
+            byte[] trimmed = new byte[bytes.length - 1];
+            System.arraycopy(bytes, 1, trimmed, 0, trimmed.length);
+            return trimmed;
+        }
+        return bytes;
+    }
+}
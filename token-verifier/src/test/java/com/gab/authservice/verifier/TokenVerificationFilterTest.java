@@ -0,0 +1,90 @@
+package com.gab.authservice.verifier;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenVerificationFilterTest {
+
+    private static TestKeys keys;
+    private static TokenVerificationFilter filter;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        keys = TestKeys.generate();
+        filter = new TokenVerificationFilter(new TokenVerifier(kid -> keys.publicKey()));
+    }
+
+    @Test
+    void validBearerToken_shouldAuthenticateRequest() throws Exception {
+        String token = keys.token("admin@example.com", "ADMIN", Instant.now().getEpochSecond() + 60);
+        HttpServletRequest request = request("Bearer " + token);
+
+        HttpServletRequest seen = doFilter(request);
+
+        assertEquals("admin@example.com", seen.getUserPrincipal().getName());
+        assertEquals("admin@example.com", seen.getRemoteUser());
+        assertTrue(seen.isUserInRole("ADMIN"));
+        assertTrue(seen.isUserInRole("ROLE_ADMIN"));
+        assertEquals("ADMIN", TokenVerificationFilter.current(seen).getRole());
+    }
+
+    @Test
+    void roles_shouldFollowTheServicesHierarchy() throws Exception {
+        long expiry = Instant.now().getEpochSecond() + 60;
+        HttpServletRequest admin = doFilter(request("Bearer " + keys.token("admin@example.com", "ADMIN", expiry)));
+        HttpServletRequest user = doFilter(request("Bearer " + keys.token("user@example.com", "USER", expiry)));
+
+        // ADMIN > USER, as in the auth service's RoleAuthorities.HIERARCHY
+        assertTrue(admin.isUserInRole("USER"));
+        assertTrue(admin.isUserInRole("ROLE_USER"));
+        assertTrue(user.isUserInRole("USER"));
+        assertFalse(user.isUserInRole("ADMIN"));
+        assertFalse(user.isUserInRole("ROLE_ADMIN"));
+        assertFalse(admin.isUserInRole("AUDITOR"));
+    }
+
+    @Test
+    void invalidOrMissingToken_shouldContinueUnauthenticated() throws Exception {
+        String expired = keys.token("a@example.com", "USER", Instant.now().getEpochSecond() - 60);
+
+        for (String header : new String[] {null, "Basic abc", "Bearer " + expired, "Bearer garbage"}) {
+            HttpServletRequest seen = doFilter(request(header));
+            assertNull(seen.getUserPrincipal(), header);
+            assertNull(TokenVerificationFilter.current(seen), header);
+        }
+    }
+
+    private static HttpServletRequest doFilter(HttpServletRequest request) throws Exception {
+        AtomicReference<ServletRequest> seen = new AtomicReference<>();
+        FilterChain chain = (req, res) -> seen.set(req);
+        filter.doFilter(request, null, chain);
+        return (HttpServletRequest) seen.get();
+    }
+
+    /**
+     * Bare request with just an Authorization header and attributes; no servlet container needed.
+     */
+    private static HttpServletRequest request(String authorization) {
+        Map<String, Object> attributes = new HashMap<>();
+        return (HttpServletRequest) Proxy.newProxyInstance(TokenVerificationFilterTest.class.getClassLoader(),
+                new Class<?>[] {HttpServletRequest.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "getHeader" -> "Authorization".equalsIgnoreCase((String) args[0]) ? authorization : null;
+                    case "getAttribute" -> attributes.get((String) args[0]);
+                    case "setAttribute" -> attributes.put((String) args[0], args[1]);
+                    case "getUserPrincipal", "getRemoteUser" -> null;
+                    case "isUserInRole" -> false;
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
@@ -0,0 +1,83 @@
+package com.gab.authservice.verifier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of verifying a token with keys already cached, i.e. what a downstream service pays per request.
+ * {@code keyLookup} isolates the cache hit; {@code verify} is the full parse + RSA check.
+ * <p>
+ * Run with {@code mvn -f token-verifier/pom.xml test-compile exec:exec -Pbenchmark}
+ * or from the IDE via {@link #main(String[])}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenVerifierBenchmark {
+
+    private StubKeyServer server;
+    private RemoteKeySource keySource;
+    private TokenVerifier verifier;
+    private String token;
+    private String kid;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        TestKeys keys = TestKeys.generate();
+        server = new StubKeyServer();
+        server.respond(200, TestKeys.jwks(keys));
+        keySource = RemoteKeySource.jwks(server.uri("/auth/jwks")).build();
+        verifier = new TokenVerifier(keySource);
+        // long enough to outlive the run
+        token = keys.token("user@example.com", "USER", Instant.now().getEpochSecond() + 3600);
+        kid = keys.kid;
+        verifier.verify(token);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        keySource.close();
+        server.close();
+    }
+
+    @Benchmark
+    public Object keyLookup() {
+        return keySource.get(kid);
+    }
+
+    @Benchmark
+    public VerifiedToken verify() {
+        return verifier.verify(token);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public VerifiedToken verifyConcurrent() {
+        return verifier.verify(token);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(TokenVerifierBenchmark.class.getSimpleName()).build()).run();
+    }
+}
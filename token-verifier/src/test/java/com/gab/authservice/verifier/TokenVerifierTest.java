@@ -0,0 +1,100 @@
+package com.gab.authservice.verifier;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenVerifierTest {
+
+    private static final Instant NOW = Instant.parse("2025-01-01T12:00:00Z");
+
+    private static TestKeys keys;
+    private static TestKeys other;
+    private static TokenVerifier verifier;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        keys = TestKeys.generate();
+        other = TestKeys.generate();
+        Map<String, java.security.interfaces.RSAPublicKey> byId = Map.of(keys.kid, keys.publicKey());
+        KeySource keySource = kid -> {
+            java.security.interfaces.RSAPublicKey key = byId.get(kid);
+            if (key == null) {
+                throw new VerificationException("Unknown key id " + kid);
+            }
+            return key;
+        };
+        verifier = new TokenVerifier(keySource, Clock.fixed(NOW, ZoneOffset.UTC), Duration.ofSeconds(5));
+    }
+
+    @Test
+    void validToken_shouldReturnClaims() throws Exception {
+        VerifiedToken token = verifier.verify(keys.token("user@example.com", "ADMIN", NOW.getEpochSecond() + 60));
+
+        assertEquals("user@example.com", token.getSubject());
+        assertEquals("ADMIN", token.getRole());
+        assertEquals(NOW.plusSeconds(60), token.getExpiresAt());
+        assertEquals("user@example.com", token.getClaims().get("sub"));
+    }
+
+    @Test
+    void expiredToken_shouldBeRejectedAfterClockSkew() throws Exception {
+        assertDoesNotThrow(() -> verifier.verify(keys.token("a@example.com", "USER", NOW.getEpochSecond() - 3)));
+        VerificationException e = assertThrows(VerificationException.class,
+                () -> verifier.verify(keys.token("a@example.com", "USER", NOW.getEpochSecond() - 5)));
+        assertEquals("Token expired", e.getMessage());
+    }
+
+    @Test
+    void tamperedPayload_shouldFailSignatureCheck() throws Exception {
+        String token = keys.token("a@example.com", "USER", NOW.getEpochSecond() + 60);
+        String[] parts = token.split("\\.");
+        String forged = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                ("{\"sub\":\"a@example.com\",\"role\":\"ADMIN\",\"exp\":" + (NOW.getEpochSecond() + 60) + "}").getBytes());
+
+        VerificationException e = assertThrows(VerificationException.class,
+                () -> verifier.verify(parts[0] + "." + forged + "." + parts[2]));
+        assertEquals("Invalid signature", e.getMessage());
+    }
+
+    @Test
+    void tokenSignedWithOtherKeyUnderSameKid_shouldBeRejected() throws Exception {
+        String token = other.sign("{\"alg\":\"RS256\",\"kid\":\"" + keys.kid + "\"}",
+                "{\"sub\":\"a@example.com\",\"exp\":" + (NOW.getEpochSecond() + 60) + "}");
+
+        assertThrows(VerificationException.class, () -> verifier.verify(token));
+    }
+
+    @Test
+    void algorithmOtherThanRs256_shouldBeRejected() {
+        String header = Base64.getUrlEncoder().withoutPadding().encodeToString("{\"alg\":\"none\"}".getBytes());
+        String payload = Base64.getUrlEncoder().withoutPadding().encodeToString("{\"sub\":\"a\"}".getBytes());
+
+        VerificationException e = assertThrows(VerificationException.class,
+                () -> verifier.verify(header + "." + payload + "."));
+        assertEquals("Unsupported algorithm none", e.getMessage());
+    }
+
+    @Test
+    void tokenWithoutExpiry_shouldBeRejected() throws Exception {
+        String token = keys.sign("{\"alg\":\"RS256\",\"kid\":\"" + keys.kid + "\"}", "{\"sub\":\"a@example.com\"}");
+
+        assertThrows(VerificationException.class, () -> verifier.verify(token));
+    }
+
+    @Test
+    void malformedTokens_shouldBeRejected() {
+        assertThrows(VerificationException.class, () -> verifier.verify(null));
+        assertThrows(VerificationException.class, () -> verifier.verify("abc"));
+        assertThrows(VerificationException.class, () -> verifier.verify("a.b.c.d"));
+        assertThrows(VerificationException.class, () -> verifier.verify("!!!.???.***"));
+    }
+}